@@ -0,0 +1,64 @@
+package org.usfirst.frc.team1218.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Angle;
+
+/**
+ * Angle wrapping used by the module angle loop and AngleEncoder.pidGet
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AngleBenchmark {
+
+	private static final int INPUT_MASK = 1023;
+
+	private final double[] angles = new double[INPUT_MASK + 1];
+	private int index = 0;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1218);
+		for (int i = 0; i < angles.length; i++) angles[i] = random.nextDouble() * 2000.0 - 1000.0;
+	}
+
+	private double nextAngle() {
+		index = (index + 1) & INPUT_MASK;
+		return angles[index];
+	}
+
+	@Benchmark
+	public double get360Angle() {
+		return Angle.get360Angle(nextAngle());
+	}
+
+	@Benchmark
+	public double diffBetweenAngles() {
+		return Angle.diffBetweenAngles(nextAngle(), angles[(index + 7) & INPUT_MASK]);
+	}
+
+	@Benchmark
+	public double legacyGet360Angle() {
+		return LegacySwerveMath.get360Angle(nextAngle());
+	}
+
+	@Benchmark
+	public double legacyDiffBetweenAngles() {
+		return LegacySwerveMath.diffBetweenAngles(nextAngle(), angles[(index + 7) & INPUT_MASK]);
+	}
+}
@@ -0,0 +1,72 @@
+package org.usfirst.frc.team1218.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usfirst.frc.team1218.subsystem.swerve.math.FastTrig;
+
+/**
+ * Lookup table trig against the java.lang.Math calls it replaces
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FastTrigBenchmark {
+
+	private static final int INPUT_MASK = 1023;
+
+	private final double[] angles = new double[INPUT_MASK + 1];
+	private final double[] xs = new double[INPUT_MASK + 1];
+	private final double[] ys = new double[INPUT_MASK + 1];
+	private int index = 0;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1218);
+		for (int i = 0; i < angles.length; i++) {
+			angles[i] = random.nextDouble() * 720.0 - 360.0;
+			xs[i] = random.nextDouble() * 2.0 - 1.0;
+			ys[i] = random.nextDouble() * 2.0 - 1.0;
+		}
+	}
+
+	private int next() {
+		index = (index + 1) & INPUT_MASK;
+		return index;
+	}
+
+	@Benchmark
+	public double fastSinDegrees() {
+		return FastTrig.sinDegrees(angles[next()]);
+	}
+
+	@Benchmark
+	public double mathSinDegrees() {
+		return Math.sin(Math.toRadians(angles[next()]));
+	}
+
+	@Benchmark
+	public double fastAtan2Degrees() {
+		int i = next();
+		return FastTrig.atan2Degrees(xs[i], ys[i]);
+	}
+
+	@Benchmark
+	public double mathAtan2Degrees() {
+		int i = next();
+		return Math.toDegrees(Math.atan2(xs[i], ys[i]));
+	}
+}
@@ -0,0 +1,73 @@
+package org.usfirst.frc.team1218.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kauailabs.nav6.IMUProtocol;
+
+/**
+ * nav6 field decoding done by the IMU thread for every packet, a YPR update holds four floats and a quaternion update ten uint16s
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IMUProtocolBenchmark {
+
+	private static final int INPUT_MASK = 255;
+	private static final int FLOAT_LENGTH = 7;
+	private static final int UINT16_LENGTH = 4;
+
+	private final byte[] floats = new byte[(INPUT_MASK + 1) * FLOAT_LENGTH];
+	private final byte[] uint16s = new byte[(INPUT_MASK + 1) * UINT16_LENGTH];
+	private int index = 0;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1218);
+		for (int i = 0; i <= INPUT_MASK; i++) {
+			String text = String.format("%07.2f", random.nextDouble() * 360.0 - 180.0);
+			for (int j = 0; j < FLOAT_LENGTH; j++) floats[i * FLOAT_LENGTH + j] = (byte) text.charAt(j);
+			text = String.format("%04X", random.nextInt(65536));
+			for (int j = 0; j < UINT16_LENGTH; j++) uint16s[i * UINT16_LENGTH + j] = (byte) text.charAt(j);
+		}
+	}
+
+	private int next() {
+		index = (index + 1) & INPUT_MASK;
+		return index;
+	}
+
+	@Benchmark
+	public float decodeProtocolFloat() {
+		return IMUProtocol.decodeProtocolFloat(floats, next() * FLOAT_LENGTH);
+	}
+
+	@Benchmark
+	public float legacyDecodeProtocolFloat() {
+		return LegacyIMUProtocol.decodeProtocolFloat(floats, next() * FLOAT_LENGTH);
+	}
+
+	@Benchmark
+	public short decodeProtocolUint16() {
+		return IMUProtocol.decodeProtocolUint16(uint16s, next() * UINT16_LENGTH);
+	}
+
+	@Benchmark
+	public short legacyDecodeProtocolUint16() {
+		return LegacyIMUProtocol.decodeProtocolUint16(uint16s, next() * UINT16_LENGTH);
+	}
+}
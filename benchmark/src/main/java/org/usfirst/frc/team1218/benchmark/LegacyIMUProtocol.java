@@ -0,0 +1,176 @@
+package org.usfirst.frc.team1218.benchmark;
+
+import com.kauailabs.nav6.IMUProtocol;
+
+/**
+ * Copy of the original nav6 IMUProtocol field decoders and IMUAdvanced.setQuaternion math, kept as a baseline for comparison.
+ */
+public class LegacyIMUProtocol {
+
+	private static final int PROTOCOL_FLOAT_LENGTH = 7;
+
+	public static float decodeProtocolFloat(byte[] buffer, int offset) {
+		String float_string = new String(buffer, offset, PROTOCOL_FLOAT_LENGTH);
+		return Float.parseFloat(float_string);
+	}
+
+	public static short decodeProtocolUint16(byte[] uint16_string, int offset) {
+		short decoded_uint16 = 0;
+		int shift_left = 12;
+		for (int i = offset + 0; i < offset + 4; i++) {
+			byte digit = (byte) (uint16_string[i] <= '9' ? uint16_string[i] - '0' : ((uint16_string[i] - 'A') + 10));
+			decoded_uint16 += (((short) digit) << shift_left);
+			shift_left -= 4;
+		}
+		return decoded_uint16;
+	}
+
+	/**
+	 * @param out receives yaw, pitch, roll, compass heading, world linear acceleration x/y/z and linear acceleration x/y/z
+	 */
+	public static void setQuaternion(IMUProtocol.QuaternionUpdate raw_update, short accel_fsr_g, float nav6_yaw_offset_degrees, float[] out) {
+
+		float[] q = new float[4];
+		float[] gravity = new float[3];
+		//float[] euler = new float[3];
+		float[] ypr = new float[3];
+		float yaw_degrees;
+		float pitch_degrees;
+		float roll_degrees;
+		float linear_acceleration_x;
+		float linear_acceleration_y;
+		float linear_acceleration_z;
+		float q2[] = new float[4];
+		float q_product[] = new float[4];
+		float world_linear_acceleration_x;
+		float world_linear_acceleration_y;
+		float world_linear_acceleration_z;
+
+		q[0] = ((float)raw_update.q1) / 16384.0f;
+		q[1] = ((float)raw_update.q2) / 16384.0f;
+		q[2] = ((float)raw_update.q3) / 16384.0f;
+		q[3] = ((float)raw_update.q4) / 16384.0f;
+		for (int i = 0; i < 4; i++) if (q[i] >= 2) q[i] = -4 + q[i]; // Range-check quaterions
+
+		// below calculations are necessary for calculation of yaw/pitch/roll,
+		// and tilt-compensated compass heading
+
+		// calculate gravity vector
+		gravity[0] = 2 * (q[1]*q[3] - q[0]*q[2]);
+		gravity[1] = 2 * (q[0]*q[1] + q[2]*q[3]);
+		gravity[2] = q[0]*q[0] - q[1]*q[1] - q[2]*q[2] + q[3]*q[3];
+
+		// calculate Euler angles
+		// This code is here for reference, and is commented out for performance reasons
+
+		//euler[0] = (float) MathUtils.atan2(2*q[1]*q[2] - 2*q[0]*q[3], 2*q[0]*q[0] + 2*q[1]*q[1] - 1);
+		//euler[1] = (float) -MathUtils.asin(2*q[1]*q[3] + 2*q[0]*q[2]);
+		//euler[2] = (float) MathUtils.atan2(2*q[2]*q[3] - 2*q[0]*q[1], 2*q[0]*q[0] + 2*q[3]*q[3] - 1);
+
+		// calculate yaw/pitch/roll angles
+		ypr[0] = (float) Math.atan2(2*q[1]*q[2] - 2*q[0]*q[3], 2*q[0]*q[0] + 2*q[1]*q[1] - 1);
+		ypr[1] = (float) Math.atan(gravity[0] / Math.sqrt(gravity[1]*gravity[1] + gravity[2]*gravity[2]));
+		ypr[2] = (float) Math.atan(gravity[1] / Math.sqrt(gravity[0]*gravity[0] + gravity[2]*gravity[2]));
+
+		yaw_degrees = (float) (ypr[0] * (180.0/Math.PI));
+		pitch_degrees = (float) (ypr[1] * (180.0/Math.PI));
+		roll_degrees = (float) (ypr[2] * (180.0/Math.PI));
+
+		// Subtract nav6 offset, and handle potential 360 degree wrap-around
+		yaw_degrees -= nav6_yaw_offset_degrees;
+		if ( yaw_degrees < -180 ) yaw_degrees += 360;
+		if ( yaw_degrees > 180 ) yaw_degrees -= 360;
+
+		// calculate linear acceleration by
+		// removing the gravity component (+1g = +4096 in standard DMP FIFO packet)
+
+		linear_acceleration_x = (float) ((((float)raw_update.accel_x) / (32768.0 / accel_fsr_g)) - gravity[0]);
+		linear_acceleration_y = (float) ((((float)raw_update.accel_y) / (32768.0 / accel_fsr_g)) - gravity[1]);
+		linear_acceleration_z = (float) ((((float)raw_update.accel_z) / (32768.0 / accel_fsr_g)) - gravity[2]);
+
+		// Calculate world-frame acceleration
+
+		q2[0] = 0;
+		q2[1] = linear_acceleration_x;
+		q2[2] = linear_acceleration_y;
+		q2[3] = linear_acceleration_z;
+
+		// Rotate linear acceleration so that it's relative to the world reference frame
+
+		// http://www.cprogramming.com/tutorial/3d/quaternions.html
+		// http://www.euclideanspace.com/maths/algebra/realNormedAlgebra/quaternions/transforms/index.htm
+		// http://content.gpwiki.org/index.php/OpenGL:Tutorials:Using_Quaternions_to_represent_rotation
+		// ^ or: http://webcache.googleusercontent.com/search?q=cache:xgJAp3bDNhQJ:content.gpwiki.org/index.php/OpenGL:Tutorials:Using_Quaternions_to_represent_rotation&hl=en&gl=us&strip=1
+
+		// P_out = q * P_in * conj(q)
+		// - P_out is the output vector
+		// - q is the orientation quaternion
+		// - P_in is the input vector (a*aReal)
+		// - conj(q) is the conjugate of the orientation quaternion (q=[w,x,y,z], q*=[w,-x,-y,-z])
+
+		// calculate quaternion product
+		// Quaternion multiplication is defined by:
+		//     (Q1 * Q2).w = (w1w2 - x1x2 - y1y2 - z1z2)
+		//     (Q1 * Q2).x = (w1x2 + x1w2 + y1z2 - z1y2)
+		//     (Q1 * Q2).y = (w1y2 - x1z2 + y1w2 + z1x2)
+		//     (Q1 * Q2).z = (w1z2 + x1y2 - y1x2 + z1w2
+
+		q_product[0] = q[0]*q2[0] - q[1]*q2[1] - q[2]*q2[2] - q[3]*q2[3];  // new w
+		q_product[1] = q[0]*q2[1] + q[1]*q2[0] + q[2]*q2[3] - q[3]*q2[2];  // new x
+		q_product[2] = q[0]*q2[2] - q[1]*q2[3] + q[2]*q2[0] + q[3]*q2[1];  // new y
+		q_product[3] = q[0]*q2[3] + q[1]*q2[2] - q[2]*q2[1] + q[3]*q2[0];  // new z
+
+		float[] q_conjugate = new float[4];
+
+		q_conjugate[0] = q[0];
+		q_conjugate[1] = -q[1];
+		q_conjugate[2] = -q[2];
+		q_conjugate[3] = -q[3];
+
+		float[] q_final = new float[4];
+
+		q_final[0] = q_product[0]*q_conjugate[0] - q_product[1]*q_conjugate[1] - q_product[2]*q_conjugate[2] - q_product[3]*q_conjugate[3];  // new w
+		q_final[1] = q_product[0]*q_conjugate[1] + q_product[1]*q_conjugate[0] + q_product[2]*q_conjugate[3] - q_product[3]*q_conjugate[2];  // new x
+		q_final[2] = q_product[0]*q_conjugate[2] - q_product[1]*q_conjugate[3] + q_product[2]*q_conjugate[0] + q_product[3]*q_conjugate[1];  // new y
+		q_final[3] = q_product[0]*q_conjugate[3] + q_product[1]*q_conjugate[2] - q_product[2]*q_conjugate[1] + q_product[3]*q_conjugate[0];  // new z
+
+		world_linear_acceleration_x = q_final[1];
+		world_linear_acceleration_y = q_final[2];
+		world_linear_acceleration_z = q_final[3];
+
+		// Calculate tilt-compensated compass heading
+
+		float inverted_pitch = -ypr[1];
+		float roll_radians = ypr[2];
+
+		float cos_roll = (float) Math.cos(roll_radians);
+		float sin_roll = (float) Math.sin(roll_radians);
+		float cos_pitch = (float) Math.cos(inverted_pitch);
+		float sin_pitch = (float) Math.sin(inverted_pitch);
+
+		float MAG_X = raw_update.mag_x * cos_pitch + raw_update.mag_z * sin_pitch;
+		float MAG_Y = raw_update.mag_x * sin_roll * sin_pitch + raw_update.mag_y * cos_roll - raw_update.mag_z * sin_roll * cos_pitch;
+		float tilt_compensated_heading_radians = (float) Math.atan2(MAG_Y,MAG_X);
+		float tilt_compensated_heading_degrees = (float) (tilt_compensated_heading_radians * (180.0 / Math.PI));
+
+		// Adjust compass for board orientation,
+		// and modify range from -180-180 to
+		// 0-360 degrees
+
+		tilt_compensated_heading_degrees -= 90.0;
+		if ( tilt_compensated_heading_degrees < 0 ) {
+		tilt_compensated_heading_degrees += 360;
+		}
+
+		out[0] = yaw_degrees;
+		out[1] = pitch_degrees;
+		out[2] = roll_degrees;
+		out[3] = tilt_compensated_heading_degrees;
+		out[4] = world_linear_acceleration_x;
+		out[5] = world_linear_acceleration_y;
+		out[6] = world_linear_acceleration_z;
+		out[7] = linear_acceleration_x;
+		out[8] = linear_acceleration_y;
+		out[9] = linear_acceleration_z;
+	}
+}
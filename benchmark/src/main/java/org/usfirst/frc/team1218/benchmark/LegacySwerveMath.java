@@ -0,0 +1,98 @@
+package org.usfirst.frc.team1218.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copy of the original Angle and Vector classes and SwerveDrive.swerveVectorCalculator, kept as a baseline for comparison.
+ */
+public class LegacySwerveMath {
+
+	private static final double X_PERPENDICULAR_CONSTANT = 0.546;
+	private static final double Y_PERPENDICULAR_CONSTANT = 0.837;
+
+	public static double get360Angle(double angle) {
+		if (angle < 0.0) angle = 360.0 - Math.abs(angle % 360); //forces angle to be a positive value.
+		if (angle > 360.0) angle = angle % 360.0; //forces angle to be less than 360
+		return angle;
+	}
+
+	public static double diffBetweenAngles(double angle1, double angle2) {
+		return (180 - Math.abs(Math.abs(get360Angle(angle1) - get360Angle(angle2)) - 180));
+	}
+
+	public static List<Vector> swerveVectorCalculator(Vector translationVector, double rotation, double heading, double powerScale) {
+		double xPerpendicular = X_PERPENDICULAR_CONSTANT * rotation;
+		double yPerpendicular = Y_PERPENDICULAR_CONSTANT * rotation;
+
+		translationVector.pushAngle(-heading);
+
+		List<Vector> moduleVector = new ArrayList<Vector>(Arrays.asList(
+				new Vector(translationVector.getX() + xPerpendicular, translationVector.getY() - yPerpendicular),
+				new Vector(translationVector.getX() - xPerpendicular, translationVector.getY() - yPerpendicular),
+				new Vector(translationVector.getX() - xPerpendicular, translationVector.getY() + yPerpendicular),
+				new Vector(translationVector.getX() + xPerpendicular, translationVector.getY() + yPerpendicular)
+				));
+
+		moduleVector.stream().forEach(v -> v.scaleMagnitude(powerScale));
+
+		double maxMagnitude = 0;
+
+		for (int i = 0; i < 4; i++) maxMagnitude = (moduleVector.get(i).getMagnitude() > maxMagnitude) ? moduleVector.get(i).getMagnitude() : maxMagnitude;
+
+		double scaleFactor = ((maxMagnitude > 1.0) ? 1.0 / maxMagnitude : 1.0);
+
+		moduleVector.stream().forEach(v -> {
+			v.scaleMagnitude(scaleFactor);
+			if (v.getMagnitude() > 1.0) v.setMagnitude(1.0);
+		});
+		return moduleVector;
+	}
+
+	public static class Vector {
+		private double x;
+		private double y;
+
+		public Vector(double x, double y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		public double getX() {
+			return x;
+		}
+
+		public double getY() {
+			return y;
+		}
+
+		public double getMagnitude() {
+			return Math.sqrt(x * x + y * y);
+		}
+
+		public void setMagnitude(double newMagnitude) {
+			double oldMagnitude = this.getMagnitude();
+			x = x / oldMagnitude * newMagnitude;
+			y = y / oldMagnitude * newMagnitude;
+		}
+
+		public void scaleMagnitude(double scalar) {
+			setMagnitude(this.getMagnitude() * scalar);
+		}
+
+		public double getAngle() {
+			return Math.toDegrees(Math.atan2(x, y));
+		}
+
+		public void pushAngle(double angleChange) {
+			setAngle(angleChange + this.getAngle());
+		}
+
+		public void setAngle(double angle) {
+			double magnitude = this.getMagnitude();
+			x = Math.sin(Math.toRadians(angle)) * magnitude;
+			y = Math.cos(Math.toRadians(angle)) * magnitude;
+		}
+	}
+}
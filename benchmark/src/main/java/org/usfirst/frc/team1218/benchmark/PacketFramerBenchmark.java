@@ -0,0 +1,96 @@
+package org.usfirst.frc.team1218.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kauailabs.nav6.IMUProtocol;
+import com.kauailabs.nav6.PacketFramer;
+import com.kauailabs.nav6.SerialStream;
+
+/**
+ * One IMU thread read of 256 bytes of quaternion packets, framed and decoded. arrayRead receives the bytes the way
+ * SerialPort.read does (a direct buffer and an array allocated per read), directRead reads into the framer's buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PacketFramerBenchmark {
+
+	private static final int READ_LENGTH = 256;
+	private static final int PACKET_LENGTH = 53;
+
+	private final PacketFramer framer = new PacketFramer(512);
+	private final IMUProtocol.QuaternionUpdate update = new IMUProtocol.QuaternionUpdate();
+	private final PacketFramer.PacketHandler handler = (buffer, offset, length) -> IMUProtocol.decodeQuaternionUpdate(buffer, offset, length, update);
+	private final FakePort port = new FakePort();
+
+	@Setup
+	public void setup() {
+		byte[] packet = new byte[PACKET_LENGTH];
+		String body = "!q3FFF0000000000A0006400C84000000A0014001E0031.50";
+		for (int i = 0; i < body.length(); i++) packet[i] = (byte) body.charAt(i);
+		IMUProtocol.encodeTermination(packet, PACKET_LENGTH, body.length());
+		for (int i = 0; i < port.data.length; i++) port.data[i] = packet[i % PACKET_LENGTH];
+	}
+
+	@Benchmark
+	public int arrayRead() {
+		byte[] received_data = port.read(READ_LENGTH);
+		framer.append(received_data, 0, received_data.length);
+		return framer.process(handler);
+	}
+
+	@Benchmark
+	public int directRead() {
+		framer.read(port, READ_LENGTH);
+		return framer.process(handler);
+	}
+
+	/**
+	 * Endless stream of packets, copying into a direct buffer stands in for the HAL read
+	 */
+	private static class FakePort implements SerialStream {
+
+		final byte[] data = new byte[PACKET_LENGTH * READ_LENGTH];
+		private int position = 0;
+
+		public byte[] read(int count) {
+			ByteBuffer received = ByteBuffer.allocateDirect(count);
+			read(received);
+			received.flip();
+			byte[] bytes = new byte[received.remaining()];
+			received.get(bytes);
+			return bytes;
+		}
+
+		public int read(ByteBuffer buffer) {
+			int count = Math.min(buffer.remaining(), data.length - position);
+			buffer.put(data, position, count);
+			position = (position + count) % data.length;
+			return count;
+		}
+
+		public void reset() {}
+		public void flush() {}
+		public void setReadBufferSize(int size) {}
+		public void setTimeout(double timeout) {}
+		public void enableTermination(char terminator) {}
+		public int getBytesReceived() { return data.length; }
+		public int write(byte[] buffer, int count) { return count; }
+		public double getTimestamp() { return 0; }
+	}
+}
@@ -0,0 +1,82 @@
+package org.usfirst.frc.team1218.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kauailabs.nav6.IMUProtocol;
+import com.kauailabs.nav6.QuaternionOrientation;
+
+/**
+ * Orientation math run by IMUAdvanced for every quaternion update packet
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuaternionBenchmark {
+
+	private static final int INPUT_MASK = 255;
+	private static final short ACCEL_FSR_G = 2;
+
+	private final IMUProtocol.QuaternionUpdate[] updates = new IMUProtocol.QuaternionUpdate[INPUT_MASK + 1];
+	private final QuaternionOrientation orientation = new QuaternionOrientation();
+	private final float[] legacyOut = new float[10];
+	private int index = 0;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1218);
+		for (int i = 0; i < updates.length; i++) updates[i] = randomUpdate(random);
+	}
+
+	/**
+	 * Unit quaternion and raw sensor values encoded the way the nav6 sends them
+	 */
+	static IMUProtocol.QuaternionUpdate randomUpdate(Random random) {
+		double w = random.nextGaussian(), x = random.nextGaussian(), y = random.nextGaussian(), z = random.nextGaussian();
+		double norm = Math.sqrt(w * w + x * x + y * y + z * z);
+		IMUProtocol.QuaternionUpdate update = new IMUProtocol.QuaternionUpdate();
+		update.q1 = (short) Math.round(w / norm * 16384.0);
+		update.q2 = (short) Math.round(x / norm * 16384.0);
+		update.q3 = (short) Math.round(y / norm * 16384.0);
+		update.q4 = (short) Math.round(z / norm * 16384.0);
+		update.accel_x = (short) (random.nextInt(8192) - 4096);
+		update.accel_y = (short) (random.nextInt(8192) - 4096);
+		update.accel_z = (short) (random.nextInt(8192) + 12288);
+		update.mag_x = (short) (random.nextInt(2000) - 1000);
+		update.mag_y = (short) (random.nextInt(2000) - 1000);
+		update.mag_z = (short) (random.nextInt(2000) - 1000);
+		update.temp_c = 30.0f;
+		return update;
+	}
+
+	private IMUProtocol.QuaternionUpdate nextUpdate() {
+		index = (index + 1) & INPUT_MASK;
+		return updates[index];
+	}
+
+	@Benchmark
+	public float update() {
+		orientation.update(nextUpdate(), ACCEL_FSR_G, 0.0f);
+		return orientation.yaw_degrees + orientation.world_linear_accel.x;
+	}
+
+	@Benchmark
+	public float legacySetQuaternion() {
+		LegacyIMUProtocol.setQuaternion(nextUpdate(), ACCEL_FSR_G, 0.0f, legacyOut);
+		return legacyOut[0] + legacyOut[4];
+	}
+}
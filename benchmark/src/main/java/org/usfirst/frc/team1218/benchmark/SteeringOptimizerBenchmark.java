@@ -0,0 +1,63 @@
+package org.usfirst.frc.team1218.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usfirst.frc.team1218.subsystem.swerve.math.SteeringOptimizer;
+import org.usfirst.frc.team1218.subsystem.swerve.math.SwerveKinematics;
+
+/**
+ * Joint steering decision made every drive loop, fed joystick-like angles with occasional large jumps
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SteeringOptimizerBenchmark {
+
+	private static final int INPUT_MASK = 1023;
+
+	private final SteeringOptimizer steeringOptimizer = new SteeringOptimizer(15.0, 0.1);
+	private final double[] angles = new double[INPUT_MASK + 1];
+	private final double[] measured = new double[INPUT_MASK + 1];
+	private final double[] desiredAngle = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] speed = {0.5, 0.5, 0.5, 0.5};
+	private final double[] encoderAngle = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] setpoint = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] driveScale = new double[SwerveKinematics.MODULE_COUNT];
+	private int index = 0;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1218);
+		double angle = 0;
+		for (int i = 0; i < angles.length; i++) {
+			angle += (random.nextInt(10) == 0) ? random.nextDouble() * 360.0 - 180.0 : random.nextGaussian() * 5.0;
+			angles[i] = angle;
+			measured[i] = random.nextDouble() * 360.0;
+		}
+	}
+
+	@Benchmark
+	public double optimizeAllModules() {
+		index = (index + 1) & INPUT_MASK;
+		for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) {
+			desiredAngle[i] = angles[(index + i) & INPUT_MASK];
+			encoderAngle[i] = measured[(index + i) & INPUT_MASK];
+		}
+		steeringOptimizer.optimize(desiredAngle, speed, encoderAngle, setpoint, driveScale);
+		return setpoint[0] + driveScale[3];
+	}
+}
@@ -0,0 +1,64 @@
+package org.usfirst.frc.team1218.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.usfirst.frc.team1218.subsystem.swerve.math.SwerveKinematics;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Vector2;
+
+/**
+ * Full module state calculation done by SwerveDrive every loop, including field centric rotation.
+ * legacySwerveVectorCalculator is the list based implementation SwerveKinematics replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SwerveKinematicsBenchmark {
+
+	private static final double X_PERPENDICULAR_CONSTANT = 0.546;
+	private static final double Y_PERPENDICULAR_CONSTANT = 0.837;
+	private static final double POWER_SCALE = 0.6;
+
+	private final SwerveKinematics kinematics = new SwerveKinematics(X_PERPENDICULAR_CONSTANT, Y_PERPENDICULAR_CONSTANT);
+	private final double[] moduleAngle = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] moduleSpeed = new double[SwerveKinematics.MODULE_COUNT];
+	private final Vector2 translation = new Vector2();
+
+	private double translationX = 0.4;
+	private double translationY = 0.8;
+	private double rotation = 0.5;
+	private double heading = 33.0;
+
+	@Benchmark
+	public void calculate(Blackhole blackhole) {
+		translation.set(translationX, translationY).rotate(-heading);
+		kinematics.calculate(translation.getX(), translation.getY(), rotation, POWER_SCALE, moduleAngle, moduleSpeed);
+		blackhole.consume(moduleAngle);
+		blackhole.consume(moduleSpeed);
+	}
+
+	/**
+	 * Includes the per module getAngle and getMagnitude calls the old powerDrive made on the returned list
+	 */
+	@Benchmark
+	public void legacySwerveVectorCalculator(Blackhole blackhole) {
+		List<LegacySwerveMath.Vector> moduleVectors = LegacySwerveMath.swerveVectorCalculator(new LegacySwerveMath.Vector(translationX, translationY), rotation, heading, POWER_SCALE);
+		moduleVectors.stream().forEach(v -> {
+			blackhole.consume(v.getAngle());
+			blackhole.consume(v.getMagnitude());
+		});
+	}
+}
@@ -0,0 +1,91 @@
+package org.usfirst.frc.team1218.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Vector;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Vector2;
+
+/**
+ * Vector operations used by drive commands and field centric drive.
+ * Each benchmark resets its vector first so results do not drift towards zero or infinity.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorBenchmark {
+
+	private final Vector vector = new Vector(0, 0);
+	private final Vector2 vector2 = new Vector2();
+
+	private double x = 0.3;
+	private double y = 0.7;
+	private double angle = 37.0;
+	private double sin = Math.sin(Math.toRadians(37.0));
+	private double cos = Math.cos(Math.toRadians(37.0));
+
+	private Vector reset() {
+		vector.set(x, y);
+		return vector;
+	}
+
+	@Benchmark
+	public double getMagnitude() {
+		return reset().getMagnitude();
+	}
+
+	@Benchmark
+	public double getAngle() {
+		return reset().getAngle();
+	}
+
+	@Benchmark
+	public Vector setMagnitude() {
+		reset().setMagnitude(0.5);
+		return vector;
+	}
+
+	@Benchmark
+	public Vector scaleMagnitude() {
+		reset().scaleMagnitude(0.5);
+		return vector;
+	}
+
+	@Benchmark
+	public Vector setAngle() {
+		reset().setAngle(angle);
+		return vector;
+	}
+
+	@Benchmark
+	public Vector pushAngle() {
+		reset().pushAngle(angle);
+		return vector;
+	}
+
+	@Benchmark
+	public Vector2 rotatePrecomputed() {
+		return vector2.set(x, y).rotate(sin, cos);
+	}
+
+	@Benchmark
+	public Vector2 clampMagnitude() {
+		return vector2.set(x * 2.0, y * 2.0).clampMagnitude(1.0);
+	}
+
+	@Benchmark
+	public Vector allocateVector() {
+		return new Vector(x, y);
+	}
+}
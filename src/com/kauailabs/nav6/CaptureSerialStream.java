@@ -0,0 +1,222 @@
+package com.kauailabs.nav6;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Passes everything through to another SerialStream and records every read and
+ * write with its timestamp, so a match can be replayed later with ReplaySerialStream.
+ *
+ * The IMU thread only copies each read or write into one of RECORD_COUNT
+ * preallocated records and queues it, a low priority writer thread does the
+ * file writes and flushes at most once a second, so slow flash never delays
+ * serial decoding. If the writer falls behind and no record is free the data is
+ * dropped from the capture and counted. If the file cannot be written capture
+ * stops with a warning and the stream keeps working.
+ * @author afiolmahon
+ */
+public class CaptureSerialStream implements SerialStream {
+
+    private static final long FLUSH_PERIOD_NANOS = 1000000000L;
+    private static final int BUFFER_SIZE = 16384;
+    private static final int RECORD_COUNT = 64; // over half a second of reads at the nav6's 100 Hz
+    private static final int RECORD_LENGTH = 256; // longer reads and writes are split across records
+
+    private static final class Record {
+        byte direction;
+        double timestamp;
+        int length;
+        final byte[] data = new byte[RECORD_LENGTH];
+    }
+
+    private final SerialStream source;
+    private final BlockingQueue<Record> free = new ArrayBlockingQueue<Record>(RECORD_COUNT);
+    private final BlockingQueue<Record> pending = new ArrayBlockingQueue<Record>(RECORD_COUNT);
+    private final Thread writer;
+    private volatile DataOutputStream output;
+    private volatile boolean closing = false;
+    private volatile int dropped_record_count = 0;
+
+    public CaptureSerialStream(SerialStream source, File file) {
+        this.source = source;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+            output.writeInt(SerialCapture.MAGIC);
+            output.writeInt(SerialCapture.VERSION);
+            System.out.println("[nav6] Capturing serial data to " + file);
+        } catch (IOException ex) {
+            System.out.println("[nav6] Could not open serial capture " + file + ": " + ex.getMessage());
+            output = null;
+        }
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            free.add(new Record());
+        }
+        writer = new Thread(this::writeRecords, "nav6 capture");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+
+    public void reset() {
+        source.reset();
+    }
+
+    public void flush() {
+        source.flush();
+    }
+
+    public void setReadBufferSize(int size) {
+        source.setReadBufferSize(size);
+    }
+
+    public void setTimeout(double timeout) {
+        source.setTimeout(timeout);
+    }
+
+    public void enableTermination(char terminator) {
+        source.enableTermination(terminator);
+    }
+
+    public int getBytesReceived() {
+        return source.getBytesReceived();
+    }
+
+    public byte[] read(int count) {
+        byte[] data = source.read(count);
+        if (data.length > 0) {
+            record(SerialCapture.DIRECTION_READ, data, data.length);
+        }
+        return data;
+    }
+
+    public int read(ByteBuffer buffer) {
+        int start = buffer.position();
+        int bytes_read = source.read(buffer);
+        if (bytes_read > 0) {
+            record(SerialCapture.DIRECTION_READ, buffer, start, bytes_read);
+        }
+        return bytes_read;
+    }
+
+    public int write(byte[] buffer, int count) {
+        record(SerialCapture.DIRECTION_WRITE, buffer, count);
+        return source.write(buffer, count);
+    }
+
+    public double getTimestamp() {
+        return source.getTimestamp();
+    }
+
+    /**
+     * @return reads and writes left out of the capture because the writer thread fell behind
+     */
+    public int getDroppedRecordCount() {
+        return dropped_record_count;
+    }
+
+    /**
+     * Write everything queued, then close the capture file, the stream keeps passing data through
+     */
+    public void close() {
+        closing = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void record(byte direction, byte[] data, int length) {
+        if (output == null) {
+            return;
+        }
+        double timestamp = source.getTimestamp();
+        for (int offset = 0; offset < length; offset += RECORD_LENGTH) {
+            Record record = take(direction, timestamp);
+            if (record == null) {
+                return;
+            }
+            record.length = Math.min(RECORD_LENGTH, length - offset);
+            System.arraycopy(data, offset, record.data, 0, record.length);
+            pending.add(record);
+        }
+    }
+
+    private void record(byte direction, ByteBuffer data, int offset, int length) {
+        if (output == null) {
+            return;
+        }
+        double timestamp = source.getTimestamp();
+        for (int end = offset + length; offset < end; offset += RECORD_LENGTH) {
+            Record record = take(direction, timestamp);
+            if (record == null) {
+                return;
+            }
+            record.length = Math.min(RECORD_LENGTH, end - offset);
+            for (int i = 0; i < record.length; i++) {
+                record.data[i] = data.get(offset + i); // absolute gets, the caller's buffer position is left alone
+            }
+            pending.add(record);
+        }
+    }
+
+    /**
+     * @return a free record, or null if the writer has fallen behind
+     */
+    private Record take(byte direction, double timestamp) {
+        Record record = free.poll();
+        if (record == null) {
+            dropped_record_count++;
+            if (dropped_record_count == 1) {
+                System.out.println("[nav6] Serial capture is falling behind, data is being dropped from the capture");
+            }
+            return null;
+        }
+        record.direction = direction;
+        record.timestamp = timestamp;
+        return record;
+    }
+
+    private void writeRecords() {
+        DataOutputStream out = output;
+        long last_flush = System.nanoTime();
+        while (out != null) {
+            Record record;
+            try {
+                record = closing ? pending.poll() : pending.take();
+            } catch (InterruptedException ex) {
+                continue; // close was called, write what is left
+            }
+            try {
+                if (record == null) {
+                    out.close();
+                    break;
+                }
+                out.writeByte(record.direction);
+                out.writeDouble(record.timestamp);
+                out.writeInt(record.length);
+                out.write(record.data, 0, record.length);
+                free.add(record);
+                if (System.nanoTime() - last_flush >= FLUSH_PERIOD_NANOS) {
+                    out.flush();
+                    last_flush = System.nanoTime();
+                }
+            } catch (IOException ex) {
+                System.out.println("[nav6] Serial capture stopped: " + ex.getMessage());
+                try {
+                    out.close();
+                } catch (IOException ex2) {
+                }
+                break;
+            }
+        }
+        output = null;
+    }
+}
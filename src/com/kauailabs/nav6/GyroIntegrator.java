@@ -0,0 +1,141 @@
+package com.kauailabs.nav6;
+
+/**
+ * Integrates the nav6 raw z axis gyro rate into a yaw angle.
+ *
+ * The gyro bias is learned two ways. While the robot is still, i.e. the raw rate
+ * has stayed within still_rate of the current bias for still_time, the bias is
+ * filtered towards the raw rate. A steady turn is not still even though its rate
+ * does not change. When the integrated yaw is checked against a reference yaw
+ * (the fused yaw from quaternion packets), the drift since the previous reference
+ * is turned into a bias correction, which also works while moving and is what
+ * learns a bias larger than still_rate.
+ * Angles are in degrees from -180 to 180, rates in degrees per second, clockwise positive.
+ * @author afiolmahon
+ */
+public class GyroIntegrator {
+
+    private final double still_rate;
+    private final double still_time;
+    private final double bias_gain;
+    private final double drift_gain;
+
+    private double yaw = 0;
+    private double rate = 0;
+    private double bias = 0;
+    private double discrepancy = 0;
+    private double last_timestamp = 0;
+    private double still_since = 0;
+    private double reference_timestamp = 0;
+    private boolean initialized = false;
+
+    /**
+     * @param still_rate largest difference in degrees per second between the raw rate and the bias that counts as not moving
+     * @param still_time seconds the rate has to stay within still_rate before the bias is updated
+     * @param bias_gain fraction of the difference between raw rate and bias removed per still sample
+     * @param drift_gain fraction of the drift rate found by correct that is added to the bias
+     */
+    public GyroIntegrator(double still_rate, double still_time, double bias_gain, double drift_gain) {
+        this.still_rate = still_rate;
+        this.still_time = still_time;
+        this.bias_gain = bias_gain;
+        this.drift_gain = drift_gain;
+    }
+
+    /**
+     * Add a gyro sample, timestamps must be increasing
+     * @param timestamp seconds
+     * @param raw_rate rate measured by the gyro in degrees per second, clockwise positive
+     */
+    public void update(double timestamp, double raw_rate) {
+        if (!initialized) {
+            still_since = timestamp;
+        }
+        if (Math.abs(raw_rate - bias) >= still_rate) {
+            still_since = timestamp;
+        } else if (timestamp - still_since >= still_time) {
+            bias += (raw_rate - bias) * bias_gain;
+        }
+        double corrected_rate = raw_rate - bias;
+        if (initialized && timestamp > last_timestamp) {
+            yaw = wrap(yaw + (rate + corrected_rate) / 2.0 * (timestamp - last_timestamp));
+        }
+        rate = corrected_rate;
+        last_timestamp = timestamp;
+        initialized = true;
+    }
+
+    /**
+     * Compare the integrated yaw with a reference yaw and move towards it.
+     * The difference is kept as the discrepancy of the latest check, and the
+     * drift rate since the previous reference corrects the bias.
+     * @param timestamp seconds at which reference was measured, the integrated yaw is extrapolated to it
+     * @param reference_yaw degrees
+     * @param weight from 0 to keep the integrated yaw to 1 to replace it with the reference
+     */
+    public void correct(double timestamp, double reference_yaw, double weight) {
+        if (!initialized) {
+            setYaw(timestamp, reference_yaw);
+            return;
+        }
+        double predicted = yaw + rate * Math.max(0.0, timestamp - last_timestamp);
+        discrepancy = wrap(reference_yaw - predicted);
+        yaw = wrap(predicted + discrepancy * weight);
+        if (reference_timestamp > 0 && timestamp > reference_timestamp) {
+            bias -= discrepancy / (timestamp - reference_timestamp) * drift_gain;
+        }
+        reference_timestamp = timestamp;
+        last_timestamp = Math.max(timestamp, last_timestamp);
+    }
+
+    /**
+     * Replace the integrated yaw, e.g. with the fused yaw when the gyro stream restarts
+     */
+    public void setYaw(double timestamp, double new_yaw) {
+        yaw = wrap(new_yaw);
+        reference_timestamp = timestamp;
+        if (!initialized) {
+            still_since = timestamp;
+            initialized = true;
+        }
+        last_timestamp = Math.max(timestamp, last_timestamp);
+    }
+
+    public double getYaw() {
+        return yaw;
+    }
+
+    /**
+     * @return bias corrected rate of the latest sample
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public double getBias() {
+        return bias;
+    }
+
+    /**
+     * @return reference minus integrated yaw at the latest call to correct
+     */
+    public double getDiscrepancy() {
+        return discrepancy;
+    }
+
+    public double getLastTimestamp() {
+        return last_timestamp;
+    }
+
+    /**
+     * @param timestamp seconds
+     * @return true if the raw rate has stayed within still_rate of the bias for still_time
+     */
+    public boolean isStill(double timestamp) {
+        return initialized && timestamp - still_since >= still_time;
+    }
+
+    private static double wrap(double angle) {
+        return angle - 360.0 * Math.floor((angle + 180.0) / 360.0);
+    }
+}
@@ -0,0 +1,139 @@
+package com.kauailabs.nav6;
+
+/**
+ * Fixed size history of timestamped headings, so that a measurement taken in the
+ * past (e.g. a camera frame) can be paired with the heading at the time it was taken.
+ *
+ * Entries are kept in primitive arrays used as a ring buffer and queries interpolate
+ * between the two entries around the requested time, nothing is allocated after
+ * construction. Headings are in degrees from -180 to 180 and interpolation takes
+ * the short way across the wrap.
+ * @author afiolmahon
+ */
+public class HeadingHistory {
+
+    private final double[] timestamp;
+    private final double[] heading;
+    private final double[] rate;
+    private final int capacity;
+    private final double max_extrapolation;
+
+    private int newest = -1; // index of the newest entry
+    private int size = 0;
+
+    /**
+     * @param capacity number of entries kept, e.g. one second at the IMU update rate
+     * @param max_extrapolation seconds past the newest entry that headingAt predicts using the newest rate
+     */
+    public HeadingHistory(int capacity, double max_extrapolation) {
+        this.capacity = capacity;
+        this.max_extrapolation = max_extrapolation;
+        timestamp = new double[capacity];
+        heading = new double[capacity];
+        rate = new double[capacity];
+    }
+
+    /**
+     * Add a heading, timestamps must be increasing
+     * @param time seconds
+     * @param current_heading degrees
+     */
+    public synchronized void add(double time, double current_heading) {
+        double current_rate = 0;
+        if (size > 0 && time > timestamp[newest]) {
+            current_rate = wrap(current_heading - heading[newest]) / (time - timestamp[newest]);
+        } else if (size > 0) {
+            return; // out of order or repeated timestamp
+        }
+        newest = (newest + 1) % capacity;
+        timestamp[newest] = time;
+        heading[newest] = current_heading;
+        rate[newest] = current_rate;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    /**
+     * @param time seconds
+     * @return heading at time in degrees, clamped to the oldest entry and extrapolated a short way past the newest, 0 if empty
+     */
+    public synchronized double headingAt(double time) {
+        if (size == 0) {
+            return 0;
+        }
+        if (time >= timestamp[newest]) {
+            double extrapolation = Math.min(time - timestamp[newest], max_extrapolation);
+            return wrap(heading[newest] + rate[newest] * extrapolation);
+        }
+        int after = findAfter(time);
+        if (after < 0) {
+            return heading[oldest()];
+        }
+        int before = (after + capacity - 1) % capacity;
+        double fraction = (time - timestamp[before]) / (timestamp[after] - timestamp[before]);
+        return wrap(heading[before] + wrap(heading[after] - heading[before]) * fraction);
+    }
+
+    /**
+     * @param time seconds
+     * @return rate of heading change at time in degrees per second, 0 if empty
+     */
+    public synchronized double rateAt(double time) {
+        if (size == 0) {
+            return 0;
+        }
+        if (time >= timestamp[newest]) {
+            return rate[newest];
+        }
+        int after = findAfter(time);
+        return (after < 0) ? rate[oldest()] : rate[after];
+    }
+
+    public synchronized double getNewestTimestamp() {
+        return (size > 0) ? timestamp[newest] : 0;
+    }
+
+    public synchronized double getOldestTimestamp() {
+        return (size > 0) ? timestamp[oldest()] : 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        newest = -1;
+        size = 0;
+    }
+
+    private int oldest() {
+        return (newest - size + 1 + capacity) % capacity;
+    }
+
+    /**
+     * Binary search for the oldest entry newer than time, time must be before the newest entry
+     * @return index of the entry, or -1 if time is at or before the oldest entry
+     */
+    private int findAfter(double time) {
+        int oldest = oldest();
+        if (time <= timestamp[oldest]) {
+            return -1;
+        }
+        int low = 1; // position counted from the oldest entry
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamp[(oldest + middle) % capacity] > time) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return (oldest + low) % capacity;
+    }
+
+    private static double wrap(double angle) {
+        return angle - 360.0 * Math.floor((angle + 180.0) / 360.0);
+    }
+}
@@ -23,6 +23,8 @@
  */
 package com.kauailabs.nav6;
 
+import java.nio.ByteBuffer;
+
 public class IMUProtocol {
 
     public final static byte PACKET_START_CHAR = '!';
@@ -188,7 +190,7 @@ public class IMUProtocol {
             return 0;
         }
         if ((buffer[offset+0] == PACKET_START_CHAR) && (buffer[offset+1] == MSG_ID_STREAM_RESPONSE)) {
-            if (!verifyChecksum(buffer, offset+STREAM_RESPONSE_CHECKSUM_INDEX)) {
+            if (!verifyChecksum(buffer, offset, STREAM_RESPONSE_CHECKSUM_INDEX)) {
                 return 0;
             }
 
@@ -213,7 +215,7 @@ public class IMUProtocol {
             return 0;
         }
         if ((buffer[offset+0] == '!') && (buffer[offset+1] == MSGID_STREAM_CMD)) {
-            if (!verifyChecksum(buffer, offset+STREAM_CMD_CHECKSUM_INDEX)) {
+            if (!verifyChecksum(buffer, offset, STREAM_CMD_CHECKSUM_INDEX)) {
                 return 0;
             }
 
@@ -228,7 +230,7 @@ public class IMUProtocol {
             return 0;
         }
         if ((buffer[offset+0] == '!') && (buffer[offset+1] == 'y')) {
-            if (!verifyChecksum(buffer, offset+YPR_UPDATE_CHECKSUM_INDEX)) {
+            if (!verifyChecksum(buffer, offset, YPR_UPDATE_CHECKSUM_INDEX)) {
                 return 0;
             }
 
@@ -247,7 +249,7 @@ public class IMUProtocol {
             return 0;
         }
         if ((buffer[offset+0] == PACKET_START_CHAR) && (buffer[offset+1] == MSGID_QUATERNION_UPDATE)) {
-            if (!verifyChecksum(buffer, offset+QUATERNION_UPDATE_CHECKSUM_INDEX)) {
+            if (!verifyChecksum(buffer, offset, QUATERNION_UPDATE_CHECKSUM_INDEX)) {
                 return 0;
             }
 
@@ -273,7 +275,7 @@ public class IMUProtocol {
             return 0;
         }
         if ((buffer[offset+0] == PACKET_START_CHAR) && (buffer[offset+1] == MSGID_GYRO_UPDATE)) {
-            if (!verifyChecksum(buffer, offset+GYRO_UPDATE_CHECKSUM_INDEX)) {
+            if (!verifyChecksum(buffer, offset, GYRO_UPDATE_CHECKSUM_INDEX)) {
                 return 0;
             }
 
@@ -286,7 +288,8 @@ public class IMUProtocol {
             u.mag_x = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_MAG_X_VALUE_INDEX);
             u.mag_y = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_MAG_Y_VALUE_INDEX);
             u.mag_z = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_MAG_Z_VALUE_INDEX);
-            u.temp_c = decodeProtocolFloat(buffer, offset+GYRO_UPDATE_TEMP_VALUE_INDEX);
+            // temperature is four hex digits here, a float would run into the checksum
+            u.temp_c = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_TEMP_VALUE_INDEX);
             return GYRO_UPDATE_MESSAGE_LENGTH;
         }
         return 0;
@@ -320,39 +323,321 @@ public class IMUProtocol {
         dest[offset + 1] = hexArray[v & 0x0F];
     }
 
+    // Value of every byte as a hex digit, matches the old arithmetic ('0'-'9' and 'A'-'F') for every input so bad bytes still decode the same
+    final static byte[] hexValue = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            byte c = (byte) i;
+            hexValue[i] = (byte) (c <= '9' ? c - '0' : ((c - 'A') + 10));
+        }
+    }
+
     public static short decodeProtocolUint16(byte[] uint16_string, int offset) {
-        short decoded_uint16 = 0;
-        int shift_left = 12;
-        for (int i = offset + 0; i < offset + 4; i++) {
-            byte digit = (byte) (uint16_string[i] <= '9' ? uint16_string[i] - '0' : ((uint16_string[i] - 'A') + 10));
-            decoded_uint16 += (((short) digit) << shift_left);
-            shift_left -= 4;
-        }
-        return decoded_uint16;
+        return (short) ((hexValue[uint16_string[offset + 0] & 0xFF] << 12)
+                + (hexValue[uint16_string[offset + 1] & 0xFF] << 8)
+                + (hexValue[uint16_string[offset + 2] & 0xFF] << 4)
+                + hexValue[uint16_string[offset + 3] & 0xFF]);
     }
 
     public static boolean verifyChecksum(byte[] buffer, int content_length) {
+        return verifyChecksum(buffer, 0, content_length);
+    }
+
+    /**
+     * @param offset index of the packet start character
+     * @param content_length bytes covered by the checksum, which immediately follows them
+     */
+    public static boolean verifyChecksum(byte[] buffer, int offset, int content_length) {
         // Calculate Checksum
         byte checksum = 0;
-        for (int i = 0; i < content_length; i++) {
+        for (int i = offset; i < offset + content_length; i++) {
             checksum += buffer[i];
         }
 
         // Decode Checksum
-        byte decoded_checksum = decodeUint8(buffer, content_length);
+        byte decoded_checksum = decodeUint8(buffer, offset + content_length);
 
         return (checksum == decoded_checksum);
     }
 
     public static byte decodeUint8(byte[] checksum, int offset) {
-        byte first_digit = (byte) (checksum[0 + offset] <= '9' ? checksum[0 + offset] - '0' : ((checksum[0 + offset] - 'A') + 10));
-        byte second_digit = (byte) (checksum[1 + offset] <= '9' ? checksum[1 + offset] - '0' : ((checksum[1 + offset] - 'A') + 10));
-        byte decoded_checksum = (byte) ((first_digit * 16) + second_digit);
-        return decoded_checksum;
+        return (byte) ((hexValue[checksum[0 + offset] & 0xFF] * 16) + hexValue[checksum[1 + offset] & 0xFF]);
     }
 
+    // Powers of ten that are exact as floats, a decimal point can only be followed by up to 6 digits in a 7 character field
+    final static float[] pow10 = new float[]{1f, 10f, 100f, 1000f, 10000f, 100000f, 1000000f};
+
+    /**
+     * Parse a 7 character decimal such as "-012.34" without allocating.
+     * The digits are read into an integer below 10^7, which a float holds exactly,
+     * and divided once by an exact power of ten, so the result is correctly rounded
+     * and identical to Float.parseFloat. Anything other than optional blanks, a sign,
+     * digits and one decimal point falls back to Float.parseFloat.
+     */
     public static float decodeProtocolFloat(byte[] buffer, int offset) {
+        int i = offset;
+        int end = offset + PROTOCOL_FLOAT_LENGTH;
+        while (i < end && buffer[i] <= ' ' && buffer[i] >= 0) {
+            i++;
+        }
+        while (end > i && buffer[end - 1] <= ' ' && buffer[end - 1] >= 0) {
+            end--;
+        }
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = (buffer[i] == '-');
+            i++;
+        }
+        int mantissa = 0;
+        int digits = 0;
+        int decimal_places = -1;
+        for (; i < end; i++) {
+            byte c = buffer[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (decimal_places >= 0) {
+                    decimal_places++;
+                }
+            } else if (c == '.' && decimal_places < 0) {
+                decimal_places = 0;
+            } else {
+                return parseProtocolFloat(buffer, offset);
+            }
+        }
+        if (digits == 0) {
+            return parseProtocolFloat(buffer, offset);
+        }
+        float value = (decimal_places > 0) ? (float) mantissa / pow10[decimal_places] : (float) mantissa;
+        return negative ? -value : value;
+    }
+
+    static float parseProtocolFloat(byte[] buffer, int offset) {
         String float_string = new String(buffer, offset, PROTOCOL_FLOAT_LENGTH);
         return Float.parseFloat(float_string);
     }
+
+    // ByteBuffer versions of the decoders, for decoding straight from a direct buffer filled
+    // by the serial port. Offsets are absolute, the buffer position and limit are not used.
+
+    public static int decodeStreamResponse(ByteBuffer buffer, int offset, int length, StreamResponse r) {
+        
+        if (length < STREAM_RESPONSE_MESSAGE_LENGTH) {
+            return 0;
+        }
+        if ((buffer.get(offset+0) == PACKET_START_CHAR) && (buffer.get(offset+1) == MSG_ID_STREAM_RESPONSE)) {
+            if (!verifyChecksum(buffer, offset, STREAM_RESPONSE_CHECKSUM_INDEX)) {
+                return 0;
+            }
+
+            r.stream_type = buffer.get(offset+2);
+            r.gyro_fsr_dps = decodeProtocolUint16(buffer, offset+STREAM_RESPONSE_GYRO_FULL_SCALE_DPS_RANGE);
+            r.accel_fsr_g = decodeProtocolUint16(buffer, offset+STREAM_RESPONSE_ACCEL_FULL_SCALE_G_RANGE);
+            r.update_rate_hz = decodeProtocolUint16(buffer, offset+STREAM_RESPONSE_UPDATE_RATE_HZ);
+            r.yaw_offset_degrees = decodeProtocolFloat(buffer, offset+STREAM_RESPONSE_YAW_OFFSET_DEGREES);
+            r.q1_offset = decodeProtocolUint16(buffer, offset+STREAM_RESPONSE_QUAT1_OFFSET);
+            r.q2_offset = decodeProtocolUint16(buffer, offset+STREAM_RESPONSE_QUAT2_OFFSET);
+            r.q3_offset = decodeProtocolUint16(buffer, offset+STREAM_RESPONSE_QUAT3_OFFSET);
+            r.q4_offset = decodeProtocolUint16(buffer, offset+STREAM_RESPONSE_QUAT4_OFFSET);
+            r.flags = decodeProtocolUint16(buffer, offset+STREAM_RESPONSE_FLAGS);
+
+            return STREAM_RESPONSE_MESSAGE_LENGTH;
+        }
+        return 0;
+    }
+
+    public static int decodeStreamCommand(ByteBuffer buffer, int offset, int length, StreamCommand c) {
+        if (length < STREAM_CMD_MESSAGE_LENGTH) {
+            return 0;
+        }
+        if ((buffer.get(offset+0) == '!') && (buffer.get(offset+1) == MSGID_STREAM_CMD)) {
+            if (!verifyChecksum(buffer, offset, STREAM_CMD_CHECKSUM_INDEX)) {
+                return 0;
+            }
+
+            c.stream_type = buffer.get(offset+STREAM_CMD_STREAM_TYPE_INDEX);
+            return STREAM_CMD_MESSAGE_LENGTH;
+        }
+        return 0;
+    }
+
+    public static int decodeYPRUpdate(ByteBuffer buffer, int offset, int length, YPRUpdate u) {
+        if (length < YPR_UPDATE_MESSAGE_LENGTH) {
+            return 0;
+        }
+        if ((buffer.get(offset+0) == '!') && (buffer.get(offset+1) == 'y')) {
+            if (!verifyChecksum(buffer, offset, YPR_UPDATE_CHECKSUM_INDEX)) {
+                return 0;
+            }
+
+            u.yaw = decodeProtocolFloat(buffer, offset+YPR_UPDATE_YAW_VALUE_INDEX);
+            u.pitch = decodeProtocolFloat(buffer, offset+YPR_UPDATE_PITCH_VALUE_INDEX);
+            u.roll = decodeProtocolFloat(buffer, offset+YPR_UPDATE_ROLL_VALUE_INDEX);
+            u.compass_heading = decodeProtocolFloat(buffer, offset+YPR_UPDATE_COMPASS_VALUE_INDEX);
+            return YPR_UPDATE_MESSAGE_LENGTH;
+        }
+        return 0;
+    }
+
+    public static int decodeQuaternionUpdate(ByteBuffer buffer, int offset, int length,
+            QuaternionUpdate u) {
+        if (length < QUATERNION_UPDATE_MESSAGE_LENGTH) {
+            return 0;
+        }
+        if ((buffer.get(offset+0) == PACKET_START_CHAR) && (buffer.get(offset+1) == MSGID_QUATERNION_UPDATE)) {
+            if (!verifyChecksum(buffer, offset, QUATERNION_UPDATE_CHECKSUM_INDEX)) {
+                return 0;
+            }
+
+            u.q1 = decodeProtocolUint16(buffer, offset+QUATERNION_UPDATE_QUAT1_VALUE_INDEX);
+            u.q2 = decodeProtocolUint16(buffer, offset+QUATERNION_UPDATE_QUAT2_VALUE_INDEX);
+            u.q3 = decodeProtocolUint16(buffer, offset+QUATERNION_UPDATE_QUAT3_VALUE_INDEX);
+            u.q4 = decodeProtocolUint16(buffer, offset+QUATERNION_UPDATE_QUAT4_VALUE_INDEX);
+            u.accel_x = decodeProtocolUint16(buffer, offset+QUATERNION_UPDATE_ACCEL_X_VALUE_INDEX);
+            u.accel_y = decodeProtocolUint16(buffer, offset+QUATERNION_UPDATE_ACCEL_Y_VALUE_INDEX);
+            u.accel_z = decodeProtocolUint16(buffer, offset+QUATERNION_UPDATE_ACCEL_Z_VALUE_INDEX);
+            u.mag_x = decodeProtocolUint16(buffer, offset+QUATERNION_UPDATE_MAG_X_VALUE_INDEX);
+            u.mag_y = decodeProtocolUint16(buffer, offset+QUATERNION_UPDATE_MAG_Y_VALUE_INDEX);
+            u.mag_z = decodeProtocolUint16(buffer, offset+QUATERNION_UPDATE_MAG_Z_VALUE_INDEX);
+            u.temp_c = decodeProtocolFloat(buffer, offset+QUATERNION_UPDATE_TEMP_VALUE_INDEX);
+            return QUATERNION_UPDATE_MESSAGE_LENGTH;
+        }
+        return 0;
+    }
+
+    public static int decodeGyroUpdate(ByteBuffer buffer, int offset, int length,
+            GyroUpdate u) {
+        if (length < GYRO_UPDATE_MESSAGE_LENGTH) {
+            return 0;
+        }
+        if ((buffer.get(offset+0) == PACKET_START_CHAR) && (buffer.get(offset+1) == MSGID_GYRO_UPDATE)) {
+            if (!verifyChecksum(buffer, offset, GYRO_UPDATE_CHECKSUM_INDEX)) {
+                return 0;
+            }
+
+            u.gyro_x = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_GYRO_X_VALUE_INDEX);
+            u.gyro_y = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_GYRO_Y_VALUE_INDEX);
+            u.gyro_z = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_GYRO_Z_VALUE_INDEX);
+            u.accel_x = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_ACCEL_X_VALUE_INDEX);
+            u.accel_y = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_ACCEL_Y_VALUE_INDEX);
+            u.accel_z = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_ACCEL_Z_VALUE_INDEX);
+            u.mag_x = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_MAG_X_VALUE_INDEX);
+            u.mag_y = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_MAG_Y_VALUE_INDEX);
+            u.mag_z = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_MAG_Z_VALUE_INDEX);
+            // temperature is four hex digits here, a float would run into the checksum
+            u.temp_c = decodeProtocolUint16(buffer, offset+GYRO_UPDATE_TEMP_VALUE_INDEX);
+            return GYRO_UPDATE_MESSAGE_LENGTH;
+        }
+        return 0;
+    }
+
+    // Returns true if the bytes at offset are a packet of a known type, terminated where
+    // that type ends, whose checksum does not match. A stray start character in line
+    // noise is not terminated at the right place, so it is not counted.
+
+    public static boolean isChecksumMismatch(ByteBuffer buffer, int offset, int length) {
+        if (length < 2 || buffer.get(offset+0) != PACKET_START_CHAR) {
+            return false;
+        }
+        int message_length;
+        int checksum_index;
+        switch (buffer.get(offset+1)) {
+            case MSGID_YPR_UPDATE:
+                message_length = YPR_UPDATE_MESSAGE_LENGTH;
+                checksum_index = YPR_UPDATE_CHECKSUM_INDEX;
+                break;
+            case MSGID_QUATERNION_UPDATE:
+                message_length = QUATERNION_UPDATE_MESSAGE_LENGTH;
+                checksum_index = QUATERNION_UPDATE_CHECKSUM_INDEX;
+                break;
+            case MSGID_GYRO_UPDATE:
+                message_length = GYRO_UPDATE_MESSAGE_LENGTH;
+                checksum_index = GYRO_UPDATE_CHECKSUM_INDEX;
+                break;
+            case MSG_ID_STREAM_RESPONSE:
+                message_length = STREAM_RESPONSE_MESSAGE_LENGTH;
+                checksum_index = STREAM_RESPONSE_CHECKSUM_INDEX;
+                break;
+            case MSGID_STREAM_CMD:
+                message_length = STREAM_CMD_MESSAGE_LENGTH;
+                checksum_index = STREAM_CMD_CHECKSUM_INDEX;
+                break;
+            default:
+                return false;
+        }
+        return length >= message_length
+                && buffer.get(offset + message_length - 1) == STREAM_MSG_TERMINATION_CHAR
+                && !verifyChecksum(buffer, offset, checksum_index);
+    }
+
+    public static short decodeProtocolUint16(ByteBuffer uint16_string, int offset) {
+        return (short) ((hexValue[uint16_string.get(offset + 0) & 0xFF] << 12)
+                + (hexValue[uint16_string.get(offset + 1) & 0xFF] << 8)
+                + (hexValue[uint16_string.get(offset + 2) & 0xFF] << 4)
+                + hexValue[uint16_string.get(offset + 3) & 0xFF]);
+    }
+
+    public static boolean verifyChecksum(ByteBuffer buffer, int offset, int content_length) {
+        // Calculate Checksum
+        byte checksum = 0;
+        for (int i = offset; i < offset + content_length; i++) {
+            checksum += buffer.get(i);
+        }
+
+        // Decode Checksum
+        byte decoded_checksum = decodeUint8(buffer, offset + content_length);
+
+        return (checksum == decoded_checksum);
+    }
+
+    public static byte decodeUint8(ByteBuffer checksum, int offset) {
+        return (byte) ((hexValue[checksum.get(0 + offset) & 0xFF] * 16) + hexValue[checksum.get(1 + offset) & 0xFF]);
+    }
+
+    public static float decodeProtocolFloat(ByteBuffer buffer, int offset) {
+        int i = offset;
+        int end = offset + PROTOCOL_FLOAT_LENGTH;
+        while (i < end && buffer.get(i) <= ' ' && buffer.get(i) >= 0) {
+            i++;
+        }
+        while (end > i && buffer.get(end - 1) <= ' ' && buffer.get(end - 1) >= 0) {
+            end--;
+        }
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = (buffer.get(i) == '-');
+            i++;
+        }
+        int mantissa = 0;
+        int digits = 0;
+        int decimal_places = -1;
+        for (; i < end; i++) {
+            byte c = buffer.get(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (decimal_places >= 0) {
+                    decimal_places++;
+                }
+            } else if (c == '.' && decimal_places < 0) {
+                decimal_places = 0;
+            } else {
+                return parseProtocolFloat(buffer, offset);
+            }
+        }
+        if (digits == 0) {
+            return parseProtocolFloat(buffer, offset);
+        }
+        float value = (decimal_places > 0) ? (float) mantissa / pow10[decimal_places] : (float) mantissa;
+        return negative ? -value : value;
+    }
+
+    static float parseProtocolFloat(ByteBuffer buffer, int offset) {
+        byte[] float_bytes = new byte[PROTOCOL_FLOAT_LENGTH];
+        for (int i = 0; i < PROTOCOL_FLOAT_LENGTH; i++) {
+            float_bytes[i] = buffer.get(offset + i);
+        }
+        return parseProtocolFloat(float_bytes, 0);
+    }
 }
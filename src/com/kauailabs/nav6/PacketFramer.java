@@ -0,0 +1,190 @@
+package com.kauailabs.nav6;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Collects bytes from the nav6 serial stream and hands complete packets to a decoder.
+ *
+ * Bytes are kept in a direct ByteBuffer that the serial stream reads into, and packets
+ * are decoded in place, so received bytes are never copied into an array. Unread bytes
+ * always start at index 0: after decoding, a trailing partial packet (shorter than the
+ * longest packet) is moved to the front and the rest of it is completed by the next read.
+ *
+ * Bytes that are not part of a decoded packet are counted as dropped, and a packet
+ * that starts with PACKET_START_CHAR and is terminated but does not decode is counted
+ * as a dropped packet, and also as a checksum failure if it is a complete packet of a known
+ * type whose checksum does not match. After a bad packet the framer resyncs on the next start character,
+ * each run of dropped bytes between good packets counts as one resync.
+ * @author afiolmahon
+ */
+public class PacketFramer {
+
+    public interface PacketHandler {
+        /**
+         * @param buffer bytes starting with PACKET_START_CHAR, read with absolute gets
+         * @param offset index of PACKET_START_CHAR
+         * @param length bytes available from offset
+         * @return length of the decoded packet, or 0 if the bytes are not a valid packet
+         */
+        int decodePacket(ByteBuffer buffer, int offset, int length);
+    }
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+
+    private int available = 0; // unread bytes, from index 0
+
+    private volatile int packet_count = 0;
+    private volatile int dropped_byte_count = 0;
+    private volatile int dropped_packet_count = 0;
+    private volatile int checksum_failure_count = 0;
+    private volatile int resync_count = 0;
+    private boolean resyncing = false;
+
+    /**
+     * @param capacity bytes held between reads, must be larger than IMU_PROTOCOL_MAX_MESSAGE_LENGTH
+     */
+    public PacketFramer(int capacity) {
+        if (capacity <= IMUProtocol.IMU_PROTOCOL_MAX_MESSAGE_LENGTH) {
+            throw new IllegalArgumentException("Framer capacity must be larger than the longest packet");
+        }
+        this.capacity = capacity;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Read from a serial stream straight into the buffer
+     * @param max_length most bytes to read, limited to the free space in the buffer
+     * @return bytes read
+     */
+    public int read(SerialStream stream, int max_length) {
+        buffer.limit(Math.min(capacity, available + max_length));
+        buffer.position(available);
+        int bytes_read = stream.read(buffer);
+        available += bytes_read;
+        return bytes_read;
+    }
+
+    /**
+     * Add received bytes, if the buffer is full the oldest bytes are dropped
+     */
+    public void append(byte[] data, int offset, int length) {
+        if (length > capacity) {
+            dropped_byte_count += length - capacity;
+            offset += length - capacity;
+            length = capacity;
+        }
+        int overflow = available + length - capacity;
+        if (overflow > 0) {
+            dropped_byte_count += overflow;
+            consume(overflow);
+        }
+        buffer.limit(capacity);
+        buffer.position(available);
+        buffer.put(data, offset, length);
+        available += length;
+    }
+
+    /**
+     * Decode every complete packet in the buffer, leaving a trailing partial packet for the next call
+     * @return number of packets decoded
+     */
+    public int process(PacketHandler handler) {
+        int packets = 0;
+        int index = 0;
+        while (index < available) {
+            if (buffer.get(index) != IMUProtocol.PACKET_START_CHAR) {
+                index++;
+                dropped_byte_count++;
+                startResync();
+                continue;
+            }
+            int packet_length = handler.decodePacket(buffer, index, available - index);
+            if (packet_length > 0) {
+                index += packet_length;
+                packets++;
+                packet_count++;
+                resyncing = false;
+                continue;
+            }
+            if (!isTerminated(index) && available - index < IMUProtocol.IMU_PROTOCOL_MAX_MESSAGE_LENGTH) {
+                break; // wait for the rest of the packet
+            }
+            // terminated or too long to be a packet, so it is corrupt; resync on the next start character
+            dropped_packet_count++;
+            if (IMUProtocol.isChecksumMismatch(buffer, index, available - index)) {
+                checksum_failure_count++;
+            }
+            dropped_byte_count++;
+            startResync();
+            index++;
+        }
+        consume(index);
+        return packets;
+    }
+
+    /**
+     * Discard all buffered bytes, for use after the serial port has been reset
+     */
+    public void clear() {
+        dropped_byte_count += available;
+        available = 0;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public int getPacketCount() {
+        return packet_count;
+    }
+
+    public int getDroppedByteCount() {
+        return dropped_byte_count;
+    }
+
+    public int getDroppedPacketCount() {
+        return dropped_packet_count;
+    }
+
+    public int getChecksumFailureCount() {
+        return checksum_failure_count;
+    }
+
+    public int getResyncCount() {
+        return resync_count;
+    }
+
+    /**
+     * @return true if a message terminator follows the start character at index within the longest packet length
+     */
+    private boolean isTerminated(int index) {
+        int end = index + Math.min(available - index, IMUProtocol.IMU_PROTOCOL_MAX_MESSAGE_LENGTH);
+        for (int i = index + 1; i < end; i++) {
+            if (buffer.get(i) == IMUProtocol.STREAM_MSG_TERMINATION_CHAR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void startResync() {
+        if (!resyncing) {
+            resyncing = true;
+            resync_count++;
+        }
+    }
+
+    /**
+     * Remove count bytes from the front, moving the rest to index 0
+     */
+    private void consume(int count) {
+        if (count == 0) {
+            return;
+        }
+        buffer.limit(available);
+        buffer.position(count);
+        buffer.compact();
+        available -= count;
+    }
+}
@@ -0,0 +1,90 @@
+package com.kauailabs.nav6;
+
+/**
+ * Mutable float quaternion with in place operations, reused between updates so the IMU thread does not allocate.
+ *
+ * Multiplication is defined by:
+ *     (Q1 * Q2).w = (w1w2 - x1x2 - y1y2 - z1z2)
+ *     (Q1 * Q2).x = (w1x2 + x1w2 + y1z2 - z1y2)
+ *     (Q1 * Q2).y = (w1y2 - x1z2 + y1w2 + z1x2)
+ *     (Q1 * Q2).z = (w1z2 + x1y2 - y1x2 + z1w2)
+ * @author afiolmahon
+ */
+public class Quaternion {
+
+    public float w;
+    public float x;
+    public float y;
+    public float z;
+
+    public Quaternion() {
+        w = 1;
+    }
+
+    public Quaternion set(float w, float x, float y, float z) {
+        this.w = w;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public Quaternion set(Quaternion other) {
+        return set(other.w, other.x, other.y, other.z);
+    }
+
+    /**
+     * this = this * other
+     */
+    public Quaternion multiply(Quaternion other) {
+        return multiply(other.w, other.x, other.y, other.z);
+    }
+
+    /**
+     * this = this * (w, x, y, z)
+     */
+    public Quaternion multiply(float w2, float x2, float y2, float z2) {
+        float w1 = w;
+        float x1 = x;
+        float y1 = y;
+        float z1 = z;
+        w = w1*w2 - x1*x2 - y1*y2 - z1*z2;
+        x = w1*x2 + x1*w2 + y1*z2 - z1*y2;
+        y = w1*y2 - x1*z2 + y1*w2 + z1*x2;
+        z = w1*z2 + x1*y2 - y1*x2 + z1*w2;
+        return this;
+    }
+
+    public Quaternion conjugate() {
+        x = -x;
+        y = -y;
+        z = -z;
+        return this;
+    }
+
+    /**
+     * Rotate a vector by this quaternion, v = q * (0, v) * conj(q)
+     * @param v rotated in place
+     * @return v
+     */
+    public Vector3 rotate(Vector3 v) {
+        // q * (0, v)
+        float pw = w*0 - x*v.x - y*v.y - z*v.z;
+        float px = w*v.x + x*0 + y*v.z - z*v.y;
+        float py = w*v.y - x*v.z + y*0 + z*v.x;
+        float pz = w*v.z + x*v.y - y*v.x + z*0;
+        // * conj(q)
+        float cw = w;
+        float cx = -x;
+        float cy = -y;
+        float cz = -z;
+        v.x = pw*cx + px*cw + py*cz - pz*cy;
+        v.y = pw*cy - px*cz + py*cw + pz*cx;
+        v.z = pw*cz + px*cy - py*cx + pz*cw;
+        return v;
+    }
+
+    public String toString() {
+        return "(" + w + ", " + x + ", " + y + ", " + z + ")";
+    }
+}
@@ -0,0 +1,90 @@
+package com.kauailabs.nav6;
+
+/**
+ * Converts nav6 quaternion update packets into yaw, pitch, roll, tilt compensated
+ * compass heading and linear acceleration. All intermediate values live in
+ * storage owned by this object, so processing a packet allocates nothing.
+ * Results stay valid until the next call to update.
+ * @author afiolmahon
+ */
+public class QuaternionOrientation {
+
+    /** Orientation of the nav6 board */
+    public final Quaternion q = new Quaternion();
+    /** Direction of gravity in the board frame, in g */
+    public final Vector3 gravity = new Vector3();
+    /** Acceleration with gravity removed along the board axes, in g */
+    public final Vector3 linear_accel = new Vector3();
+    /** Linear acceleration rotated into the world frame, in g */
+    public final Vector3 world_linear_accel = new Vector3();
+
+    public float yaw_degrees;
+    public float pitch_degrees;
+    public float roll_degrees;
+    public float compass_heading_degrees;
+
+    /**
+     * @param raw_update decoded quaternion packet
+     * @param accel_fsr_g accelerometer full scale range reported by the nav6
+     * @param nav6_yaw_offset_degrees yaw offset reported by the nav6, subtracted from yaw
+     */
+    public void update(IMUProtocol.QuaternionUpdate raw_update, short accel_fsr_g, float nav6_yaw_offset_degrees) {
+        q.set(((float)raw_update.q1) / 16384.0f,
+                ((float)raw_update.q2) / 16384.0f,
+                ((float)raw_update.q3) / 16384.0f,
+                ((float)raw_update.q4) / 16384.0f);
+        // Range-check quaterions
+        if (q.w >= 2) q.w = -4 + q.w;
+        if (q.x >= 2) q.x = -4 + q.x;
+        if (q.y >= 2) q.y = -4 + q.y;
+        if (q.z >= 2) q.z = -4 + q.z;
+
+        // calculate gravity vector
+        gravity.set(2 * (q.x*q.z - q.w*q.y),
+                2 * (q.w*q.x + q.y*q.z),
+                q.w*q.w - q.x*q.x - q.y*q.y + q.z*q.z);
+
+        // calculate yaw/pitch/roll angles
+        float yaw_radians = (float) Math.atan2(2*q.x*q.y - 2*q.w*q.z, 2*q.w*q.w + 2*q.x*q.x - 1);
+        float pitch_radians = (float) Math.atan(gravity.x / Math.sqrt(gravity.y*gravity.y + gravity.z*gravity.z));
+        float roll_radians = (float) Math.atan(gravity.y / Math.sqrt(gravity.x*gravity.x + gravity.z*gravity.z));
+
+        yaw_degrees = (float) (yaw_radians * (180.0/Math.PI));
+        pitch_degrees = (float) (pitch_radians * (180.0/Math.PI));
+        roll_degrees = (float) (roll_radians * (180.0/Math.PI));
+
+        // Subtract nav6 offset, and handle potential 360 degree wrap-around
+        yaw_degrees -= nav6_yaw_offset_degrees;
+        if ( yaw_degrees < -180 ) yaw_degrees += 360;
+        if ( yaw_degrees > 180 ) yaw_degrees -= 360;
+
+        // calculate linear acceleration by
+        // removing the gravity component (+1g = +4096 in standard DMP FIFO packet)
+        linear_accel.set((float) ((((float)raw_update.accel_x) / (32768.0 / accel_fsr_g)) - gravity.x),
+                (float) ((((float)raw_update.accel_y) / (32768.0 / accel_fsr_g)) - gravity.y),
+                (float) ((((float)raw_update.accel_z) / (32768.0 / accel_fsr_g)) - gravity.z));
+
+        // Rotate linear acceleration so that it's relative to the world reference frame
+        q.rotate(world_linear_accel.set(linear_accel));
+
+        // Calculate tilt-compensated compass heading
+        float inverted_pitch = -pitch_radians;
+        float cos_roll = (float) Math.cos(roll_radians);
+        float sin_roll = (float) Math.sin(roll_radians);
+        float cos_pitch = (float) Math.cos(inverted_pitch);
+        float sin_pitch = (float) Math.sin(inverted_pitch);
+
+        float mag_x = raw_update.mag_x * cos_pitch + raw_update.mag_z * sin_pitch;
+        float mag_y = raw_update.mag_x * sin_roll * sin_pitch + raw_update.mag_y * cos_roll - raw_update.mag_z * sin_roll * cos_pitch;
+        float tilt_compensated_heading_radians = (float) Math.atan2(mag_y, mag_x);
+        compass_heading_degrees = (float) (tilt_compensated_heading_radians * (180.0 / Math.PI));
+
+        // Adjust compass for board orientation,
+        // and modify range from -180-180 to
+        // 0-360 degrees
+        compass_heading_degrees -= 90.0;
+        if ( compass_heading_degrees < 0 ) {
+            compass_heading_degrees += 360;
+        }
+    }
+}
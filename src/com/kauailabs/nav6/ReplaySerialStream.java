@@ -0,0 +1,203 @@
+package com.kauailabs.nav6;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * SerialStream that plays back a file recorded by CaptureSerialStream.
+ *
+ * In real time mode data becomes available at the same pace it was captured and
+ * reads block like a real port. Otherwise the stream keeps a virtual clock that
+ * jumps forward to each captured read as it is consumed, so a whole match replays
+ * as fast as the decoder can take it while getTimestamp still reports capture time.
+ * Data written to the stream is discarded.
+ * @author afiolmahon
+ */
+public class ReplaySerialStream implements SerialStream {
+
+    private final boolean real_time;
+    private final byte[] data;
+    private final int[] chunk_end; // index in data after the last byte of each captured read
+    private final double[] chunk_timestamp;
+    private final int chunk_count;
+
+    private int chunk = 0;
+    private int position = 0;
+    private boolean drained = false;
+    private double virtual_time;
+    private long start_nanos = -1;
+    private double timeout = 5.0;
+    private boolean termination_enabled = false;
+    private byte terminator = '\n';
+
+    /**
+     * @param file capture written by CaptureSerialStream
+     * @param real_time true to deliver data at the captured pace, false to replay as fast as possible
+     */
+    public ReplaySerialStream(File file, boolean real_time) throws IOException {
+        this.real_time = real_time;
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (input.readInt() != SerialCapture.MAGIC || input.readInt() != SerialCapture.VERSION) {
+                throw new IOException("Not a nav6 serial capture: " + file);
+            }
+            byte[] bytes = new byte[4096];
+            int[] ends = new int[256];
+            double[] timestamps = new double[256];
+            int length = 0;
+            int count = 0;
+            while (true) {
+                byte direction;
+                try {
+                    direction = input.readByte();
+                } catch (EOFException ex) {
+                    break;
+                }
+                double timestamp = input.readDouble();
+                int record_length = input.readInt();
+                if (direction != SerialCapture.DIRECTION_READ) {
+                    input.skipBytes(record_length);
+                    continue;
+                }
+                while (length + record_length > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                input.readFully(bytes, length, record_length);
+                length += record_length;
+                if (count == ends.length) {
+                    ends = Arrays.copyOf(ends, count * 2);
+                    timestamps = Arrays.copyOf(timestamps, count * 2);
+                }
+                ends[count] = length;
+                timestamps[count] = timestamp;
+                count++;
+            }
+            data = bytes;
+            chunk_end = ends;
+            chunk_timestamp = timestamps;
+            chunk_count = count;
+            virtual_time = (count > 0) ? timestamps[0] : 0.0;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @return true once every captured byte has been read
+     */
+    public synchronized boolean isFinished() {
+        return chunk >= chunk_count;
+    }
+
+    /**
+     * @return true once a read was attempted after every captured byte had been read,
+     * so the reader has finished with the last bytes
+     */
+    public synchronized boolean isDrained() {
+        return drained;
+    }
+
+    public synchronized double getDuration() {
+        return (chunk_count > 0) ? chunk_timestamp[chunk_count - 1] - chunk_timestamp[0] : 0.0;
+    }
+
+    public void reset() {
+    }
+
+    public void flush() {
+    }
+
+    public void setReadBufferSize(int size) {
+    }
+
+    public synchronized void setTimeout(double timeout) {
+        this.timeout = timeout;
+    }
+
+    public synchronized void enableTermination(char terminator) {
+        this.terminator = (byte) terminator;
+        termination_enabled = true;
+    }
+
+    public synchronized int getBytesReceived() {
+        if (!real_time) {
+            return (chunk < chunk_count) ? chunk_end[chunk_count - 1] - position : 0;
+        }
+        double now = getTimestamp();
+        int due = chunk;
+        while (due < chunk_count && chunk_timestamp[due] <= now) {
+            due++;
+        }
+        return (due > chunk) ? chunk_end[due - 1] - position : 0;
+    }
+
+    public byte[] read(int count) {
+        byte[] buffer = new byte[count];
+        int bytes_read = read(ByteBuffer.wrap(buffer));
+        return (bytes_read == count) ? buffer : Arrays.copyOf(buffer, bytes_read);
+    }
+
+    public synchronized int read(ByteBuffer buffer) {
+        if (chunk >= chunk_count) {
+            drained = true;
+        }
+        int count = buffer.remaining();
+        int bytes_read = 0;
+        double deadline = getTimestamp() + timeout;
+        while (bytes_read < count && chunk < chunk_count) {
+            if (real_time) {
+                double wait = chunk_timestamp[chunk] - getTimestamp();
+                if (wait > 0) {
+                    if (chunk_timestamp[chunk] > deadline) {
+                        sleep(deadline - getTimestamp());
+                        break;
+                    }
+                    sleep(wait);
+                }
+            } else if (chunk_timestamp[chunk] > virtual_time) {
+                virtual_time = chunk_timestamp[chunk];
+            }
+            byte b = data[position++];
+            buffer.put(b);
+            bytes_read++;
+            if (position == chunk_end[chunk]) {
+                chunk++;
+            }
+            if (termination_enabled && b == terminator) {
+                break;
+            }
+        }
+        return bytes_read;
+    }
+
+    public int write(byte[] buffer, int count) {
+        return count;
+    }
+
+    public synchronized double getTimestamp() {
+        if (!real_time) {
+            return virtual_time;
+        }
+        if (start_nanos < 0) {
+            start_nanos = System.nanoTime();
+        }
+        return virtual_time + (System.nanoTime() - start_nanos) / 1e9;
+    }
+
+    private static void sleep(double seconds) {
+        if (seconds <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep((long) (seconds * 1000), (int) ((seconds * 1e9) % 1000000));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.kauailabs.nav6;
+
+/**
+ * File format shared by CaptureSerialStream and ReplaySerialStream.
+ *
+ * A capture is a header of MAGIC and VERSION followed by one record per read or
+ * write on the port: direction byte, timestamp in seconds (double), length (int)
+ * and the bytes. Values are big endian as written by DataOutputStream.
+ * @author afiolmahon
+ */
+public class SerialCapture {
+
+    public static final int MAGIC = 0x4E363643; // "N66C"
+    public static final int VERSION = 1;
+
+    public static final byte DIRECTION_READ = 0;
+    public static final byte DIRECTION_WRITE = 1;
+}
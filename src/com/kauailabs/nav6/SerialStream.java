@@ -0,0 +1,47 @@
+package com.kauailabs.nav6;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The serial port operations used by the nav6 IMU classes, so they can run
+ * from a real port, a recorded capture or anything else that produces bytes.
+ * Method behavior matches edu.wpi.first.wpilibj.SerialPort.
+ * @author afiolmahon
+ */
+public interface SerialStream {
+
+    void reset();
+
+    void flush();
+
+    void setReadBufferSize(int size);
+
+    /**
+     * @param timeout seconds a read waits for data
+     */
+    void setTimeout(double timeout);
+
+    void enableTermination(char terminator);
+
+    int getBytesReceived();
+
+    /**
+     * Wait for count bytes, the terminator or the timeout
+     * @return bytes read, possibly empty
+     */
+    byte[] read(int count);
+
+    /**
+     * Wait for buffer.remaining() bytes, the terminator or the timeout, bytes are
+     * stored from the buffer position, which is advanced past them
+     * @return bytes read, possibly 0
+     */
+    int read(ByteBuffer buffer);
+
+    int write(byte[] buffer, int count);
+
+    /**
+     * @return current time in seconds on the clock received data is timestamped with
+     */
+    double getTimestamp();
+}
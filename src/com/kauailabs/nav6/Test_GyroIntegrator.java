@@ -0,0 +1,80 @@
+package com.kauailabs.nav6;
+
+import java.util.Random;
+
+/**
+ * Runs GyroIntegrator on simulated 100 Hz gyro samples with a known bias and checks
+ * that only still periods teach it the bias, not steady turns
+ * @author afiolmahon
+ */
+public class Test_GyroIntegrator {
+
+	private static final double DT = 0.01;
+	private static final double NOISE = 0.1; // degrees per second
+	private static final double STILL_RATE = 0.5;
+	private static final double STILL_TIME = 0.5;
+	private static final double BIAS_GAIN = 0.01;
+	private static final double DRIFT_GAIN = 0.5;
+
+	private static final Random random = new Random(1218);
+	private static double time = 0;
+	private static double yaw = 0;
+	private static int failures = 0;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		GyroIntegrator integrator = new GyroIntegrator(STILL_RATE, STILL_TIME, BIAS_GAIN, DRIFT_GAIN);
+		run(integrator, 10.0, 0.0, 0.3);
+		System.out.println("Stationary: bias " + integrator.getBias() + " yaw " + integrator.getYaw());
+		check(integrator.isStill(time), "still while stationary");
+		check(Math.abs(integrator.getBias() - 0.3) < 0.05, "bias learned while stationary");
+
+		run(integrator, 2.0, 90.0, 0.3);
+		System.out.println("Turn: bias " + integrator.getBias() + " yaw " + integrator.getYaw());
+		check(!integrator.isStill(time), "not still during a steady turn");
+		check(Math.abs(integrator.getBias() - 0.3) < 0.05, "bias unchanged by a steady turn");
+		run(integrator, 3.0, 0.0, 0.3);
+		System.out.println("Stop after turn: bias " + integrator.getBias() + " yaw " + integrator.getYaw());
+		check(integrator.isStill(time), "still again after the turn");
+		check(Math.abs(integrator.getBias() - 0.3) < 0.05, "bias unchanged after the turn");
+		check(Math.abs(wrap(integrator.getYaw() - yaw)) < 1.0, "yaw follows the turn");
+
+		// bias larger than STILL_RATE, as in the review: still learning cannot see it, turning must not be learned as bias
+		integrator = new GyroIntegrator(STILL_RATE, STILL_TIME, BIAS_GAIN, DRIFT_GAIN);
+		run(integrator, 1.0, 0.0, 1.5);
+		run(integrator, 2.0, 90.0, 1.5);
+		System.out.println("Turn with 1.5 deg/s bias: bias " + integrator.getBias());
+		check(Math.abs(integrator.getBias()) < 1.5, "turn rate not learned as bias");
+
+		for (int i = 0; i < 6; i++) { // reference checks learn the large bias, still learning then refines it
+			run(integrator, 5.0, 0.0, 1.5);
+			integrator.correct(time, yaw, 1.0);
+		}
+		run(integrator, 10.0, 0.0, 1.5);
+		System.out.println("Corrected: bias " + integrator.getBias() + " discrepancy " + integrator.getDiscrepancy());
+		check(Math.abs(integrator.getBias() - 1.5) < 0.05, "large bias learned from reference checks");
+		System.out.println("Failures: " + failures);
+	}
+
+	/**
+	 * Feed samples of a constant true rate
+	 */
+	private static void run(GyroIntegrator integrator, double seconds, double true_rate, double bias) {
+		for (int i = 0; i < Math.round(seconds / DT); i++) {
+			time += DT;
+			yaw = wrap(yaw + true_rate * DT);
+			integrator.update(time, true_rate + bias + random.nextGaussian() * NOISE);
+		}
+	}
+
+	private static double wrap(double angle) {
+		return angle - 360.0 * Math.floor((angle + 180.0) / 360.0);
+	}
+
+	private static void check(boolean passed, String description) {
+		if (!passed) failures++;
+		System.out.println((passed ? "PASS: " : "FAIL: ") + description);
+	}
+}
@@ -0,0 +1,108 @@
+package com.kauailabs.nav6;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Compares the IMUProtocol decoders against the String based decoding they replaced,
+ * and the ByteBuffer decoders against the byte array ones
+ * @author afiolmahon
+ */
+public class Test_IMUProtocol {
+
+	private static final String[] FLOAT_FORMATS = {"%07.2f", "%+07.2f", "%7.2f", "%07.3f", "%07.1f"};
+	private static final ByteBuffer direct = ByteBuffer.allocateDirect(16);
+
+	/**
+	 * Test decodeProtocolFloat on every value the nav6 can send and on random bytes,
+	 * and the hex decoders on every possible input
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		byte[] buffer = new byte[IMUProtocol.PROTOCOL_FLOAT_LENGTH];
+		int tested = 0;
+		int mismatches = 0;
+		for (String format : FLOAT_FORMATS) {
+			for (int i = -99999; i <= 99999; i++) {
+				String text = String.format(format, i / 100.0);
+				if (text.length() != buffer.length) continue;
+				for (int j = 0; j < buffer.length; j++) buffer[j] = (byte) text.charAt(j);
+				if (!floatMatches(buffer)) {
+					System.out.println("Float mismatch: \"" + text + "\"");
+					mismatches++;
+				}
+				tested++;
+			}
+		}
+
+		Random random = new Random(1218);
+		byte[] alphabet = " +-.0123456789eE".getBytes();
+		for (int i = 0; i < 1000000; i++) {
+			for (int j = 0; j < buffer.length; j++) buffer[j] = alphabet[random.nextInt(alphabet.length)];
+			if (!floatMatches(buffer)) {
+				System.out.println("Float mismatch: \"" + new String(buffer) + "\"");
+				mismatches++;
+			}
+			tested++;
+		}
+
+		byte[] hex = new byte[4];
+		for (int i = 0; i < 65536; i++) {
+			hex[0] = (byte) (i >> 8);
+			hex[1] = (byte) i;
+			hex[2] = (byte) (i >> 4);
+			hex[3] = (byte) (i >> 12);
+			direct.clear();
+			direct.put(hex);
+			if (IMUProtocol.decodeUint8(hex, 0) != legacyDecodeUint8(hex, 0)
+					|| IMUProtocol.decodeProtocolUint16(hex, 0) != legacyDecodeUint16(hex, 0)
+					|| IMUProtocol.decodeUint8(direct, 0) != legacyDecodeUint8(hex, 0)
+					|| IMUProtocol.decodeProtocolUint16(direct, 0) != legacyDecodeUint16(hex, 0)) {
+				System.out.println("Hex mismatch: " + i);
+				mismatches++;
+			}
+			tested++;
+		}
+		System.out.println("Tested: " + tested + " Mismatches: " + mismatches);
+	}
+
+	private static boolean floatMatches(byte[] buffer) {
+		direct.clear();
+		direct.put(buffer);
+		float expected;
+		try {
+			expected = Float.parseFloat(new String(buffer, 0, IMUProtocol.PROTOCOL_FLOAT_LENGTH));
+		} catch (NumberFormatException e) {
+			try {
+				IMUProtocol.decodeProtocolFloat(buffer, 0);
+				return false;
+			} catch (NumberFormatException e2) {
+			}
+			try {
+				IMUProtocol.decodeProtocolFloat(direct, 0);
+				return false;
+			} catch (NumberFormatException e2) {
+				return true;
+			}
+		}
+		return Float.floatToRawIntBits(expected) == Float.floatToRawIntBits(IMUProtocol.decodeProtocolFloat(buffer, 0))
+				&& Float.floatToRawIntBits(expected) == Float.floatToRawIntBits(IMUProtocol.decodeProtocolFloat(direct, 0));
+	}
+
+	private static byte legacyDecodeUint8(byte[] checksum, int offset) {
+		byte first_digit = (byte) (checksum[0 + offset] <= '9' ? checksum[0 + offset] - '0' : ((checksum[0 + offset] - 'A') + 10));
+		byte second_digit = (byte) (checksum[1 + offset] <= '9' ? checksum[1 + offset] - '0' : ((checksum[1 + offset] - 'A') + 10));
+		return (byte) ((first_digit * 16) + second_digit);
+	}
+
+	private static short legacyDecodeUint16(byte[] uint16_string, int offset) {
+		short decoded_uint16 = 0;
+		int shift_left = 12;
+		for (int i = offset + 0; i < offset + 4; i++) {
+			byte digit = (byte) (uint16_string[i] <= '9' ? uint16_string[i] - '0' : ((uint16_string[i] - 'A') + 10));
+			decoded_uint16 += (((short) digit) << shift_left);
+			shift_left -= 4;
+		}
+		return decoded_uint16;
+	}
+}
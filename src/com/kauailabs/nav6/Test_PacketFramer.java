@@ -0,0 +1,189 @@
+package com.kauailabs.nav6;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Feeds PacketFramer a stream of YPR packets with corrupt packets and garbage mixed in, split
+ * into random reads through both the direct buffer and the byte array paths, and checks that exactly the good packets come out in order
+ * @author afiolmahon
+ */
+public class Test_PacketFramer {
+
+	private static final int PACKETS = 10000;
+	private static final int CORRUPT_PACKETS = 100;
+	private static final int YPR_CONTENT_LENGTH = IMUProtocol.YPR_UPDATE_CHECKSUM_INDEX;
+
+	private static int failures = 0;
+	private static int checksum_failures = -1;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(1218);
+		List<Float> expected = new ArrayList<Float>();
+		byte[] stream = buildStream(random, expected);
+		System.out.println("Stream: " + stream.length + " bytes, " + expected.size() + " good packets");
+
+		for (int capacity : new int[] {IMUProtocol.IMU_PROTOCOL_MAX_MESSAGE_LENGTH + 1, 128, 1024}) {
+			PacketFramer framer = new PacketFramer(capacity);
+			List<Float> decoded = new ArrayList<Float>();
+			ChunkedStream source = new ChunkedStream(stream, new Random(capacity), capacity);
+			while (!source.isFinished()) {
+				framer.read(source, capacity);
+				framer.process(handler(decoded));
+			}
+			check(decoded.equals(expected), "read, capacity " + capacity + ": decoded " + decoded.size() + " packets in order");
+			check(framer.getDroppedPacketCount() >= CORRUPT_PACKETS, "read, capacity " + capacity + ": dropped " + framer.getDroppedPacketCount() + " packets, resynced " + framer.getResyncCount() + " times");
+			checkChecksumFailures(framer, "read, capacity " + capacity);
+
+			framer = new PacketFramer(capacity);
+			decoded = new ArrayList<Float>();
+			Random chunks = new Random(capacity);
+			for (int offset = 0; offset < stream.length;) {
+				int length = Math.min(stream.length - offset, 1 + chunks.nextInt(capacity - IMUProtocol.IMU_PROTOCOL_MAX_MESSAGE_LENGTH));
+				framer.append(stream, offset, length);
+				framer.process(handler(decoded));
+				offset += length;
+			}
+			check(decoded.equals(expected), "append, capacity " + capacity + ": decoded " + decoded.size() + " packets in order");
+			check(framer.getDroppedPacketCount() >= CORRUPT_PACKETS, "append, capacity " + capacity + ": dropped " + framer.getDroppedPacketCount() + " packets, resynced " + framer.getResyncCount() + " times");
+			checkChecksumFailures(framer, "append, capacity " + capacity);
+		}
+
+		testCompactionStraddle();
+		System.out.println("Failures: " + failures);
+	}
+
+	/**
+	 * Every packet with a flipped bit is a checksum failure. A stray "!g" or "!q" in the line noise whose length ends on the next
+	 * packet's terminator looks like one too, but how the stream is split into reads must not change the count
+	 */
+	private static void checkChecksumFailures(PacketFramer framer, String name) {
+		if (checksum_failures < 0) checksum_failures = framer.getChecksumFailureCount();
+		check(framer.getChecksumFailureCount() >= CORRUPT_PACKETS && framer.getChecksumFailureCount() == checksum_failures,
+				name + ": " + framer.getChecksumFailureCount() + " of the dropped packets were checksum failures");
+	}
+
+	/**
+	 * Fill the buffer so a packet is cut off at its end, the partial packet has to move to index 0 and still decode
+	 */
+	private static void testCompactionStraddle() {
+		byte[] first = yprPacket(1.0f);
+		byte[] second = yprPacket(2.0f);
+		int capacity = first.length + second.length - 5;
+		PacketFramer framer = new PacketFramer(capacity);
+		List<Float> decoded = new ArrayList<Float>();
+		framer.append(first, 0, first.length);
+		framer.append(second, 0, second.length - 5);
+		framer.process(handler(decoded));
+		check(framer.getAvailable() == second.length - 5, "straddle: partial packet kept at the front, " + framer.getAvailable() + " bytes");
+		framer.append(second, second.length - 5, 5);
+		framer.process(handler(decoded));
+		check(decoded.size() == 2 && decoded.get(1) == 2.0f, "straddle: packet completed after compaction");
+		check(framer.getDroppedByteCount() == 0, "straddle: no bytes dropped");
+	}
+
+	private static byte[] buildStream(Random random, List<Float> expected) {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		int corrupt_every = PACKETS / CORRUPT_PACKETS;
+		for (int i = 0; i < PACKETS; i++) {
+			float yaw = ((i % 36000) - 18000) / 100.0f;
+			byte[] packet = yprPacket(yaw);
+			if (i % corrupt_every == corrupt_every / 2) {
+				packet[2 + random.nextInt(YPR_CONTENT_LENGTH - 2)] ^= 0x01; //flipped bit, checksum no longer matches
+			} else {
+				expected.add(yaw);
+			}
+			stream.write(packet, 0, packet.length);
+			if (random.nextInt(10) == 0) { //line noise between packets, sometimes including a stray start character
+				int garbage = 1 + random.nextInt(20);
+				for (int j = 0; j < garbage; j++) {
+					stream.write(random.nextInt(8) == 0 ? IMUProtocol.PACKET_START_CHAR : 'a' + random.nextInt(26));
+				}
+			}
+		}
+		return stream.toByteArray();
+	}
+
+	private static byte[] yprPacket(float yaw) {
+		byte[] packet = new byte[IMUProtocol.YPR_UPDATE_MESSAGE_LENGTH];
+		String content = "!y" + String.format("%07.2f%07.2f%07.2f%07.2f", yaw, 0.0f, 0.0f, 0.0f);
+		for (int i = 0; i < content.length(); i++) packet[i] = (byte) content.charAt(i);
+		IMUProtocol.encodeTermination(packet, packet.length, YPR_CONTENT_LENGTH);
+		return packet;
+	}
+
+	private static PacketFramer.PacketHandler handler(List<Float> decoded) {
+		IMUProtocol.YPRUpdate update = new IMUProtocol.YPRUpdate();
+		return (buffer, offset, length) -> {
+			int packet_length = IMUProtocol.decodeYPRUpdate(buffer, offset, length, update);
+			if (packet_length > 0) decoded.add(update.yaw);
+			return packet_length;
+		};
+	}
+
+	private static void check(boolean passed, String description) {
+		if (!passed) failures++;
+		System.out.println((passed ? "PASS: " : "FAIL: ") + description);
+	}
+
+	/**
+	 * Delivers a byte array in random sized reads, like a serial port that returns whatever has arrived
+	 */
+	private static class ChunkedStream implements SerialStream {
+		private final byte[] data;
+		private final Random random;
+		private final int max_chunk;
+		private int position = 0;
+
+		ChunkedStream(byte[] data, Random random, int max_chunk) {
+			this.data = data;
+			this.random = random;
+			this.max_chunk = max_chunk;
+		}
+
+		boolean isFinished() {
+			return position >= data.length;
+		}
+
+		public int read(ByteBuffer buffer) {
+			int length = Math.min(Math.min(buffer.remaining(), data.length - position), 1 + random.nextInt(max_chunk));
+			buffer.put(data, position, length);
+			position += length;
+			return length;
+		}
+
+		public byte[] read(int count) {
+			byte[] bytes = new byte[Math.min(count, data.length - position)];
+			read(ByteBuffer.wrap(bytes));
+			return bytes;
+		}
+
+		public void reset() {}
+
+		public void flush() {}
+
+		public void setReadBufferSize(int size) {}
+
+		public void setTimeout(double timeout) {}
+
+		public void enableTermination(char terminator) {}
+
+		public int getBytesReceived() {
+			return data.length - position;
+		}
+
+		public int write(byte[] buffer, int count) {
+			return count;
+		}
+
+		public double getTimestamp() {
+			return 0;
+		}
+	}
+}
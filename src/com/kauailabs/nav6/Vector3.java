@@ -0,0 +1,27 @@
+package com.kauailabs.nav6;
+
+/**
+ * Mutable 3 component float vector, reused between updates so the IMU thread does not allocate
+ * @author afiolmahon
+ */
+public class Vector3 {
+
+    public float x;
+    public float y;
+    public float z;
+
+    public Vector3 set(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public Vector3 set(Vector3 other) {
+        return set(other.x, other.y, other.z);
+    }
+
+    public String toString() {
+        return "(" + x + ", " + y + ", " + z + ")";
+    }
+}
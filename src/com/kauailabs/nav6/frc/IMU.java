@@ -10,9 +10,13 @@
 
 package com.kauailabs.nav6.frc;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import com.kauailabs.nav6.HeadingHistory;
 import com.kauailabs.nav6.IMUProtocol;
+import com.kauailabs.nav6.PacketFramer;
+import com.kauailabs.nav6.SerialStream;
 
 import edu.wpi.first.wpilibj.PIDSource;
 import edu.wpi.first.wpilibj.SensorBase;
@@ -37,19 +41,25 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
     static final byte   DEFAULT_UPDATE_RATE_HZ  = 100;
     static final short  DEFAULT_ACCEL_FSR_G     = 2;
     static final short  DEFAULT_GYRO_FSR_DPS    = 2000;
+    static final int    SERIAL_READ_LENGTH      = 256;
+    static final int    FRAMER_CAPACITY         = 512;
+    static final double SECONDS_PER_BYTE        = 10.0 / 57600; // 8 data bits plus start and stop bits at 57600 baud
+    static final double LOW_LATENCY_READ_TIMEOUT = 0.1;
+    static final double MIN_READ_BACKOFF        = 0.001;
+    static final double MAX_READ_BACKOFF        = 0.1;
+    static final double LATENCY_FILTER_GAIN     = 0.1;
+    static final int    HEADING_HISTORY_LENGTH  = 128; // a little over one second at 100 Hz
+    static final double MAX_HEADING_EXTRAPOLATION = 0.05;
     
-    SerialPort serial_port;
+    SerialStream serial_port;
     float yaw_history[];
     int next_yaw_history_index;
-    double user_yaw_offset;
+    volatile double user_yaw_offset;
     ITable m_table;
     Thread m_thread;
     protected byte update_rate_hz;
 
-    volatile float yaw;
-    volatile float pitch;
-    volatile float roll;
-    volatile float compass_heading;
+    final SharedOrientation orientation = new SharedOrientation();
     volatile int update_count = 0;
     volatile int byte_count = 0;
     volatile float nav6_yaw_offset_degrees;
@@ -57,9 +67,28 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
     volatile short gyro_fsr_dps;
     volatile short flags;    
 
-    double last_update_time;
+    volatile double last_update_time;
+    volatile double latency;
+    double read_timestamp;
+    final boolean low_latency;
     boolean stop = false;
     private IMUProtocol.YPRUpdate ypr_update_data;
+    private IMUProtocol.StreamResponse stream_response_data;
+    private boolean stream_response_received;
+    private volatile boolean stream_command_pending = false;
+    private double last_stream_command_sent_timestamp;
+
+    volatile int ypr_packet_count = 0;
+    volatile int quaternion_packet_count = 0;
+    volatile int gyro_packet_count = 0;
+    volatile int stream_response_count = 0;
+    volatile int stream_command_count = 0;
+    volatile int serial_reset_count = 0;
+    volatile int read_error_count = 0;
+    volatile double stream_response_latency = 0;
+    private final PacketFramer framer = new PacketFramer(FRAMER_CAPACITY);
+    private final HeadingHistory heading_history = new HeadingHistory(HEADING_HISTORY_LENGTH, MAX_HEADING_EXTRAPOLATION);
+    private final PacketFramer.PacketHandler packet_handler = this::decodePacket;
     protected byte update_type = IMUProtocol.MSGID_YPR_UPDATE;
     
     /**
@@ -73,16 +102,42 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
      * @param update_rate_hz Custom Update Rate (Hz)
      */
     public IMU(SerialPort serial_port, byte update_rate_hz) {
+        this(serial_port, update_rate_hz, false);
+    }
+
+    /**
+     * Constructs the IMU class, optionally in low latency mode.
+     * 
+     * In low latency mode the IMU thread blocks in the serial read
+     * until a packet terminator arrives instead of polling, so each
+     * update is published within a few milliseconds of being received.
+     * While no data arrives the thread backs off from 1 ms up to 100 ms.
+     * @param serial_port BufferingSerialPort object to use
+     * @param update_rate_hz Custom Update Rate (Hz)
+     * @param low_latency true to block on serial data instead of polling
+     */
+    public IMU(SerialPort serial_port, byte update_rate_hz, boolean low_latency) {
+        this(new WPILibSerialStream(serial_port), update_rate_hz, low_latency);
+    }
+
+    /**
+     * Constructs the IMU class reading from any serial stream, e.g. a
+     * CaptureSerialStream to record a match or a ReplaySerialStream to
+     * play one back.  Packet timestamps come from the stream's clock.
+     * @param serial_port stream to read nav6 data from
+     * @param update_rate_hz Custom Update Rate (Hz)
+     * @param low_latency true to block on serial data instead of polling
+     */
+    public IMU(SerialStream serial_port, byte update_rate_hz, boolean low_latency) {
+        this.low_latency = low_latency;
         ypr_update_data = new IMUProtocol.YPRUpdate();
+        stream_response_data = new IMUProtocol.StreamResponse();
         this.update_rate_hz = update_rate_hz;
         flags = 0;
         accel_fsr_g = DEFAULT_ACCEL_FSR_G;
         gyro_fsr_dps = DEFAULT_GYRO_FSR_DPS;
         this.serial_port = serial_port;
         yaw_history = new float[YAW_HISTORY_LENGTH];
-        yaw = (float) 0.0;
-        pitch = (float) 0.0;
-        roll = (float) 0.0;
         try {
             serial_port.reset();
         } catch (RuntimeException ex) {
@@ -127,6 +182,25 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
         }
     }
 
+    /**
+     * Switch the nav6 to a different update stream.  The stream command
+     * is sent by the IMU thread before its next read.
+     * @param type one of the IMUProtocol.STREAM_CMD_STREAM_TYPE values
+     */
+    protected void setUpdateType(byte type) {
+        update_type = type;
+        stream_command_pending = true;
+    }
+
+    /**
+     * Resend the stream command for the current update type, e.g.
+     * after the nav6 has stopped sending updates.  The command is
+     * sent by the IMU thread before its next read.
+     */
+    public void requestStreamCommand() {
+        stream_command_pending = true;
+    }
+
     protected void setStreamResponse( IMUProtocol.StreamResponse response ) {
         
         flags = response.flags;
@@ -143,14 +217,43 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
         last_update_time = 0.0;
     }
 
-    private void setYawPitchRoll(float yaw, float pitch, float roll, float compass_heading) {
+    private void setYawPitchRoll(float yaw, float pitch, float roll, float compass_heading, double timestamp) {
 
-        this.yaw = yaw;
-        this.pitch = pitch;
-        this.roll = roll;
-        this.compass_heading = compass_heading;
+        orientation.beginWrite();
+        orientation.timestamp = timestamp;
+        orientation.raw_yaw = yaw;
+        orientation.pitch = pitch;
+        orientation.roll = roll;
+        orientation.compass_heading = compass_heading;
+        orientation.endWrite();
 
-        updateYawHistory(this.yaw);
+        updateYawHistory(yaw);
+    }
+
+    /**
+     * @param bytes_remaining bytes available from the start of the packet, as passed to decodePacketHandler
+     * @param packet_length length of the decoded packet
+     * @return FPGA time at which the last byte of the packet arrived
+     */
+    protected double getPacketTimestamp(int bytes_remaining, int packet_length) {
+        // Bytes after this packet in the same read arrived later than it did
+        return read_timestamp - (bytes_remaining - packet_length) * SECONDS_PER_BYTE;
+    }
+
+    /**
+     * Copies everything decoded from the most recent update packet.
+     * 
+     * All values copied came from the same packet, the current user
+     * yaw offset is applied.  Copying never blocks the IMU thread and
+     * allocates nothing, so one sample can be reused for every call.
+     * @param out sample to fill in
+     * @return out
+     */
+    public OrientationSample getOrientation(OrientationSample out) {
+        orientation.read(out);
+        out.yaw_offset = user_yaw_offset;
+        out.yaw = OrientationSample.applyYawOffset(out.raw_yaw, out.yaw_offset);
+        return out;
     }
 
     protected void updateYawHistory(float curr_yaw) {
@@ -159,7 +262,6 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
             next_yaw_history_index = 0;
         }
         yaw_history[next_yaw_history_index] = curr_yaw;
-        last_update_time = Timer.getFPGATimestamp();
         next_yaw_history_index++;
     }
 
@@ -178,8 +280,8 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
      * reported by the nav6 IMU.
      * @return The current pitch value in degrees (-180 to 180).
      */
-        public float getPitch() {
-        return pitch;
+    public float getPitch() {
+        return orientation.pitch;
     }
 
     /**
@@ -188,7 +290,7 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
      * @return The current roll value in degrees (-180 to 180).
      */
     public float getRoll() {
-        return roll;
+        return orientation.roll;
     }
 
     /**
@@ -201,14 +303,7 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
      * @return The current yaw value in degrees (-180 to 180).
      */
     public float getYaw() {
-        float calculated_yaw = (float) (this.yaw - user_yaw_offset);
-        if (calculated_yaw < -180) {
-            calculated_yaw += 360;
-        }
-        if (calculated_yaw > 180) {
-            calculated_yaw -= 360;
-        }
-        return calculated_yaw;
+        return OrientationSample.applyYawOffset(orientation.raw_yaw, user_yaw_offset);
     }
 
     /**
@@ -221,7 +316,7 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
      * @return The current tilt-compensated compass heading, in degrees (0-360).
      */
     public float getCompassHeading() {
-        return compass_heading;
+        return orientation.compass_heading;
     }
 
     /**
@@ -252,7 +347,7 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
      * @return Returns true if a valid update has been received within the last second.
      */
     public boolean isConnected() {
-        double time_since_last_update = Timer.getFPGATimestamp() - this.last_update_time;
+        double time_since_last_update = serial_port.getTimestamp() - this.last_update_time;
         return time_since_last_update <= 1.0;
     }
 
@@ -280,6 +375,165 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
         return update_count;
     }
 
+    /**
+     * Returns the FPGA time at which the last valid update packet
+     * finished arriving.  In low latency mode this is within a byte
+     * time of the actual arrival; when polling it is the time the
+     * bytes were read.
+     * @return FPGA timestamp of the last update, in seconds.
+     */
+    public double getLastUpdateTimestamp() {
+        return last_update_time;
+    }
+
+    /**
+     * Returns the yaw value at a time in the recent past, interpolated
+     * between the update packets received around that time.  Useful for
+     * pairing a delayed measurement such as a camera frame with the
+     * robot heading at the moment it was taken.
+     * 
+     * Times before the stored history return the oldest yaw, times after
+     * the latest packet are extrapolated by up to 50 ms using the latest
+     * yaw rate.  The current user yaw offset is applied.
+     * @param timestamp FPGA time in seconds
+     * @return The yaw value in degrees (-180 to 180) at timestamp.
+     */
+    public float getYawAt(double timestamp) {
+        return OrientationSample.applyYawOffset((float) heading_history.headingAt(timestamp), user_yaw_offset);
+    }
+
+    /**
+     * Returns the rate of change of yaw at a time in the recent past.
+     * @param timestamp FPGA time in seconds
+     * @return The yaw rate in degrees per second.
+     */
+    public double getYawRateAt(double timestamp) {
+        return heading_history.rateAt(timestamp);
+    }
+
+    /**
+     * Returns the rate of change of yaw between the two most recent
+     * update packets.
+     * @return The yaw rate in degrees per second.
+     */
+    public double getYawRate() {
+        return heading_history.rateAt(heading_history.getNewestTimestamp());
+    }
+
+    /**
+     * Returns the average time from the first byte of an update packet
+     * arriving to its values being available through this class,
+     * including serial transmission and decoding.
+     * @return Smoothed update latency, in seconds.
+     */
+    public double getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the time since the last valid update packet
+     * finished arriving.
+     * @return Seconds since the last update.
+     */
+    public double getTimeSinceLastUpdate() {
+        return serial_port.getTimestamp() - last_update_time;
+    }
+
+    /**
+     * Returns the count of valid update packets received of one type.
+     * @param msgid IMUProtocol.MSGID_YPR_UPDATE, MSGID_QUATERNION_UPDATE or MSGID_GYRO_UPDATE
+     * @return The number of updates of that type received from the nav6 IMU.
+     */
+    public double getUpdateCount(byte msgid) {
+        switch (msgid) {
+            case IMUProtocol.MSGID_YPR_UPDATE: return ypr_packet_count;
+            case IMUProtocol.MSGID_QUATERNION_UPDATE: return quaternion_packet_count;
+            case IMUProtocol.MSGID_GYRO_UPDATE: return gyro_packet_count;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Returns the count of stream commands sent to the nav6 IMU,
+     * including resends when no stream response arrived.
+     * @return The number of stream commands sent.
+     */
+    public double getStreamCommandCount() {
+        return stream_command_count;
+    }
+
+    /**
+     * Returns the count of stream responses received from the nav6 IMU.
+     * @return The number of stream responses received.
+     */
+    public double getStreamResponseCount() {
+        return stream_response_count;
+    }
+
+    /**
+     * Returns the time from the most recently answered stream command
+     * being sent to its stream response arriving.
+     * @return Stream response latency, in seconds.
+     */
+    public double getStreamResponseLatency() {
+        return stream_response_latency;
+    }
+
+    /**
+     * Returns the count of serial port resets done because a full
+     * read held no valid packet.
+     * @return The number of serial port resets.
+     */
+    public double getSerialResetCount() {
+        return serial_reset_count;
+    }
+
+    /**
+     * Returns the count of serial reads or writes which failed,
+     * usually because of a timeout.
+     * @return The number of failed serial operations.
+     */
+    public double getReadErrorCount() {
+        return read_error_count;
+    }
+
+    /**
+     * Returns the count of times the packet framer lost and had to
+     * search for the start of a packet.
+     * @return The number of framing resyncs.
+     */
+    public double getResyncCount() {
+        return framer.getResyncCount();
+    }
+
+    /**
+     * Returns the count of received bytes which were not part
+     * of a valid packet, e.g. line noise or a corrupted packet.
+     * @return The number of bytes discarded while searching for packets.
+     */
+    public double getDroppedByteCount() {
+        return framer.getDroppedByteCount();
+    }
+
+    /**
+     * Returns the count of terminated packets which failed to
+     * decode for any reason: a checksum mismatch, a truncated
+     * packet, or a packet type this class does not decode.
+     * @return The number of packets discarded.
+     */
+    public double getDroppedPacketCount() {
+        return framer.getDroppedPacketCount();
+    }
+
+    /**
+     * Returns the count of discarded packets which were complete
+     * and of a known type but whose checksum did not match.
+     * @return The number of checksum failures.
+     */
+    public double getChecksumFailureCount() {
+        return framer.getChecksumFailureCount();
+    }
+
     /**
      * Returns true if the nav6 IMU is currently performing automatic
      * calibration.  Automatic calibration occurs when the nav6 IMU
@@ -336,11 +590,44 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
     // Invoked when a new packet is received; returns the packet length if the packet 
     // is valid, based upon IMU Protocol definitions; otherwise, returns 0
     
-    protected int decodePacketHandler(byte[] received_data, int offset, int bytes_remaining) {
+    protected int decodePacketHandler(ByteBuffer received_data, int offset, int bytes_remaining) {
         
         int packet_length = IMUProtocol.decodeYPRUpdate(received_data, offset, bytes_remaining, ypr_update_data);
         if (packet_length > 0) {
-            setYawPitchRoll(ypr_update_data.yaw,ypr_update_data.pitch,ypr_update_data.roll,ypr_update_data.compass_heading);
+            setYawPitchRoll(ypr_update_data.yaw,ypr_update_data.pitch,ypr_update_data.roll,ypr_update_data.compass_heading,
+                    getPacketTimestamp(bytes_remaining, packet_length));
+        }
+        return packet_length;
+    }
+
+    // Invoked by the framer for every possible packet start, tries the update packet
+    // and then the stream response
+    
+    private int decodePacket(ByteBuffer received_data, int offset, int bytes_remaining) {
+        
+        int packet_length = decodePacketHandler(received_data, offset, bytes_remaining);
+        if (packet_length > 0) {
+            double packet_timestamp = getPacketTimestamp(bytes_remaining, packet_length);
+            double packet_latency = serial_port.getTimestamp() - (packet_timestamp - packet_length * SECONDS_PER_BYTE);
+            latency += (packet_latency - latency) * LATENCY_FILTER_GAIN;
+            last_update_time = packet_timestamp;
+            heading_history.add(packet_timestamp, orientation.raw_yaw);
+            update_count++;
+            switch (received_data.get(offset + 1)) {
+                case IMUProtocol.MSGID_YPR_UPDATE: ypr_packet_count++; break;
+                case IMUProtocol.MSGID_QUATERNION_UPDATE: quaternion_packet_count++; break;
+                case IMUProtocol.MSGID_GYRO_UPDATE: gyro_packet_count++; break;
+            }
+            return packet_length;
+        }
+        packet_length = IMUProtocol.decodeStreamResponse(received_data, offset, bytes_remaining, stream_response_data);
+        if (packet_length > 0) {
+            setStreamResponse(stream_response_data);
+            if (!stream_response_received) {
+                stream_response_latency = getPacketTimestamp(bytes_remaining, packet_length) - last_stream_command_sent_timestamp;
+            }
+            stream_response_received = true;
+            stream_response_count++;
         }
         return packet_length;
     }
@@ -350,11 +637,13 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
     public void run() {
 
         stop = false;
-        boolean stream_response_received = false;
-        double last_stream_command_sent_timestamp = 0.0;
+        stream_response_received = false;
+        last_stream_command_sent_timestamp = 0.0;
+        double read_backoff = MIN_READ_BACKOFF;
+        boolean read_failing = false; // only the first failure of an outage is logged
         try {
             serial_port.setReadBufferSize(512);
-            serial_port.setTimeout(1.0);
+            serial_port.setTimeout(low_latency ? LOW_LATENCY_READ_TIMEOUT : 1.0);
             serial_port.enableTermination('\n');
             serial_port.flush();
             serial_port.reset();
@@ -362,8 +651,6 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
             ex.printStackTrace();
         }
                 
-        IMUProtocol.StreamResponse response = new IMUProtocol.StreamResponse();
-
         byte[] stream_command = new byte[256];
         
 	int cmd_packet_length = IMUProtocol.encodeStreamCommand( stream_command, update_type, update_rate_hz ); 
@@ -371,7 +658,8 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
             serial_port.reset();
             serial_port.write( stream_command, cmd_packet_length );
             serial_port.flush();
-            last_stream_command_sent_timestamp = Timer.getFPGATimestamp();
+            last_stream_command_sent_timestamp = serial_port.getTimestamp();
+            stream_command_count++;
         } catch (RuntimeException ex) {
         	ex.printStackTrace();
         }
@@ -379,71 +667,73 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
         while (!stop) {
             try {
 
-                // Wait, with delays to conserve CPU resources, until
-                // bytes have arrived.
-                
-                while ( !stop && ( serial_port.getBytesReceived() < 1 ) ) {
-                    Timer.delay(0.1);
+                if (stream_command_pending) {
+                    stream_command_pending = false;
+                    cmd_packet_length = IMUProtocol.encodeStreamCommand( stream_command, update_type, update_rate_hz );
+                    last_stream_command_sent_timestamp = serial_port.getTimestamp();
+                    stream_response_received = false;
+                    serial_port.write( stream_command, cmd_packet_length );
+                    serial_port.flush();
+                    stream_command_count++;
+                }
+
+                if (!low_latency) {
+                    // Wait, with delays to conserve CPU resources, until
+                    // bytes have arrived.
+                    
+                    while ( !stop && ( serial_port.getBytesReceived() < 1 ) ) {
+                        Timer.delay(0.1);
+                    }
                 }
 
-                int packets_received = 0;
-                byte[] received_data = serial_port.read(256);
-                int bytes_read = received_data.length;
+                // With termination enabled the read returns as soon as a packet terminator arrives,
+                // bytes go straight into the framer's buffer
+                int bytes_read = framer.read(serial_port, SERIAL_READ_LENGTH);
+                read_timestamp = serial_port.getTimestamp();
+                if (bytes_read > 0) {
+                    // in either mode, so earlier read failures do not slow the next one
+                    read_backoff = MIN_READ_BACKOFF;
+                } else if (low_latency) {
+                    // nav6 is silent, back off so a disconnected port does not spin
+                    Timer.delay(read_backoff);
+                    read_backoff = Math.min(read_backoff * 2.0, MAX_READ_BACKOFF);
+                }
                 if (bytes_read > 0) {
                     byte_count += bytes_read;
-                    int i = 0;
-                    // Scan the buffer looking for valid packets
-                    while (i < bytes_read) {
-                                                
-                        // Attempt to decode a packet
-                        
-                        int bytes_remaining = bytes_read - i;
-                        int packet_length = decodePacketHandler(received_data,i,bytes_remaining);
-                        if (packet_length > 0) {
-                            packets_received++;
-                            update_count++;
-                            i += packet_length;
-                        } 
-                        else 
-                        {
-                            packet_length = IMUProtocol.decodeStreamResponse(received_data, i, bytes_remaining, response);
-                            if (packet_length > 0) {
-                                packets_received++;
-                                setStreamResponse(response);
-                                stream_response_received = true;
-                                i += packet_length;
-                            }
-                            else {
-                                // current index is not the start of a valid packet; increment
-                                i++;
-                            }
-                        }
+                    if (read_failing) {
+                        read_failing = false;
+                        System.out.println("[nav6]: serial reads recovered, " + read_error_count + " failures so far");
                     }
+
+                    // Packets split across reads are completed by the next read
+                    int packets_received = framer.process(packet_handler);
                 
-                    if ( ( packets_received == 0 ) && ( bytes_read == 256 ) ) {
+                    if ( ( packets_received == 0 ) && ( bytes_read == SERIAL_READ_LENGTH ) ) {
                         // Workaround for issue found in Java SerialPort implementation:
-                        // No packets received and 256 bytes received; this
-                        // condition occurs in the Java SerialPort.  In this case,
-                        // reset the serial port.
+                        // a full read holds several packets, so none decoding means the
+                        // port is returning garbage.  In this case, reset the serial port.
                         serial_port.reset();
+                        framer.clear();
+                        serial_reset_count++;
                     }
                     
                     // If a stream configuration response has not been received within three seconds
                     // of operation, (re)send a stream configuration request
                     
-                    if ( !stream_response_received && ((Timer.getFPGATimestamp() - last_stream_command_sent_timestamp ) > 3.0 ) ) {
+                    if ( !stream_response_received && ((serial_port.getTimestamp() - last_stream_command_sent_timestamp ) > 3.0 ) ) {
                         cmd_packet_length = IMUProtocol.encodeStreamCommand( stream_command, update_type, update_rate_hz ); 
                         try {
-                            last_stream_command_sent_timestamp = Timer.getFPGATimestamp();
+                            last_stream_command_sent_timestamp = serial_port.getTimestamp();
                             serial_port.write( stream_command, cmd_packet_length );
                             serial_port.flush();
+                            stream_command_count++;
                         } catch (RuntimeException ex2) {
                         	ex2.printStackTrace();
                         }                                                    
                     }
                     else {                        
                         // If no bytes remain in the buffer, and not awaiting a response, sleep a bit
-                        if ( stream_response_received && ( serial_port.getBytesReceived() == 0 ) ) {
+                        if ( !low_latency && stream_response_received && ( serial_port.getBytesReceived() == 0 ) ) {
                             Timer.delay(1.0/update_rate_hz);
                         }        
                     }
@@ -451,7 +741,14 @@ public class IMU extends SensorBase implements PIDSource, LiveWindowSendable, Ru
             } catch (RuntimeException ex) {
                 // This exception typically indicates a Timeout
                 stream_response_received = false;
-                ex.printStackTrace();
+                read_error_count++;
+                if (!read_failing) {
+                    read_failing = true;
+                    System.out.println("[nav6]: serial read failed, further failures are only counted: " + ex);
+                }
+                // an unplugged port can fail without waiting, back off as for a silent one
+                Timer.delay(read_backoff);
+                read_backoff = Math.min(read_backoff * 2.0, MAX_READ_BACKOFF);
             }
         }
     }
@@ -0,0 +1,183 @@
+package com.kauailabs.nav6.frc;
+
+import java.nio.ByteBuffer;
+
+import com.kauailabs.nav6.GyroIntegrator;
+import com.kauailabs.nav6.IMUProtocol;
+import com.kauailabs.nav6.SerialStream;
+import com.kauailabs.nav6.Vector3;
+
+import edu.wpi.first.wpilibj.SerialPort;
+
+/**
+ * Reads the raw gyro stream from the nav6 at its maximum update rate and
+ * integrates the z axis rate into yaw, for a heading and yaw rate that are
+ * not delayed by the nav6 sensor fusion.
+ *
+ * The nav6 streams one packet type at a time, so the IMU starts on the
+ * quaternion stream to take its initial yaw from the fused orientation, then
+ * switches to the gyro stream. Every CROSS_CHECK_PERIOD seconds it switches
+ * back to the quaternion stream for a few packets, records the difference
+ * between the integrated and fused yaw and resets the integrated yaw to the
+ * fused one so gyro drift never builds up. The gyro bias is learned whenever
+ * the robot is still.
+ *
+ * Pitch, roll, compass heading, the quaternion and temperature in gyro samples
+ * are from the latest quaternion packet, linear acceleration uses its gravity vector.
+ * @author afiolmahon
+ */
+public class IMUGyro extends IMUAdvanced {
+
+    static final byte   MAX_UPDATE_RATE_HZ      = 100;
+    static final double CROSS_CHECK_PERIOD      = 5.0;  // seconds of gyro stream between fused yaw checks
+    static final int    CROSS_CHECK_PACKETS     = 3;    // quaternion packets read during each check
+    static final double STILL_RATE              = 0.5;  // degrees per second
+    static final double STILL_TIME              = 0.5;  // seconds
+    static final double BIAS_GAIN               = 0.01;
+    static final double DRIFT_GAIN              = 0.5;
+    static final double MAX_GYRO_RATE_AGE       = 0.05; // seconds after the last gyro packet getYawRate still uses it
+
+    private IMUProtocol.GyroUpdate gyro_update_data;
+    private GyroIntegrator integrator;
+    private Vector3 linear_accel;
+    private Vector3 world_linear_accel;
+    private double gyro_stream_start;
+    private int cross_check_packet_count;
+    private boolean checking;
+    private volatile boolean gyro_ready = false; // fields above are set, the IMU thread runs before the constructor finishes
+
+    volatile double gyro_rate;
+    volatile double gyro_rate_timestamp;
+    volatile double gyro_bias;
+    volatile double cross_check_discrepancy;
+
+    /**
+     * Constructs the IMUGyro class at the maximum nav6 update rate.
+     * @param serial_port stream to read nav6 data from
+     * @param low_latency true to block on serial data instead of polling
+     */
+    public IMUGyro(SerialStream serial_port, boolean low_latency) {
+        super(serial_port, MAX_UPDATE_RATE_HZ, low_latency);
+        gyro_update_data = new IMUProtocol.GyroUpdate();
+        integrator = new GyroIntegrator(STILL_RATE, STILL_TIME, BIAS_GAIN, DRIFT_GAIN);
+        linear_accel = new Vector3();
+        world_linear_accel = new Vector3();
+        checking = true; // take the initial yaw from the fused orientation
+        gyro_ready = true;
+    }
+
+    /**
+     * Constructs the IMUGyro class at the maximum nav6 update rate.
+     * @param serial_port BufferingSerialPort object to use
+     * @param low_latency true to block on serial data instead of polling
+     */
+    public IMUGyro(SerialPort serial_port, boolean low_latency) {
+        this(new WPILibSerialStream(serial_port), low_latency);
+    }
+
+    //@Override
+    protected int decodePacketHandler(ByteBuffer received_data, int offset, int bytes_remaining) {
+
+        if (!gyro_ready) {
+            return super.decodePacketHandler(received_data, offset, bytes_remaining);
+        }
+        int packet_length = IMUProtocol.decodeGyroUpdate(received_data, offset, bytes_remaining, gyro_update_data);
+        if (packet_length > 0) {
+            setGyro(gyro_update_data, getPacketTimestamp(bytes_remaining, packet_length));
+            return packet_length;
+        }
+        packet_length = super.decodePacketHandler(received_data, offset, bytes_remaining);
+        if (packet_length > 0) {
+            crossCheck(orientation.timestamp, orientation.raw_yaw);
+        }
+        return packet_length;
+    }
+
+    /**
+     * Returns the bias corrected gyro rate from the most recent gyro
+     * packet, or the rate between the last two packets while the
+     * nav6 is sending quaternion packets for a cross check.
+     * @return The yaw rate in degrees per second.
+     */
+    public double getYawRate() {
+        double timestamp = gyro_rate_timestamp;
+        if (getLastUpdateTimestamp() - timestamp <= MAX_GYRO_RATE_AGE) {
+            return gyro_rate;
+        }
+        return super.getYawRate();
+    }
+
+    /**
+     * Returns the gyro bias learned while the robot was still.
+     * @return The bias in degrees per second.
+     */
+    public double getGyroBias() {
+        return gyro_bias;
+    }
+
+    /**
+     * Returns the fused yaw minus the integrated gyro yaw at the most
+     * recent cross check, i.e. the drift over one CROSS_CHECK_PERIOD.
+     * @return The discrepancy in degrees.
+     */
+    public double getCrossCheckDiscrepancy() {
+        return cross_check_discrepancy;
+    }
+
+    private void setGyro(IMUProtocol.GyroUpdate raw_update, double timestamp) {
+
+        // nav6 yaw is clockwise positive, the gyro z axis points up
+        double raw_rate = -raw_update.gyro_z * (gyro_fsr_dps / 32768.0);
+        integrator.update(timestamp, raw_rate);
+
+        Vector3 gravity = quaternion_orientation.gravity;
+        linear_accel.set((float) ((raw_update.accel_x / (32768.0 / accel_fsr_g)) - gravity.x),
+                (float) ((raw_update.accel_y / (32768.0 / accel_fsr_g)) - gravity.y),
+                (float) ((raw_update.accel_z / (32768.0 / accel_fsr_g)) - gravity.z));
+        quaternion_orientation.q.rotate(world_linear_accel.set(linear_accel));
+        updateWorldLinearAccelHistory(world_linear_accel.x, world_linear_accel.y, world_linear_accel.z);
+
+        float yaw = (float) integrator.getYaw();
+        // pitch, roll, compass heading, quaternion and temperature keep the latest quaternion packet's values
+        orientation.beginWrite();
+        orientation.timestamp = timestamp;
+        orientation.raw_yaw = yaw;
+        orientation.world_linear_accel_x = world_linear_accel.x;
+        orientation.world_linear_accel_y = world_linear_accel.y;
+        orientation.world_linear_accel_z = world_linear_accel.z;
+        orientation.linear_accel_x = linear_accel.x;
+        orientation.linear_accel_y = linear_accel.y;
+        orientation.endWrite();
+        updateYawHistory(yaw);
+
+        gyro_rate = integrator.getRate();
+        gyro_rate_timestamp = timestamp;
+        gyro_bias = integrator.getBias();
+
+        if (!checking && timestamp - gyro_stream_start >= CROSS_CHECK_PERIOD) {
+            checking = true;
+            cross_check_packet_count = 0;
+            setUpdateType(IMUProtocol.MSGID_QUATERNION_UPDATE);
+        }
+    }
+
+    private void crossCheck(double timestamp, float fused_yaw) {
+
+        if (!checking) {
+            integrator.setYaw(timestamp, fused_yaw); // late packet from before the switch to the gyro stream
+            return;
+        }
+        if (cross_check_packet_count == 0 && gyro_rate_timestamp > 0) {
+            integrator.correct(timestamp, fused_yaw, 1.0);
+            cross_check_discrepancy = integrator.getDiscrepancy();
+        } else {
+            integrator.setYaw(timestamp, fused_yaw);
+        }
+        cross_check_packet_count++;
+        if (cross_check_packet_count >= CROSS_CHECK_PACKETS) {
+            checking = false;
+            gyro_stream_start = timestamp;
+            setUpdateType(IMUProtocol.MSGID_GYRO_UPDATE);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.kauailabs.nav6.frc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.kauailabs.nav6.IMUProtocol;
+import com.kauailabs.nav6.ReplaySerialStream;
+
+/**
+ * Replays a serial capture through the robot's own IMU classes, without a
+ * roboRIO. The capture is fed to an IMUAdvanced (or IMU with --ypr, IMUGyro
+ * with --gyro) through its SerialStream constructor, so the IMU thread, framer
+ * and decoders that run are exactly the ones on the robot. Reports packet
+ * counts and decode throughput, and with --dump prints the orientation after
+ * every decoded packet so output from two versions of the decoder can be diffed.
+ * The IMU classes extend WPILib's SensorBase, so wpilibj.jar has to be on the
+ * classpath; nothing that needs the roboRIO is called.
+ *
+ *     java com.kauailabs.nav6.frc.IMUReplay capture.bin [--realtime] [--dump] [--ypr | --gyro]
+ * @author afiolmahon
+ */
+public class IMUReplay {
+
+    private static final byte UPDATE_RATE_HZ = 100;
+
+    private static boolean dump = false;
+    private static double max_discrepancy = 0;
+    private static final OrientationSample sample = new OrientationSample();
+
+    /**
+     * Called on the IMU thread after each packet the IMU decoded
+     */
+    private static void packetDecoded(IMU imu) {
+        if (imu instanceof IMUGyro) {
+            max_discrepancy = Math.max(max_discrepancy, Math.abs(((IMUGyro) imu).getCrossCheckDiscrepancy()));
+        }
+        if (dump) {
+            OrientationSample o = imu.getOrientation(sample);
+            System.out.println(o.timestamp + " " + o.yaw + " " + o.pitch + " " + o.roll + " " + o.compass_heading + " "
+                    + imu.getYawRate() + " " + o.world_linear_accel_x + " " + o.world_linear_accel_y + " "
+                    + o.world_linear_accel_z + " " + o.linear_accel_x + " " + o.linear_accel_y);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: IMUReplay capture.bin [--realtime] [--dump] [--ypr | --gyro]");
+            return;
+        }
+        boolean real_time = false;
+        String mode = "quaternion";
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--realtime")) real_time = true;
+            if (args[i].equals("--dump")) dump = true;
+            if (args[i].equals("--ypr")) mode = "ypr";
+            if (args[i].equals("--gyro")) mode = "gyro";
+        }
+        ReplaySerialStream stream = new ReplaySerialStream(new File(args[0]), real_time);
+
+        long start = System.nanoTime();
+        IMU imu;
+        if (mode.equals("gyro")) {
+            imu = new IMUGyro(stream, true) {
+                protected int decodePacketHandler(ByteBuffer received_data, int offset, int bytes_remaining) {
+                    int packet_length = super.decodePacketHandler(received_data, offset, bytes_remaining);
+                    if (packet_length > 0) packetDecoded(this);
+                    return packet_length;
+                }
+            };
+        } else if (mode.equals("ypr")) {
+            imu = new IMU(stream, UPDATE_RATE_HZ, true) {
+                protected int decodePacketHandler(ByteBuffer received_data, int offset, int bytes_remaining) {
+                    int packet_length = super.decodePacketHandler(received_data, offset, bytes_remaining);
+                    if (packet_length > 0) packetDecoded(this);
+                    return packet_length;
+                }
+            };
+        } else {
+            imu = new IMUAdvanced(stream, UPDATE_RATE_HZ, true) {
+                protected int decodePacketHandler(ByteBuffer received_data, int offset, int bytes_remaining) {
+                    int packet_length = super.decodePacketHandler(received_data, offset, bytes_remaining);
+                    if (packet_length > 0) packetDecoded(this);
+                    return packet_length;
+                }
+            };
+        }
+        while (!stream.isDrained()) {
+            Thread.sleep(1);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        double packets = imu.getUpdateCount();
+        System.out.println("Capture length: " + stream.getDuration() + " s, replayed in " + seconds + " s as " + mode);
+        System.out.println("Packets: " + (long) packets + " (quaternion " + (long) imu.getUpdateCount(IMUProtocol.MSGID_QUATERNION_UPDATE)
+                + ", ypr " + (long) imu.getUpdateCount(IMUProtocol.MSGID_YPR_UPDATE)
+                + ", gyro " + (long) imu.getUpdateCount(IMUProtocol.MSGID_GYRO_UPDATE)
+                + ", stream response " + (long) imu.getStreamResponseCount() + ")");
+        System.out.println("Dropped: " + (long) imu.getDroppedPacketCount() + " packets (" + (long) imu.getChecksumFailureCount() + " checksum failures), "
+                + (long) imu.getDroppedByteCount() + " bytes, "
+                + (long) imu.getResyncCount() + " resyncs, " + (long) imu.getSerialResetCount() + " serial resets");
+        if (imu instanceof IMUGyro) {
+            System.out.println("Gyro bias: " + ((IMUGyro) imu).getGyroBias() + " deg/s, largest cross check discrepancy: "
+                    + max_discrepancy + " deg");
+        }
+        System.out.println("Throughput: " + (int) (packets / seconds) + " packets/s");
+        System.exit(0); // the IMU thread keeps waiting for data
+    }
+}
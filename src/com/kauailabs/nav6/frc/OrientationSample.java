@@ -0,0 +1,50 @@
+package com.kauailabs.nav6.frc;
+
+/**
+ * Everything decoded from one nav6 update packet.
+ *
+ * Filled in by IMU.getOrientation, which copies the latest packet's values
+ * so they all came from the same packet. The caller owns the sample and can
+ * reuse it for every call, nothing is allocated.
+ *
+ * Values the nav6 only sends in quaternion update packets (quaternion,
+ * acceleration and temperature) are 0 when using the IMU class.
+ * @author afiolmahon
+ */
+public class OrientationSample {
+
+    /** FPGA time at which the packet finished arriving, in seconds */
+    public double timestamp;
+    /** Yaw reported by the nav6, in degrees (-180 to 180) */
+    public float raw_yaw;
+    /** User yaw offset that was subtracted from raw_yaw */
+    public double yaw_offset;
+    /** Yaw with the user offset applied, in degrees (-180 to 180) */
+    public float yaw;
+    public float pitch;
+    public float roll;
+    public float compass_heading;
+    public float quaternion_w;
+    public float quaternion_x;
+    public float quaternion_y;
+    public float quaternion_z;
+    /** Acceleration with gravity removed, rotated into the world frame, in g */
+    public float world_linear_accel_x;
+    public float world_linear_accel_y;
+    public float world_linear_accel_z;
+    /** Acceleration with gravity removed, along the nav6 board axes, in g */
+    public float linear_accel_x;
+    public float linear_accel_y;
+    public float temp_c;
+
+    static float applyYawOffset(float raw_yaw, double yaw_offset) {
+        float calculated_yaw = (float) (raw_yaw - yaw_offset);
+        if (calculated_yaw < -180) {
+            calculated_yaw += 360;
+        }
+        if (calculated_yaw > 180) {
+            calculated_yaw -= 360;
+        }
+        return calculated_yaw;
+    }
+}
@@ -0,0 +1,84 @@
+package com.kauailabs.nav6.frc;
+
+/**
+ * The latest packet's orientation, written in place by the IMU thread and
+ * copied out by any number of readers without either side allocating.
+ *
+ * The sequence counter makes this a seqlock. The IMU thread makes it odd
+ * before changing any field and even again once every field is written. A
+ * reader copies the fields between two reads of the counter and starts over
+ * if the counter was odd or changed. Every field is volatile, so each field
+ * access is ordered with the counter accesses around it and a copy that
+ * passes the check holds values from one packet only. A single field can be
+ * read directly without the counter.
+ * @author afiolmahon
+ */
+final class SharedOrientation {
+
+    private static final int SPIN_LIMIT = 16; // retries before yielding to a writer that was preempted mid-update
+
+    private volatile int sequence = 0;
+
+    volatile double timestamp;
+    volatile float raw_yaw;
+    volatile float pitch;
+    volatile float roll;
+    volatile float compass_heading;
+    volatile float quaternion_w;
+    volatile float quaternion_x;
+    volatile float quaternion_y;
+    volatile float quaternion_z;
+    volatile float world_linear_accel_x;
+    volatile float world_linear_accel_y;
+    volatile float world_linear_accel_z;
+    volatile float linear_accel_x;
+    volatile float linear_accel_y;
+    volatile float temp_c;
+
+    /**
+     * Call on the IMU thread before writing any field
+     */
+    void beginWrite() {
+        sequence = sequence + 1; // only the IMU thread writes
+    }
+
+    /**
+     * Call on the IMU thread after writing every field of a packet
+     */
+    void endWrite() {
+        sequence = sequence + 1;
+    }
+
+    /**
+     * Copy every field from the same packet into out, the yaw offset is left to the caller
+     */
+    void read(OrientationSample out) {
+        int attempts = 0;
+        while (true) {
+            int start = sequence;
+            if ((start & 1) == 0) {
+                out.timestamp = timestamp;
+                out.raw_yaw = raw_yaw;
+                out.pitch = pitch;
+                out.roll = roll;
+                out.compass_heading = compass_heading;
+                out.quaternion_w = quaternion_w;
+                out.quaternion_x = quaternion_x;
+                out.quaternion_y = quaternion_y;
+                out.quaternion_z = quaternion_z;
+                out.world_linear_accel_x = world_linear_accel_x;
+                out.world_linear_accel_y = world_linear_accel_y;
+                out.world_linear_accel_z = world_linear_accel_z;
+                out.linear_accel_x = linear_accel_x;
+                out.linear_accel_y = linear_accel_y;
+                out.temp_c = temp_c;
+                if (sequence == start) {
+                    return;
+                }
+            }
+            if (++attempts >= SPIN_LIMIT) {
+                Thread.yield();
+            }
+        }
+    }
+}
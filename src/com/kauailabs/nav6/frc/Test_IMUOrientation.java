@@ -0,0 +1,179 @@
+package com.kauailabs.nav6.frc;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import com.kauailabs.nav6.IMUProtocol;
+import com.kauailabs.nav6.SerialStream;
+
+/**
+ * Runs IMU, IMUAdvanced and IMUGyro on a simulated nav6 and counts the bytes their IMU thread allocates per
+ * packet, through the whole read, frame, decode and publish path. Also reads orientations from a second thread
+ * while YPR packets are published and checks that no copy mixes two packets.
+ * The IMU classes extend WPILib's SensorBase, so wpilibj.jar has to be on the classpath; nothing that needs the
+ * roboRIO is called.
+ * @author afiolmahon
+ */
+public class Test_IMUOrientation {
+
+	private static final int WARMUP_PACKETS = 50000; // long enough for the JIT to compile the packet path
+	private static final int MEASURED_PACKETS = 200000;
+	private static final int TORN_READ_PACKETS = 500000;
+	private static final int PACKET_VARIANTS = 360;
+
+	private static int failures = 0;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		SimulatedNav6 nav6 = new SimulatedNav6(IMUProtocol.MSGID_YPR_UPDATE);
+		measureAllocation("IMU (ypr)", new IMU(nav6, (byte) 100, true), nav6);
+		nav6 = new SimulatedNav6(IMUProtocol.MSGID_QUATERNION_UPDATE);
+		measureAllocation("IMUAdvanced (quaternion)", new IMUAdvanced(nav6, (byte) 100, true), nav6);
+		nav6 = new SimulatedNav6(IMUProtocol.MSGID_QUATERNION_UPDATE);
+		IMUGyro gyro = new IMUGyro(nav6, true);
+		measureAllocation("IMUGyro (gyro with quaternion cross checks)", gyro, nav6);
+		check(gyro.getUpdateCount(IMUProtocol.MSGID_GYRO_UPDATE) > gyro.getUpdateCount(IMUProtocol.MSGID_QUATERNION_UPDATE),
+				"IMUGyro spent most packets on the gyro stream");
+
+		nav6 = new SimulatedNav6(IMUProtocol.MSGID_YPR_UPDATE);
+		IMU imu = new IMU(nav6, (byte) 100, true);
+		OrientationSample sample = new OrientationSample();
+		long reads = 0;
+		long torn = 0;
+		while (imu.getUpdateCount() < TORN_READ_PACKETS) {
+			imu.getOrientation(sample);
+			// every field of a simulated YPR packet holds the same value
+			if (sample.pitch != sample.raw_yaw || sample.roll != sample.raw_yaw || sample.compass_heading != sample.raw_yaw) torn++;
+			reads++;
+		}
+		nav6.close();
+		System.out.println("Torn reads: " + torn + " of " + reads + " reads over " + (long) imu.getUpdateCount() + " packets");
+		check(reads > 0 && torn == 0, "no copy mixes two packets");
+		System.out.println("Failures: " + failures);
+		System.exit(0); // the IMU threads are parked in read
+	}
+
+	private static void measureAllocation(String name, IMU imu, SimulatedNav6 nav6) throws InterruptedException {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread_id = imu.m_thread.getId();
+		waitForUpdates(imu, WARMUP_PACKETS);
+		double start_count = imu.getUpdateCount();
+		double start_dropped = imu.getDroppedPacketCount(); // the IMU base class asks for YPR packets before a subclass changes the stream
+		long start_bytes = threads.getThreadAllocatedBytes(thread_id);
+		waitForUpdates(imu, start_count + MEASURED_PACKETS);
+		long bytes = threads.getThreadAllocatedBytes(thread_id) - start_bytes;
+		double packets = imu.getUpdateCount() - start_count;
+		double dropped = imu.getDroppedPacketCount() - start_dropped;
+		nav6.close();
+		double per_packet = bytes / packets;
+		System.out.println(name + ": " + bytes + " bytes over " + (long) packets + " packets, " + per_packet + " B/packet, "
+				+ (long) dropped + " dropped");
+		check(per_packet < 1.0 && dropped == 0, name + ": under 1 byte allocated per packet");
+	}
+
+	private static void waitForUpdates(IMU imu, double count) throws InterruptedException {
+		while (imu.getUpdateCount() < count) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static void check(boolean passed, String description) {
+		if (!passed) failures++;
+		System.out.println((passed ? "PASS: " : "FAIL: ") + description);
+	}
+
+	/**
+	 * Sends one packet per read of whichever stream the IMU last asked for, 10 ms apart on its own clock
+	 */
+	private static class SimulatedNav6 implements SerialStream {
+		private final byte[][] ypr = new byte[PACKET_VARIANTS][];
+		private final byte[][] quaternion = new byte[PACKET_VARIANTS][];
+		private final byte[][] gyro = new byte[PACKET_VARIANTS][];
+		private volatile byte stream_type;
+		private volatile boolean closed = false;
+		private int next = 0;
+		private double timestamp = 0;
+
+		SimulatedNav6(byte stream_type) {
+			this.stream_type = stream_type;
+			Random random = new Random(1218);
+			for (int i = 0; i < PACKET_VARIANTS; i++) {
+				float angle = i - 179.5f;
+				ypr[i] = packet("!y" + String.format("%07.2f%07.2f%07.2f%07.2f", angle, angle, angle, angle));
+				double w = random.nextGaussian(), x = random.nextGaussian(), y = random.nextGaussian(), z = random.nextGaussian();
+				double norm = Math.sqrt(w * w + x * x + y * y + z * z);
+				quaternion[i] = packet("!q" + hex(w / norm * 16384.0) + hex(x / norm * 16384.0) + hex(y / norm * 16384.0) + hex(z / norm * 16384.0)
+						+ hex(random.nextInt(8192) - 4096) + hex(random.nextInt(8192) - 4096) + hex(random.nextInt(8192) + 12288)
+						+ hex(0) + hex(0) + hex(0) + String.format("%07.2f", 30.0f));
+				gyro[i] = packet("!g" + hex(0) + hex(0) + hex(random.nextInt(2000) - 1000)
+						+ hex(random.nextInt(8192) - 4096) + hex(random.nextInt(8192) - 4096) + hex(random.nextInt(8192) + 12288)
+						+ hex(0) + hex(0) + hex(0) + hex(30));
+			}
+		}
+
+		private static String hex(double value) {
+			return String.format("%04X", Math.round(value) & 0xFFFF);
+		}
+
+		private static byte[] packet(String content) {
+			byte[] packet = new byte[content.length() + 4];
+			for (int i = 0; i < content.length(); i++) packet[i] = (byte) content.charAt(i);
+			IMUProtocol.encodeTermination(packet, packet.length, content.length());
+			return packet;
+		}
+
+		/**
+		 * Park the IMU thread in its next read
+		 */
+		void close() {
+			closed = true;
+		}
+
+		public int read(ByteBuffer buffer) {
+			while (closed) {
+				try {
+					Thread.sleep(1000);
+				} catch (InterruptedException ex) {
+					return 0;
+				}
+			}
+			byte type = stream_type;
+			byte[] packet = (type == IMUProtocol.MSGID_YPR_UPDATE) ? ypr[next] : (type == IMUProtocol.MSGID_GYRO_UPDATE) ? gyro[next] : quaternion[next];
+			if (buffer.remaining() < packet.length) return 0;
+			next = (next + 1) % PACKET_VARIANTS;
+			buffer.put(packet);
+			timestamp += 0.01;
+			return packet.length;
+		}
+
+		public byte[] read(int count) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void reset() {}
+
+		public void flush() {}
+
+		public void setReadBufferSize(int size) {}
+
+		public void setTimeout(double timeout) {}
+
+		public void enableTermination(char terminator) {}
+
+		public int getBytesReceived() {
+			return closed ? 0 : IMUProtocol.IMU_PROTOCOL_MAX_MESSAGE_LENGTH;
+		}
+
+		public int write(byte[] buffer, int count) {
+			if (count > 2 && buffer[1] == IMUProtocol.MSGID_STREAM_CMD) stream_type = buffer[2];
+			return count;
+		}
+
+		public double getTimestamp() {
+			return timestamp;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.kauailabs.nav6.frc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import com.kauailabs.nav6.SerialStream;
+
+import edu.wpi.first.wpilibj.SerialPort;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.hal.HALUtil;
+import edu.wpi.first.wpilibj.hal.SerialPortJNI;
+
+/**
+ * SerialStream backed by a roboRIO serial port, timestamps come from the FPGA.
+ *
+ * SerialPort.read allocates two direct buffers and an array on every call. When the
+ * port is known, read(ByteBuffer) calls the HAL directly instead, so the bytes land
+ * in the caller's direct buffer without any allocation or copy.
+ * @author afiolmahon
+ */
+public class WPILibSerialStream implements SerialStream {
+
+    private final SerialPort serial_port;
+    private final byte port; // HAL port number, or -1 if unknown
+    private final IntBuffer status = ByteBuffer.allocateDirect(4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+
+    // The HAL reads into the start of a buffer regardless of its position, so reading at a
+    // position needs a slice starting there; slices are made once per position and reused
+    private ByteBuffer slice_source;
+    private ByteBuffer[] slices;
+
+    public WPILibSerialStream(SerialPort serial_port) {
+        this.serial_port = serial_port;
+        this.port = -1;
+    }
+
+    /**
+     * @param serial_port open port
+     * @param port the port serial_port was opened on, enables direct reads
+     */
+    public WPILibSerialStream(SerialPort serial_port, SerialPort.Port port) {
+        this.serial_port = serial_port;
+        this.port = (byte) port.getValue();
+    }
+
+    public void reset() {
+        serial_port.reset();
+    }
+
+    public void flush() {
+        serial_port.flush();
+    }
+
+    public void setReadBufferSize(int size) {
+        serial_port.setReadBufferSize(size);
+    }
+
+    public void setTimeout(double timeout) {
+        serial_port.setTimeout(timeout);
+    }
+
+    public void enableTermination(char terminator) {
+        serial_port.enableTermination(terminator);
+    }
+
+    public int getBytesReceived() {
+        return serial_port.getBytesReceived();
+    }
+
+    public byte[] read(int count) {
+        return serial_port.read(count);
+    }
+
+    public int read(ByteBuffer buffer) {
+        int count = buffer.remaining();
+        if (port < 0 || !buffer.isDirect()) {
+            byte[] data = serial_port.read(count);
+            buffer.put(data);
+            return data.length;
+        }
+        int position = buffer.position();
+        int bytes_read = SerialPortJNI.serialRead(port, sliceAt(buffer, position), count, status);
+        HALUtil.checkStatus(status);
+        buffer.position(position + bytes_read);
+        return bytes_read;
+    }
+
+    public int write(byte[] buffer, int count) {
+        return serial_port.write(buffer, count);
+    }
+
+    public double getTimestamp() {
+        return Timer.getFPGATimestamp();
+    }
+
+    private ByteBuffer sliceAt(ByteBuffer buffer, int position) {
+        if (buffer != slice_source) {
+            slice_source = buffer;
+            slices = new ByteBuffer[buffer.capacity()];
+        }
+        ByteBuffer slice = slices[position];
+        if (slice == null) {
+            ByteBuffer view = buffer.duplicate();
+            view.limit(view.capacity());
+            view.position(position);
+            slice = view.slice();
+            slices[position] = slice;
+        }
+        return slice;
+    }
+}
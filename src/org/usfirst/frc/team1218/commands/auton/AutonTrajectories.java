@@ -0,0 +1,33 @@
+package org.usfirst.frc.team1218.commands.auton;
+
+import org.usfirst.frc.team1218.subsystem.swerve.trajectory.TrajectoryDefinition;
+import org.usfirst.frc.team1218.subsystem.swerve.trajectory.Waypoint;
+
+/**
+ * Trajectories used by the autons, positions are relative to where the robot starts each one.
+ * After changing anything here run the ant trajectories target to rebuild the cache the robot loads.
+ * @author afiolmahon
+ */
+public class AutonTrajectories {
+
+	private static final double MAX_VELOCITY = 6.0; //ft/s
+	private static final double MAX_ACCELERATION = 6.0; //ft/s^2
+	private static final double MAX_HEADING_RATE = 180.0; //degrees per second
+	private static final double MAX_HEADING_ACCELERATION = 360.0; //degrees per second^2
+
+	/**
+	 * Three tote auton, carry the stack 12 feet into the auto zone and slide 3 feet right without stopping at the corner
+	 */
+	public static final TrajectoryDefinition THREE_TOTE_AUTO_ZONE = new TrajectoryDefinition("ThreeToteAutoZone",
+			MAX_VELOCITY, MAX_ACCELERATION, MAX_HEADING_RATE, MAX_HEADING_ACCELERATION, -90, -90,
+			new Waypoint(0, 0),
+			new Waypoint(0, 12),
+			new Waypoint(3, 12));
+
+	/**
+	 * Every trajectory written to the cache
+	 */
+	public static final TrajectoryDefinition[] ALL = {
+		THREE_TOTE_AUTO_ZONE
+	};
+}
@@ -10,13 +10,16 @@ import org.usfirst.frc.team1218.commands.elevator.DelayUntilToteDetected;
 import org.usfirst.frc.team1218.commands.elevator.ElevatorHoldPositionWhenToteDetected;
 import org.usfirst.frc.team1218.commands.fourBar.SeekPosition;
 import org.usfirst.frc.team1218.commands.swerve.AutoDrive;
+import org.usfirst.frc.team1218.commands.swerve.FollowTrajectory;
 import org.usfirst.frc.team1218.commands.swerve.MaintainRobotHeading;
 import org.usfirst.frc.team1218.commands.swerve.SetHeadingController;
 import org.usfirst.frc.team1218.commands.swerve.VisionAlign;
 import org.usfirst.frc.team1218.commands.toteIntake.AutoToteIntake;
 import org.usfirst.frc.team1218.commands.toteIntake.SetToteIntake;
+import org.usfirst.frc.team1218.robot.Robot;
 import org.usfirst.frc.team1218.subsystem.binIntake.BinIntake;
 import org.usfirst.frc.team1218.subsystem.elevator.Elevator;
+import org.usfirst.frc.team1218.subsystem.swerve.trajectory.Trajectory;
 
 import edu.wpi.first.wpilibj.command.CommandGroup;
 
@@ -77,8 +80,10 @@ public class Auton_ThreeTote extends CommandGroup {
     	addSequential(new DelayUntilToteDetected(6.0));
     	addParallel(new ElevatorHoldPositionWhenToteDetected(Elevator.BOTTOM_SOFT_LIMT));
     	
-    	addSequential(new AutoDrive(12.0, 0, -90, 2.5));
+    	//Drive into the auto zone and slide off the stack in one motion, totes are released as the robot rounds the corner
+    	Trajectory autoZone = Robot.trajectoryCache.get(AutonTrajectories.THREE_TOTE_AUTO_ZONE);
+    	addParallel(new FollowTrajectory(autoZone, true));
+    	addSequential(new Delay(autoZone.getWaypointTime(1)));
     	addSequential(new SetToteIntake(-0.8));
-    	addSequential(new AutoDrive(3.0, 90, -90, 2.4));
     }
 }
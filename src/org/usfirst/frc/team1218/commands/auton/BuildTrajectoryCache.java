@@ -0,0 +1,19 @@
+package org.usfirst.frc.team1218.commands.auton;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.usfirst.frc.team1218.subsystem.swerve.trajectory.TrajectoryCache;
+
+/**
+ * Off robot entry point that generates every auton trajectory into the cache file, run by the ant trajectories target
+ * @author afiolmahon
+ */
+public class BuildTrajectoryCache {
+
+	public static void main(String[] args) throws IOException {
+		File file = new File((args.length > 0) ? args[0] : "trajectories.bin");
+		TrajectoryCache.write(file, AutonTrajectories.ALL);
+		System.out.println("Wrote " + AutonTrajectories.ALL.length + " trajectories to " + file.getAbsolutePath() + " (" + file.length() + " bytes)");
+	}
+}
@@ -2,7 +2,6 @@ package org.usfirst.frc.team1218.commands.auton;
 
 import org.usfirst.frc.team1218.robot.Robot;
 import org.usfirst.frc.team1218.subsystem.binIntake.BinIntake;
-import org.usfirst.frc.team1218.subsystem.swerve.math.Vector;
 
 import edu.wpi.first.wpilibj.command.Command;
 
@@ -27,7 +26,7 @@ public class SwivelAndDrop extends Command {
 
     // Called just before this Command runs the first time
     protected void initialize() {
-    	Robot.swerveDrive.powerDrive(new Vector(0, 0), rotationSpeed);
+    	Robot.swerveDrive.powerDrive(0, 0, rotationSpeed);
     }
 
     // Called repeatedly when this Command is scheduled to run
@@ -45,7 +44,7 @@ public class SwivelAndDrop extends Command {
 
     // Called once after isFinished returns true
     protected void end() {
-    	Robot.swerveDrive.powerDrive(new Vector(0, 0), 0);
+    	Robot.swerveDrive.powerDrive(0, 0, 0);
     }
 
     // Called when another command which requires one or more of the same
@@ -1,9 +1,10 @@
 package org.usfirst.frc.team1218.commands.swerve;
 
+import org.usfirst.frc.team1218.control.LoopPIDController;
 import org.usfirst.frc.team1218.robot.Robot;
-import org.usfirst.frc.team1218.subsystem.swerve.math.Vector;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Pose;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Vector2;
 
-import edu.wpi.first.wpilibj.PIDController;
 import edu.wpi.first.wpilibj.PIDOutput;
 import edu.wpi.first.wpilibj.PIDSource;
 import edu.wpi.first.wpilibj.Timer;
@@ -15,21 +16,23 @@ import edu.wpi.first.wpilibj.command.Command;
  */
 public class AutoDrive extends Command implements PIDSource, PIDOutput {
 
-	private final PIDController distanceController;
-	private final double direction;
+	private final LoopPIDController distanceController;
 	private final double heading;
+	private final Vector2 directionVector;
+	private final Vector2 power = new Vector2();
 	
 	private static final double P = 2.0;
 	private static final double I = 0.001;
 	private static final double D = 1;
+	private static final double PERIOD = 0.02; //drive encoder positions arrive in 20 ms CAN status frames
 		
     public AutoDrive(double distance, double direction, double heading, double maxSpeed) {
     	requires(Robot.swerveDrive);
-    	distanceController = new PIDController(P, I, D, this, this);
+    	distanceController = new LoopPIDController(P, I, D, this, this, PERIOD);
     	distanceController.setSetpoint(Math.abs(distance)); //TODO Could be implemented more nicely
     	distanceController.setOutputRange(-maxSpeed, maxSpeed);
-    	this.direction = direction;
     	this.heading = heading;
+    	directionVector = new Vector2().setPolar(direction, 1.0);
     }
     
     protected void initialize() {
@@ -47,9 +50,7 @@ public class AutoDrive extends Command implements PIDSource, PIDOutput {
     
     public void pidWrite(double magnitude) {
     	//System.out.println("autodrive output: " + magnitude);
-    	Vector power = new Vector(1, 1);
-    	power.setAngle(direction);
-    	power.setMagnitude(magnitude);
+    	power.set(directionVector).scale(magnitude);
     	Robot.swerveDrive.powerDrive(power, 0);
     }
 
@@ -60,13 +61,9 @@ public class AutoDrive extends Command implements PIDSource, PIDOutput {
     }
 
     protected void end() {
-    	Vector distance = new Vector(1, 1);
-    	distance.setMagnitude(Robot.swerveDrive.getAverageDistanceDriven());
-    	distance.setAngle(direction);
-    	Robot.swerveDrive.totalDistanceDriven.add(distance );
     	distanceController.disable();
     	Robot.swerveDrive.disableHeadingController();
-    	System.out.println("autodrive ended, total distance is : " + Robot.swerveDrive.totalDistanceDriven.debug(""));
+    	System.out.println("autodrive ended, pose is : " + Robot.swerveDrive.getPose(new Pose()));
     }
 
     protected void interrupted() {
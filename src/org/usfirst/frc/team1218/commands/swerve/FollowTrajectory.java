@@ -0,0 +1,75 @@
+package org.usfirst.frc.team1218.commands.swerve;
+
+import org.usfirst.frc.team1218.robot.Robot;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Angle;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Pose;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Vector2;
+import org.usfirst.frc.team1218.subsystem.swerve.trajectory.Trajectory;
+import org.usfirst.frc.team1218.subsystem.swerve.trajectory.TrajectoryPoint;
+
+import edu.wpi.first.wpilibj.command.Command;
+
+/**
+ * Drive along a trajectory using its velocity as feedforward and the odometry pose for feedback
+ * @author afiolmahon
+ */
+public class FollowTrajectory extends Command {
+
+	private static final double POSITION_P = 2.0; //ft/s per foot of error
+	private static final double HEADING_P = 4.0; //degrees per second per degree of error
+	private static final double POSITION_TOLERANCE = 0.25; //feet
+	private static final double TIMEOUT_MARGIN = 1.0; //seconds allowed past the end of the trajectory
+
+	private final Trajectory trajectory;
+	private final boolean relative;
+	private final TrajectoryPoint setpoint = new TrajectoryPoint();
+	private final Pose pose = new Pose();
+	private final Vector2 velocity = new Vector2();
+	private double originX;
+	private double originY;
+	private double positionError;
+
+	/**
+	 * @param trajectory path to follow
+	 * @param relative true to treat the trajectory position as an offset from where the robot is when the command starts, heading is always field centric
+	 */
+	public FollowTrajectory(Trajectory trajectory, boolean relative) {
+		requires(Robot.swerveDrive);
+		this.trajectory = trajectory;
+		this.relative = relative;
+	}
+
+	protected void initialize() {
+		Robot.swerveDrive.getPose(pose);
+		originX = (relative) ? pose.getX() : 0;
+		originY = (relative) ? pose.getY() : 0;
+		positionError = Double.MAX_VALUE;
+		setTimeout(trajectory.getDuration() + TIMEOUT_MARGIN);
+		System.out.println("[FollowTrajectory]: Started " + trajectory.getDuration() + "s trajectory from " + pose);
+	}
+
+	protected void execute() {
+		trajectory.sample(timeSinceInitialized(), setpoint);
+		Robot.swerveDrive.getPose(pose);
+		double errorX = originX + setpoint.x - pose.getX();
+		double errorY = originY + setpoint.y - pose.getY();
+		positionError = Math.sqrt(errorX * errorX + errorY * errorY);
+		velocity.set(setpoint.velocityX + POSITION_P * errorX, setpoint.velocityY + POSITION_P * errorY).rotate(-pose.getHeading());
+		double yawRate = setpoint.headingRate + HEADING_P * Angle.get180Angle(setpoint.heading - pose.getHeading());
+		Robot.swerveDrive.driveRobotCentric(velocity.getX(), velocity.getY(), yawRate);
+	}
+
+	protected boolean isFinished() {
+		return (timeSinceInitialized() >= trajectory.getDuration() && positionError < POSITION_TOLERANCE) || isTimedOut();
+	}
+
+	protected void end() {
+		Robot.swerveDrive.driveRobotCentric(0, 0, 0);
+		Robot.swerveDrive.getPose(pose);
+		System.out.println("[FollowTrajectory]: Ended at " + pose);
+	}
+
+	protected void interrupted() {
+		end();
+	}
+}
@@ -1,7 +1,6 @@
 package org.usfirst.frc.team1218.commands.swerve;
 
 import org.usfirst.frc.team1218.robot.Robot;
-import org.usfirst.frc.team1218.subsystem.swerve.math.Vector;
 
 import edu.wpi.first.wpilibj.command.Command;
 
@@ -22,7 +21,7 @@ public class GoToHeading extends Command {
     }
 
     protected void execute() {
-    	Robot.swerveDrive.powerDrive(new Vector(0, 0), 0);
+    	Robot.swerveDrive.powerDrive(0, 0, 0);
     }
 
     protected boolean isFinished() {
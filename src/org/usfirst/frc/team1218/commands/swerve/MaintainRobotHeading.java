@@ -2,6 +2,7 @@ package org.usfirst.frc.team1218.commands.swerve;
 
 import org.usfirst.frc.team1218.robot.OI;
 import org.usfirst.frc.team1218.robot.Robot;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Vector2;
 
 import edu.wpi.first.wpilibj.command.Command;
 
@@ -12,6 +13,8 @@ public class MaintainRobotHeading extends Command {
 	
 	boolean canFinish = false;
 	double heading = 0;
+	private final Vector2 translation = new Vector2();
+	
 	public MaintainRobotHeading() {
 		requires(Robot.swerveDrive);
 	}
@@ -29,7 +32,7 @@ public class MaintainRobotHeading extends Command {
 	@Override
 	protected void execute() {
 		Robot.swerveDrive.powerDrive(
-				OI.getDriverLeftJoystickVector(),
+				OI.getDriverLeftJoystickVector(translation),
 				OI.getSwerveRotationAxis());
 	}
 
@@ -2,6 +2,7 @@ package org.usfirst.frc.team1218.commands.swerve;
 
 import org.usfirst.frc.team1218.robot.OI;
 import org.usfirst.frc.team1218.robot.Robot;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Vector2;
 
 import edu.wpi.first.wpilibj.command.Command;
 
@@ -11,6 +12,9 @@ import edu.wpi.first.wpilibj.command.Command;
  *
  */
 public class Swerve extends Command {
+	
+	private final Vector2 translation = new Vector2();
+	
 	public Swerve() {
 		requires(Robot.swerveDrive);
 	}
@@ -21,7 +25,7 @@ public class Swerve extends Command {
 	@Override
 	protected void execute() {
 		Robot.swerveDrive.powerDrive(
-				OI.getDriverLeftJoystickVector(),
+				OI.getDriverLeftJoystickVector(translation),
 				OI.getSwerveRotationAxis());
 	}
 	
@@ -2,7 +2,7 @@ package org.usfirst.frc.team1218.commands.swerve;
 
 import org.usfirst.frc.team1218.robot.OI;
 import org.usfirst.frc.team1218.robot.Robot;
-import org.usfirst.frc.team1218.subsystem.swerve.math.Vector;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Vector2;
 
 import edu.wpi.first.wpilibj.command.Command;
 
@@ -12,6 +12,8 @@ import edu.wpi.first.wpilibj.command.Command;
  */
 public class TankDrive extends Command {
 	
+	private final Vector2 translation = new Vector2();
+	
 	public TankDrive() {
 		requires(Robot.swerveDrive);
 	}
@@ -24,7 +26,8 @@ public class TankDrive extends Command {
 	@Override
 	protected void execute() {
 		Robot.swerveDrive.powerDrive(
-				new Vector(0, OI.getDriverLeftJoystickVector().getY()),
+				0,
+				OI.getDriverLeftJoystickVector(translation).getY(),
 				OI.getSwerveRotationAxis());
 	}
 	
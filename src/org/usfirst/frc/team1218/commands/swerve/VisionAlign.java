@@ -1,11 +1,12 @@
 package org.usfirst.frc.team1218.commands.swerve;
 
+import org.usfirst.frc.team1218.control.LoopPIDController;
 import org.usfirst.frc.team1218.robot.Robot;
-import org.usfirst.frc.team1218.subsystem.swerve.math.Vector;
 
-import edu.wpi.first.wpilibj.PIDController;
 import edu.wpi.first.wpilibj.PIDOutput;
 import edu.wpi.first.wpilibj.PIDSource;
+import edu.wpi.first.wpilibj.Preferences;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.command.Command;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
@@ -15,13 +16,21 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 public class VisionAlign extends Command implements PIDSource, PIDOutput{
 
 	private double NOT_CONNECTED = 3;
-	private PIDController PID;
+	private LoopPIDController PID;
 	
 	private final double P = -0.2;
 	private final double I = -0.0;
 	private final double D = -1.0;
 	
 	private final double MAX_POWER = 0.35;
+	private static final double PERIOD = LoopPIDController.REFERENCE_PERIOD; //RoboRealm results change slower than the control loop, so keep the old rate
+	
+	//Unmeasured estimate, xDistance spans -5 to 5 across the camera field of view which is roughly 47 degrees
+	private static final double X_DISTANCE_PER_DEGREE = 10.0 / 47.0;
+	
+	//Seconds RoboRealm frames take to reach the dashboard, from the visionLatency preference. The default of 0 leaves
+	//xDistance uncompensated until the latency and field of view are measured
+	private volatile double visionLatency = 0;
 	
 	private final double forwardPower;
 	
@@ -39,7 +48,7 @@ public class VisionAlign extends Command implements PIDSource, PIDOutput{
     
     void generalSetup(){
     	
-    	PID = new PIDController(P, I, D, this, this);
+    	PID = new LoopPIDController(P, I, D, this, this, PERIOD);
     	PID.setInputRange(-5.0, 5.0);
     	PID.setOutputRange(-MAX_POWER, MAX_POWER);
     	PID.setSetpoint(0.0);
@@ -49,7 +58,7 @@ public class VisionAlign extends Command implements PIDSource, PIDOutput{
     
     public void pidWrite(double velocity){
     	System.out.println(", correcting power: " + velocity);
-    	Robot.swerveDrive.powerDrive(new Vector(forwardPower, velocity), 0);
+    	Robot.swerveDrive.powerDrive(forwardPower, velocity, 0);
     }
     
     public double pidGet() {
@@ -58,11 +67,19 @@ public class VisionAlign extends Command implements PIDSource, PIDOutput{
     		System.out.println("error: cannot connect to roborealm");
     		xRatio = 0;
     	}
-    	System.out.print("vision displacment of" +  xRatio);
+    	if (visionLatency > 0) {
+    		//Turning clockwise since the frame was captured moves the target left in the image
+    		double now = Timer.getFPGATimestamp();
+    		double headingChange = Robot.swerveDrive.getHeadingAt(now) - Robot.swerveDrive.getHeadingAt(now - visionLatency);
+    		if (headingChange > 180) headingChange -= 360;
+    		if (headingChange < -180) headingChange += 360;
+    		xRatio -= headingChange * X_DISTANCE_PER_DEGREE;
+    	}
     	return xRatio;
     }
     
     protected void initialize() {
+    	visionLatency = Preferences.getInstance().getDouble("visionLatency", 0.0);
     	Robot.swerveDrive.enableHeadingController(-90.0);
     	PID.enable();
     }
@@ -77,7 +94,7 @@ public class VisionAlign extends Command implements PIDSource, PIDOutput{
 
     protected void end() {
     	PID.disable();
-    	Robot.swerveDrive.powerDrive(new Vector(0, 0), 0);
+    	Robot.swerveDrive.powerDrive(0, 0, 0);
     	Robot.swerveDrive.disableHeadingController();
     }
 
@@ -0,0 +1,176 @@
+package org.usfirst.frc.team1218.control;
+
+import edu.wpi.first.wpilibj.CANTalon;
+
+/**
+ * CANTalon that only sends what changed.
+ * Control mode and setpoint are held until TalonOutputs flushes them once per control loop tick, and are only sent
+ * if they differ from what the Talon already has. getControlMode returns the held mode. Configuration is sent
+ * immediately, unless it matches the last configuration sent. Other reads go straight to the Talon.
+ * @author afiolmahon
+ */
+public class CoalescingTalon extends CANTalon {
+
+	private static final int UNKNOWN = -1;
+
+	private ControlMode pendingMode;
+	private double pendingSetpoint = Double.NaN;
+	private ControlMode sentMode;
+	private double sentSetpoint = Double.NaN;
+
+	private int brakeMode = UNKNOWN;
+	private int limitSwitches = UNKNOWN; //forward enabled in bit 0, reverse in bit 1
+	private int forwardSoftLimit = UNKNOWN;
+	private int reverseSoftLimit = UNKNOWN;
+	private double p = Double.NaN, i = Double.NaN, d = Double.NaN;
+
+	private long frameCount = 0;
+	private long suppressedCount = 0;
+
+	public CoalescingTalon(int deviceNumber) {
+		super(deviceNumber);
+		TalonOutputs.getInstance().add(this);
+	}
+
+	/**
+	 * @param controlPeriodMs period the Talon's control frame is sent at
+	 */
+	public CoalescingTalon(int deviceNumber, int controlPeriodMs) {
+		super(deviceNumber, controlPeriodMs);
+		TalonOutputs.getInstance().add(this);
+	}
+
+	/**
+	 * Setpoint sent at the next flush
+	 */
+	@Override
+	public synchronized void set(double setpoint) {
+		pendingSetpoint = setpoint;
+	}
+
+	/**
+	 * Setpoint sent at the next flush, Talon SRX has no sync groups so syncGroup is ignored
+	 */
+	@Override
+	public void set(double setpoint, byte syncGroup) {
+		set(setpoint);
+	}
+
+	/**
+	 * Control mode sent at the next flush
+	 */
+	@Override
+	public synchronized void changeControlMode(ControlMode mode) {
+		pendingMode = mode;
+	}
+
+	/**
+	 * @return control mode sent at the next flush if it was changed, so pidWrite checks the mode its output will run in
+	 */
+	@Override
+	public synchronized ControlMode getControlMode() {
+		return pendingMode != null ? pendingMode : super.getControlMode();
+	}
+
+	@Override
+	public synchronized void enableBrakeMode(boolean brake) {
+		int state = brake ? 1 : 0;
+		if (state == brakeMode) {
+			suppressedCount++;
+			return;
+		}
+		super.enableBrakeMode(brake);
+		brakeMode = state;
+		frameCount++;
+	}
+
+	@Override
+	public synchronized void enableLimitSwitch(boolean forward, boolean reverse) {
+		int state = (forward ? 1 : 0) | (reverse ? 2 : 0);
+		if (state == limitSwitches) {
+			suppressedCount++;
+			return;
+		}
+		super.enableLimitSwitch(forward, reverse);
+		limitSwitches = state;
+		frameCount++;
+	}
+
+	@Override
+	public synchronized void enableForwardSoftLimit(boolean enable) {
+		int state = enable ? 1 : 0;
+		if (state == forwardSoftLimit) {
+			suppressedCount++;
+			return;
+		}
+		super.enableForwardSoftLimit(enable);
+		forwardSoftLimit = state;
+		frameCount++;
+	}
+
+	@Override
+	public synchronized void enableReverseSoftLimit(boolean enable) {
+		int state = enable ? 1 : 0;
+		if (state == reverseSoftLimit) {
+			suppressedCount++;
+			return;
+		}
+		super.enableReverseSoftLimit(enable);
+		reverseSoftLimit = state;
+		frameCount++;
+	}
+
+	@Override
+	public synchronized void setPID(double p, double i, double d) {
+		if (p == this.p && i == this.i && d == this.d) {
+			suppressedCount++;
+			return;
+		}
+		super.setPID(p, i, d);
+		this.p = p;
+		this.i = i;
+		this.d = d;
+		frameCount += 3; //one parameter frame per gain
+	}
+
+	/**
+	 * @return last setpoint given to set, sent or not
+	 */
+	public synchronized double getSetpoint() {
+		return Double.isNaN(pendingSetpoint) ? 0 : pendingSetpoint;
+	}
+
+	/**
+	 * @return frames sent to the Talon since it was created
+	 */
+	public synchronized long getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * @return writes that were dropped because the Talon already had the value
+	 */
+	public synchronized long getSuppressedCount() {
+		return suppressedCount;
+	}
+
+	/**
+	 * Send the pending control mode and setpoint if they changed, a mode change always resends the setpoint
+	 */
+	synchronized void flush() {
+		boolean modeChanged = pendingMode != null && pendingMode != sentMode;
+		if (modeChanged) {
+			super.changeControlMode(pendingMode);
+			sentMode = pendingMode;
+			frameCount++;
+		}
+		if (Double.isNaN(pendingSetpoint)) return;
+		if (modeChanged || pendingSetpoint != sentSetpoint) {
+			super.set(pendingSetpoint);
+			sentSetpoint = pendingSetpoint;
+			frameCount++;
+		} else {
+			suppressedCount++;
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package org.usfirst.frc.team1218.control;
+
+import org.usfirst.frc.team1218.robot.Telemetry;
+
+/**
+ * Single fixed period thread that runs every closed loop controller on the robot, replacing the timer thread each
+ * WPILib PIDController starts for itself.
+ * Every tick is split into three phases that each visit the registered controllers in order: sample reads sensors,
+ * calculate updates outputs from those samples and write sends outputs to the hardware. All sensors are read before
+ * any output changes, and controllers never run concurrently with each other.
+ * Controllers run in ascending order value, ties run in the order they were registered. A controller registered
+ * with a divider runs every divider ticks. Jitter is how late a tick started compared to its schedule.
+ * @author afiolmahon
+ */
+public class ControlLoop implements Runnable {
+
+	public interface Controller {
+		/**
+		 * Read sensor inputs, called before any controller calculates
+		 */
+		void sample();
+
+		/**
+		 * @param period seconds since this controller last ran
+		 */
+		void calculate(double period);
+
+		/**
+		 * Write outputs, called after every controller has calculated
+		 */
+		void write();
+	}
+
+	public static final double PERIOD = 0.005; //seconds, 200 Hz
+	private static final long PERIOD_NANOS = (long) (PERIOD * 1e9);
+	private static final double MAX_CONTROLLER_PERIOD = 0.1; //longest period passed to calculate, so a stall does not kick integral terms
+	private static final double STATISTICS_PERIOD = 1.0; //seconds of ticks the jitter statistics cover
+
+	private static ControlLoop instance;
+
+	private static final class Entry {
+		final Controller controller;
+		final int order;
+		final int divider;
+		int countdown = 0;
+		long lastRun = -1;
+		boolean due;
+
+		Entry(Controller controller, int order, int divider) {
+			this.controller = controller;
+			this.order = order;
+			this.divider = divider;
+		}
+	}
+
+	private final Object registrationLock = new Object();
+	private volatile Entry[] entries = new Entry[0];
+
+	private final Thread thread;
+
+	private volatile long tickCount = 0;
+	private volatile long overrunCount = 0;
+	private volatile long errorCount = 0;
+
+	private double jitterSum = 0;
+	private double jitterMax = 0;
+	private double executionMax = 0;
+	private int statisticsTicks = 0;
+	private volatile double averageJitter = 0;
+	private volatile double maxJitter = 0;
+	private volatile double maxExecutionTime = 0;
+
+	/**
+	 * @return the robot's control loop, started the first time it is requested
+	 */
+	public static synchronized ControlLoop getInstance() {
+		if (instance == null) {
+			instance = new ControlLoop();
+		}
+		return instance;
+	}
+
+	private ControlLoop() {
+		thread = new Thread(this, "Control Loop");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	public void register(Controller controller) {
+		register(controller, 0, 1);
+	}
+
+	/**
+	 * Start running a controller, does nothing if it is already registered
+	 * @param controller
+	 * @param order controllers with lower order run first in every phase
+	 * @param divider run the controller every divider ticks
+	 */
+	public void register(Controller controller, int order, int divider) {
+		synchronized (registrationLock) {
+			if (indexOf(controller) >= 0) return;
+			Entry[] current = entries;
+			Entry[] updated = new Entry[current.length + 1];
+			int insert = current.length;
+			while (insert > 0 && current[insert - 1].order > order) insert--;
+			System.arraycopy(current, 0, updated, 0, insert);
+			updated[insert] = new Entry(controller, order, Math.max(1, divider));
+			System.arraycopy(current, insert, updated, insert + 1, current.length - insert);
+			entries = updated;
+		}
+	}
+
+	/**
+	 * Stop running a controller, it may still finish a tick that is already in progress
+	 */
+	public void unregister(Controller controller) {
+		synchronized (registrationLock) {
+			int index = indexOf(controller);
+			if (index < 0) return;
+			Entry[] current = entries;
+			Entry[] updated = new Entry[current.length - 1];
+			System.arraycopy(current, 0, updated, 0, index);
+			System.arraycopy(current, index + 1, updated, index, updated.length - index);
+			entries = updated;
+		}
+	}
+
+	public boolean isRegistered(Controller controller) {
+		synchronized (registrationLock) {
+			return indexOf(controller) >= 0;
+		}
+	}
+
+	/**
+	 * @return number of ticks needed to run at least once every period seconds
+	 */
+	public static int getDivider(double period) {
+		return Math.max(1, (int) Math.round(period / PERIOD));
+	}
+
+	public int getControllerCount() {
+		return entries.length;
+	}
+
+	public long getTickCount() {
+		return tickCount;
+	}
+
+	/**
+	 * @return ticks skipped because the previous tick finished after they were due
+	 */
+	public long getOverrunCount() {
+		return overrunCount;
+	}
+
+	/**
+	 * @return number of times a controller threw an exception
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * @return seconds a tick started late on average over the last statistics period
+	 */
+	public double getAverageJitter() {
+		return averageJitter;
+	}
+
+	public double getMaxJitter() {
+		return maxJitter;
+	}
+
+	/**
+	 * @return longest time in seconds a tick took to run over the last statistics period
+	 */
+	public double getMaxExecutionTime() {
+		return maxExecutionTime;
+	}
+
+	/**
+	 * Register loop statistics with the dashboard publisher, call once
+	 */
+	public void registerTelemetry(Telemetry telemetry) {
+		telemetry.addNumber("ControlLoop: Controllers", this::getControllerCount, Telemetry.SLOW, 0);
+		telemetry.addNumber("ControlLoop: Average_Jitter_ms", () -> averageJitter * 1000.0, Telemetry.SLOW, 0.01);
+		telemetry.addNumber("ControlLoop: Max_Jitter_ms", () -> maxJitter * 1000.0, Telemetry.SLOW, 0.01);
+		telemetry.addNumber("ControlLoop: Max_Execution_ms", () -> maxExecutionTime * 1000.0, Telemetry.SLOW, 0.01);
+		telemetry.addNumber("ControlLoop: Overruns", this::getOverrunCount, Telemetry.SLOW, 0);
+		telemetry.addNumber("ControlLoop: Errors", this::getErrorCount, Telemetry.SLOW, 0);
+	}
+
+	public void run() {
+		long scheduled = System.nanoTime();
+		while (true) {
+			long now = System.nanoTime();
+			long wait = scheduled - now;
+			if (wait > 0) {
+				try {
+					Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+				} catch (InterruptedException e) {
+					return;
+				}
+				now = System.nanoTime();
+			}
+			tick(now);
+			long end = System.nanoTime();
+			updateStatistics((now - scheduled) * 1e-9, (end - now) * 1e-9);
+			scheduled += PERIOD_NANOS;
+			while (end - scheduled > 0) { //skip ticks that are already past instead of running them back to back
+				scheduled += PERIOD_NANOS;
+				overrunCount++;
+			}
+		}
+	}
+
+	private void tick(long now) {
+		Entry[] current = entries; //the same controllers run every phase even if one registers mid tick
+		for (int i = 0; i < current.length; i++) {
+			Entry entry = current[i];
+			entry.due = --entry.countdown <= 0;
+			if (entry.due) {
+				entry.countdown = entry.divider;
+				try {
+					entry.controller.sample();
+				} catch (RuntimeException e) {
+					fail(entry, e);
+				}
+			}
+		}
+		for (int i = 0; i < current.length; i++) {
+			Entry entry = current[i];
+			if (entry.due) {
+				double period = (entry.lastRun < 0) ? entry.divider * PERIOD : (now - entry.lastRun) * 1e-9;
+				entry.lastRun = now;
+				try {
+					entry.controller.calculate(Math.min(period, MAX_CONTROLLER_PERIOD));
+				} catch (RuntimeException e) {
+					fail(entry, e);
+				}
+			}
+		}
+		for (int i = 0; i < current.length; i++) {
+			Entry entry = current[i];
+			if (entry.due) {
+				try {
+					entry.controller.write();
+				} catch (RuntimeException e) {
+					fail(entry, e);
+				}
+			}
+		}
+		tickCount++;
+	}
+
+	/**
+	 * Skip the rest of the tick for a controller that threw, so one bad controller does not stop the others
+	 */
+	private void fail(Entry entry, RuntimeException e) {
+		entry.due = false;
+		if (errorCount == 0) {
+			System.out.println("[Control Loop]: controller failed, further failures are only counted");
+			e.printStackTrace();
+		}
+		errorCount++;
+	}
+
+	private void updateStatistics(double jitter, double executionTime) {
+		jitterSum += jitter;
+		jitterMax = Math.max(jitterMax, jitter);
+		executionMax = Math.max(executionMax, executionTime);
+		statisticsTicks++;
+		if (statisticsTicks * PERIOD >= STATISTICS_PERIOD) {
+			averageJitter = jitterSum / statisticsTicks;
+			maxJitter = jitterMax;
+			maxExecutionTime = executionMax;
+			jitterSum = 0;
+			jitterMax = 0;
+			executionMax = 0;
+			statisticsTicks = 0;
+		}
+	}
+
+	private int indexOf(Controller controller) {
+		Entry[] current = entries;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].controller == controller) return i;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,187 @@
+package org.usfirst.frc.team1218.control;
+
+import edu.wpi.first.wpilibj.PIDOutput;
+import edu.wpi.first.wpilibj.PIDSource;
+
+/**
+ * PIDFController with the same interface and gains as the WPILib PIDController, run by the ControlLoop instead of a
+ * thread of its own. It is registered with the loop while enabled, and enabling starts from a reset controller.
+ * P, I and D keep their WPILib meaning at any rate: they are converted to per second gains using REFERENCE_PERIOD,
+ * the rate WPILib runs its controllers at by default. Feedforward gains are passed through in PIDFController units.
+ * @author afiolmahon
+ */
+public class LoopPIDController implements ControlLoop.Controller {
+
+	public static final double REFERENCE_PERIOD = 0.05; //seconds, WPILib PIDController default period
+
+	private final PIDFController controller;
+	private final PIDSource source;
+	private final PIDOutput output;
+	private final int divider;
+
+	private boolean enabled = false;
+	private double input = 0;
+	private double result = 0;
+
+	/**
+	 * Calculate every control loop tick
+	 */
+	public LoopPIDController(double P, double I, double D, PIDSource source, PIDOutput output) {
+		this(P, I, D, source, output, ControlLoop.PERIOD);
+	}
+
+	/**
+	 * @param period seconds between calculations, rounded to a whole number of control loop ticks
+	 */
+	public LoopPIDController(double P, double I, double D, PIDSource source, PIDOutput output, double period) {
+		this.controller = new PIDFController(0, 0, 0);
+		this.source = source;
+		this.output = output;
+		this.divider = ControlLoop.getDivider(period);
+		setPID(P, I, D);
+	}
+
+	public synchronized void sample() {
+		if (enabled) input = source.pidGet();
+	}
+
+	public synchronized void calculate(double period) {
+		if (enabled) result = controller.calculate(input, period);
+	}
+
+	public synchronized void write() {
+		if (enabled) output.pidWrite(result);
+	}
+
+	/**
+	 * Start writing to the output from the control loop
+	 */
+	public synchronized void enable() {
+		if (enabled) return;
+		controller.reset();
+		result = 0;
+		enabled = true;
+		ControlLoop.getInstance().register(this, 0, divider);
+	}
+
+	/**
+	 * Stop the controller and write 0 to the output
+	 */
+	public synchronized void disable() {
+		if (!enabled) return;
+		enabled = false;
+		ControlLoop.getInstance().unregister(this);
+		output.pidWrite(0);
+	}
+
+	public synchronized boolean isEnable() {
+		return enabled;
+	}
+
+	/**
+	 * Disable the controller and clear its integral and derivative history
+	 */
+	public synchronized void reset() {
+		disable();
+		controller.reset();
+		result = 0;
+	}
+
+	/**
+	 * @param P output per unit of error
+	 * @param I output per unit of error summed every REFERENCE_PERIOD
+	 * @param D output per unit change of error over REFERENCE_PERIOD
+	 */
+	public synchronized void setPID(double P, double I, double D) {
+		controller.setGains(P, I / REFERENCE_PERIOD, D * REFERENCE_PERIOD);
+	}
+
+	/**
+	 * @see PIDFController#setFeedforward(double, double, double)
+	 */
+	public synchronized void setFeedforward(double kS, double kV, double kG) {
+		controller.setFeedforward(kS, kV, kG);
+	}
+
+	/**
+	 * @param timeConstant seconds, low pass filter time constant for the derivative term
+	 */
+	public synchronized void setDerivativeFilter(double timeConstant) {
+		controller.setDerivativeFilter(timeConstant);
+	}
+
+	/**
+	 * @param setpoint limited to the input range if one is set, the setpoint velocity becomes 0
+	 */
+	public synchronized void setSetpoint(double setpoint) {
+		controller.setSetpoint(setpoint, 0);
+	}
+
+	/**
+	 * @param velocity units per second the setpoint is moving, for the velocity and static feedforward
+	 */
+	public synchronized void setSetpoint(double setpoint, double velocity) {
+		controller.setSetpoint(setpoint, velocity);
+	}
+
+	public synchronized void setSetpointVelocity(double velocity) {
+		controller.setSetpoint(controller.getSetpoint(), velocity);
+	}
+
+	public synchronized double getSetpoint() {
+		return controller.getSetpoint();
+	}
+
+	/**
+	 * @return setpoint minus the current input, across the shorter way around when continuous
+	 */
+	public synchronized double getError() {
+		return controller.getError(source.pidGet());
+	}
+
+	/**
+	 * @return latest output
+	 */
+	public synchronized double get() {
+		return result;
+	}
+
+	public synchronized void setInputRange(double minimumInput, double maximumInput) {
+		controller.setInputRange(minimumInput, maximumInput);
+	}
+
+	public synchronized void setOutputRange(double minimumOutput, double maximumOutput) {
+		controller.setOutputRange(minimumOutput, maximumOutput);
+	}
+
+	/**
+	 * Treat the ends of the input range as the same point, for angles
+	 */
+	public void setContinuous() {
+		setContinuous(true);
+	}
+
+	public synchronized void setContinuous(boolean continuous) {
+		controller.setContinuous(continuous);
+	}
+
+	public synchronized void setAbsoluteTolerance(double tolerance) {
+		setAbsoluteTolerance(tolerance, 0);
+	}
+
+	/**
+	 * @param onTargetTime seconds the error must stay within tolerance before the controller is on target
+	 */
+	public synchronized void setAbsoluteTolerance(double tolerance, double onTargetTime) {
+		controller.setTolerance(tolerance, onTargetTime);
+	}
+
+	/**
+	 * @return true if the error has stayed within tolerance for the on target time, when disabled only the
+	 * current error is checked
+	 */
+	public synchronized boolean onTarget() {
+		if (enabled) return controller.isOnTarget();
+		return Math.abs(getError()) <= controller.getTolerance();
+	}
+}
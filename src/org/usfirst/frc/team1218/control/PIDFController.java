@@ -0,0 +1,219 @@
+package org.usfirst.frc.team1218.control;
+
+/**
+ * PID controller with feedforward, calculated by whoever owns it instead of a thread of its own, only primitives go
+ * in and out so it can run every control loop tick without allocating. Not thread safe.
+ *
+ * Gains are per second: kP is output per unit of error, kI per unit of error held for a second and kD per unit per
+ * second of error rate. The derivative acts on the setpoint velocity minus the low pass filtered measurement rate, so
+ * setpoint jumps do not kick it. The integral stops growing while the output is saturated in the direction of the
+ * error, and is limited to what the integral term alone can use of the output range.
+ *
+ * Feedforward is kS in the direction of travel, kV times the setpoint velocity and a constant kG holding against
+ * gravity. The direction of travel is that of the setpoint velocity, or of the error when the setpoint is still and
+ * the error is outside the tolerance.
+ *
+ * The controller is on target once the error has stayed within the tolerance for the on target time.
+ * @author afiolmahon
+ */
+public class PIDFController {
+
+	private double kP, kI, kD;
+	private double kS = 0, kV = 0, kG = 0;
+	private double derivativeFilterTime = 0;
+
+	private double minimumInput = 0, maximumInput = 0;
+	private boolean continuous = false;
+	private double minimumOutput = -1.0, maximumOutput = 1.0;
+	private double tolerance = 0.05;
+	private double onTargetTime = 0;
+
+	private double setpoint = 0;
+	private double setpointVelocity = 0;
+
+	private double error = 0;
+	private double integral = 0;
+	private double previousMeasurement = 0;
+	private boolean hasPreviousMeasurement = false;
+	private double measurementRate = 0;
+	private double output = 0;
+	private double timeOnTarget = 0;
+	private boolean onTarget = false;
+
+	public PIDFController(double kP, double kI, double kD) {
+		setGains(kP, kI, kD);
+	}
+
+	public void setGains(double kP, double kI, double kD) {
+		this.kP = kP;
+		this.kI = kI;
+		this.kD = kD;
+	}
+
+	/**
+	 * @param kS output to overcome static friction, applied in the direction of travel
+	 * @param kV output per unit per second of setpoint velocity
+	 * @param kG constant output holding against gravity
+	 */
+	public void setFeedforward(double kS, double kV, double kG) {
+		this.kS = kS;
+		this.kV = kV;
+		this.kG = kG;
+	}
+
+	/**
+	 * @param timeConstant seconds, time constant of the low pass filter on the measured rate, 0 for none
+	 */
+	public void setDerivativeFilter(double timeConstant) {
+		derivativeFilterTime = timeConstant;
+	}
+
+	/**
+	 * Limit setpoints to a range
+	 */
+	public void setInputRange(double minimumInput, double maximumInput) {
+		this.minimumInput = minimumInput;
+		this.maximumInput = maximumInput;
+		setSetpoint(setpoint, setpointVelocity);
+	}
+
+	/**
+	 * @param continuous true if the ends of the input range are the same point, for angles
+	 */
+	public void setContinuous(boolean continuous) {
+		this.continuous = continuous;
+	}
+
+	public void setOutputRange(double minimumOutput, double maximumOutput) {
+		this.minimumOutput = minimumOutput;
+		this.maximumOutput = maximumOutput;
+	}
+
+	/**
+	 * @param tolerance largest absolute error that counts as on target
+	 * @param onTargetTime seconds the error must stay within tolerance, 0 to be on target immediately
+	 */
+	public void setTolerance(double tolerance, double onTargetTime) {
+		this.tolerance = tolerance;
+		this.onTargetTime = onTargetTime;
+	}
+
+	/**
+	 * Move the setpoint, a move larger than the tolerance restarts the on target time
+	 * @param setpoint limited to the input range if one is set
+	 * @param velocity units per second the setpoint is moving, for the feedforward and derivative
+	 */
+	public void setSetpoint(double setpoint, double velocity) {
+		if (maximumInput > minimumInput) {
+			setpoint = Math.max(minimumInput, Math.min(maximumInput, setpoint));
+		}
+		if (Math.abs(wrap(setpoint - this.setpoint)) > tolerance) {
+			timeOnTarget = 0;
+			onTarget = false;
+		}
+		this.setpoint = setpoint;
+		this.setpointVelocity = velocity;
+	}
+
+	/**
+	 * @param measurement current input
+	 * @param period seconds since the last calculation
+	 * @return output, also available from getOutput
+	 */
+	public double calculate(double measurement, double period) {
+		error = wrap(setpoint - measurement);
+
+		if (hasPreviousMeasurement && period > 0) {
+			double rate = wrap(measurement - previousMeasurement) / period;
+			measurementRate += (rate - measurementRate) * period / (derivativeFilterTime + period);
+		}
+		previousMeasurement = measurement;
+		hasPreviousMeasurement = true;
+
+		double direction = Math.signum(setpointVelocity);
+		if (direction == 0 && Math.abs(error) > tolerance) direction = Math.signum(error);
+		double feedforward = kS * direction + kV * setpointVelocity + kG;
+		double unintegrated = kP * error + kD * (setpointVelocity - measurementRate) + feedforward;
+
+		if (kI != 0) {
+			double candidate = integral + error * period;
+			double total = unintegrated + kI * candidate;
+			boolean windingUp = (total > maximumOutput && error * kI > 0) || (total < minimumOutput && error * kI < 0);
+			if (!windingUp) integral = candidate;
+			double limit = Math.max(Math.abs(maximumOutput), Math.abs(minimumOutput)) / Math.abs(kI);
+			integral = Math.max(-limit, Math.min(limit, integral));
+		}
+
+		output = unintegrated + kI * integral;
+		if (output > maximumOutput) output = maximumOutput;
+		if (output < minimumOutput) output = minimumOutput;
+
+		if (Math.abs(error) <= tolerance) {
+			timeOnTarget += period;
+			onTarget = timeOnTarget >= onTargetTime;
+		} else {
+			timeOnTarget = 0;
+			onTarget = false;
+		}
+		return output;
+	}
+
+	/**
+	 * Clear the integral, derivative history and on target time
+	 */
+	public void reset() {
+		integral = 0;
+		hasPreviousMeasurement = false;
+		measurementRate = 0;
+		output = 0;
+		timeOnTarget = 0;
+		onTarget = false;
+	}
+
+	public double getSetpoint() {
+		return setpoint;
+	}
+
+	public double getSetpointVelocity() {
+		return setpointVelocity;
+	}
+
+	/**
+	 * @return setpoint minus measurement, the short way around when continuous
+	 */
+	public double getError(double measurement) {
+		return wrap(setpoint - measurement);
+	}
+
+	/**
+	 * @return error at the last calculation
+	 */
+	public double getError() {
+		return error;
+	}
+
+	public double getOutput() {
+		return output;
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * @return true if the error has been within tolerance for the on target time as of the last calculation
+	 */
+	public boolean isOnTarget() {
+		return onTarget;
+	}
+
+	private double wrap(double difference) {
+		double range = maximumInput - minimumInput;
+		if (continuous && range > 0) {
+			difference %= range;
+			if (difference > range / 2) difference -= range;
+			if (difference < -range / 2) difference += range;
+		}
+		return difference;
+	}
+}
@@ -0,0 +1,101 @@
+package org.usfirst.frc.team1218.control;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Samples registered sensors at the start of control loop ticks, before any controller runs.
+ * Sensors copy what they read into primitive fields and the rest of the robot reads those fields, so each device is
+ * read through the HAL at most once per tick. Controllers see one consistent set of values for the whole tick.
+ * Inputs the 200 Hz controllers use are added to be sampled every tick, slower inputs such as currents and limit
+ * switches are added with the period their Talon status frame is sent at, reading them more often only returns the
+ * same value again. Sensors with the same period are spread over different ticks.
+ * @author afiolmahon
+ */
+public class SensorSnapshot implements ControlLoop.Controller {
+
+	public interface Sensor {
+		/**
+		 * Read the device into fields, called on the control loop thread
+		 */
+		void sample();
+	}
+
+	public static final int ORDER = Integer.MIN_VALUE; //before every controller samples
+	public static final double STATUS_PERIOD = 0.02; //seconds, Talon SRX general and feedback status frames arrive every 10 and 20 ms
+
+	private static final class Entry {
+		final Sensor sensor;
+		final int divider;
+		int countdown;
+
+		Entry(Sensor sensor, int divider, int countdown) {
+			this.sensor = sensor;
+			this.divider = divider;
+			this.countdown = countdown;
+		}
+	}
+
+	private static SensorSnapshot instance;
+
+	private final Object lock = new Object();
+	private volatile Entry[] entries = new Entry[0];
+	private volatile double timestamp = 0;
+
+	public static synchronized SensorSnapshot getInstance() {
+		if (instance == null) {
+			instance = new SensorSnapshot();
+			ControlLoop.getInstance().register(instance, ORDER, 1);
+		}
+		return instance;
+	}
+
+	private SensorSnapshot() {}
+
+	/**
+	 * Sample a sensor now and at the start of every tick from now on
+	 */
+	public void add(Sensor sensor) {
+		add(sensor, ControlLoop.PERIOD);
+	}
+
+	/**
+	 * Sample a sensor now and at least once every period from now on
+	 * @param sensor
+	 * @param period seconds, e.g. STATUS_PERIOD for values read from Talon status frames
+	 */
+	public void add(Sensor sensor, double period) {
+		sensor.sample();
+		int divider = ControlLoop.getDivider(period);
+		synchronized (lock) {
+			Entry[] current = entries;
+			Entry[] updated = new Entry[current.length + 1];
+			System.arraycopy(current, 0, updated, 0, current.length);
+			updated[current.length] = new Entry(sensor, divider, current.length % divider);
+			entries = updated;
+		}
+	}
+
+	public void sample() {
+		timestamp = Timer.getFPGATimestamp();
+		Entry[] current = entries;
+		for (int i = 0; i < current.length; i++) {
+			Entry entry = current[i];
+			if (entry.countdown == 0) {
+				entry.countdown = entry.divider;
+				entry.sensor.sample();
+			}
+			entry.countdown--;
+		}
+	}
+
+	public void calculate(double period) {}
+
+	public void write() {}
+
+	/**
+	 * @return FPGA time in seconds the latest snapshot was started
+	 */
+	public double getTimestamp() {
+		return timestamp;
+	}
+}
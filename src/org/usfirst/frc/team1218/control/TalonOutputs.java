@@ -0,0 +1,114 @@
+package org.usfirst.frc.team1218.control;
+
+import org.usfirst.frc.team1218.robot.Telemetry;
+
+/**
+ * Flushes every CoalescingTalon once per control loop tick, after all controllers have written their outputs, and
+ * measures how many frames are sent and suppressed per second on the same thread, so reading the rates has no side effects.
+ * @author afiolmahon
+ */
+public class TalonOutputs implements ControlLoop.Controller {
+
+	public static final int ORDER = Integer.MAX_VALUE; //after every controller writes
+	private static final double RATE_PERIOD = 1.0;
+
+	private static TalonOutputs instance;
+
+	private final Object lock = new Object();
+	private volatile CoalescingTalon[] talons = new CoalescingTalon[0];
+	private final SensorSnapshot snapshot = SensorSnapshot.getInstance(); //tick timestamp for the rates
+
+	private double rateStart = -1;
+	private long framesStart, suppressedStart;
+	private volatile double framesPerSecond = 0;
+	private volatile double suppressedPerSecond = 0;
+
+	public static synchronized TalonOutputs getInstance() {
+		if (instance == null) {
+			instance = new TalonOutputs();
+			ControlLoop.getInstance().register(instance, ORDER, 1);
+		}
+		return instance;
+	}
+
+	private TalonOutputs() {}
+
+	void add(CoalescingTalon talon) {
+		synchronized (lock) {
+			CoalescingTalon[] current = talons;
+			CoalescingTalon[] updated = new CoalescingTalon[current.length + 1];
+			System.arraycopy(current, 0, updated, 0, current.length);
+			updated[current.length] = talon;
+			talons = updated;
+		}
+	}
+
+	public void sample() {}
+
+	public void calculate(double period) {}
+
+	public void write() {
+		flush();
+		updateRates(snapshot.getTimestamp());
+	}
+
+	/**
+	 * Send pending outputs now, normally done by the control loop
+	 */
+	public void flush() {
+		CoalescingTalon[] current = talons;
+		for (int i = 0; i < current.length; i++) {
+			current[i].flush();
+		}
+	}
+
+	public long getFrameCount() {
+		long frames = 0;
+		CoalescingTalon[] current = talons;
+		for (int i = 0; i < current.length; i++) frames += current[i].getFrameCount();
+		return frames;
+	}
+
+	public long getSuppressedCount() {
+		long suppressed = 0;
+		CoalescingTalon[] current = talons;
+		for (int i = 0; i < current.length; i++) suppressed += current[i].getSuppressedCount();
+		return suppressed;
+	}
+
+	/**
+	 * @return frames sent per second, measured over RATE_PERIOD
+	 */
+	public double getFramesPerSecond() {
+		return framesPerSecond;
+	}
+
+	public double getSuppressedPerSecond() {
+		return suppressedPerSecond;
+	}
+
+	/**
+	 * Register frame rates with the dashboard publisher, call once
+	 */
+	public void registerTelemetry(Telemetry telemetry) {
+		telemetry.addNumber("TalonOutputs: Frames_Per_Second", this::getFramesPerSecond, Telemetry.SLOW, 0.5);
+		telemetry.addNumber("TalonOutputs: Suppressed_Per_Second", this::getSuppressedPerSecond, Telemetry.SLOW, 0.5);
+		telemetry.addNumber("TalonOutputs: Talons", () -> talons.length, Telemetry.SLOW, 0);
+	}
+
+	/**
+	 * Called on the control loop thread only
+	 */
+	private void updateRates(double timestamp) {
+		if (rateStart >= 0 && timestamp - rateStart < RATE_PERIOD) return;
+		long frames = getFrameCount();
+		long suppressed = getSuppressedCount();
+		if (rateStart >= 0) {
+			framesPerSecond = (frames - framesStart) / (timestamp - rateStart);
+			suppressedPerSecond = (suppressed - suppressedStart) / (timestamp - rateStart);
+		}
+		rateStart = timestamp;
+		framesStart = frames;
+		suppressedStart = suppressed;
+	}
+}
@@ -19,7 +19,7 @@ import org.usfirst.frc.team1218.commands.swerve.ZeroRobotHeading;
 import org.usfirst.frc.team1218.commands.toteIntake.SetToteIntake;
 import org.usfirst.frc.team1218.subsystem.binGrabber.BinGrabber;
 import org.usfirst.frc.team1218.subsystem.binIntake.BinIntake;
-import org.usfirst.frc.team1218.subsystem.swerve.math.Vector;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Vector2;
 import org.usfirst.frc.team1218.subsystem.toteIntake.ToteIntake;
 
 import edu.wpi.first.wpilibj.Joystick;
@@ -37,6 +37,7 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 public class OI {
 	
 	public static final float RUMBLE_POWER = 0.7f;
+	private static int currentRumble = -1; //RumblePosition, 0 when off, -1 before the first call
 	
     //Driver
 	public static Joystick driver;
@@ -173,7 +174,13 @@ public class OI {
         //test.whenPressed(new MaintainRobotHeading(0));
 	}
 	
+	/**
+	 * Rumble the driver controller, Elevator calls this every loop so only changes are sent
+	 */
 	public static void setRumble(int position, boolean shouldRumble) {
+		int rumble = shouldRumble ? position : 0;
+		if (rumble == currentRumble) return;
+		currentRumble = rumble;
 		if (shouldRumble) {
 			switch (position) {
 				case RumblePosition.CENTER:
@@ -196,8 +203,13 @@ public class OI {
 		
 	}
 	
-    public static Vector getDriverLeftJoystickVector() {
-    	return new Vector(driver.getRawAxis(Axis.LEFT_X), -driver.getRawAxis(Axis.LEFT_Y));
+    /**
+     * Read the driver translation stick into a vector owned by the caller
+     * @param out vector to write into
+     * @return out
+     */
+    public static Vector2 getDriverLeftJoystickVector(Vector2 out) {
+    	return out.set(driver.getRawAxis(Axis.LEFT_X), -driver.getRawAxis(Axis.LEFT_Y));
     }
 
     public static double getSwerveRotationAxis() {
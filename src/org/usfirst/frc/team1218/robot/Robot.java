@@ -1,15 +1,21 @@
 package org.usfirst.frc.team1218.robot;
 
+import java.io.File;
+
 import org.usfirst.frc.team1218.commands.auton.Auton_Calibrate;
 import org.usfirst.frc.team1218.commands.auton.Auton_JustDrive;
 import org.usfirst.frc.team1218.commands.auton.Auton_Step;
 import org.usfirst.frc.team1218.commands.auton.Auton_ThreeTote;
 import org.usfirst.frc.team1218.commands.auton.Auton_TwoTote;
+import org.usfirst.frc.team1218.commands.auton.AutonTrajectories;
+import org.usfirst.frc.team1218.control.ControlLoop;
+import org.usfirst.frc.team1218.control.TalonOutputs;
 import org.usfirst.frc.team1218.subsystem.binGrabber.BinGrabber;
 import org.usfirst.frc.team1218.subsystem.binIntake.BinIntake;
 import org.usfirst.frc.team1218.subsystem.elevator.Elevator;
 import org.usfirst.frc.team1218.subsystem.fourBar.FourBar;
 import org.usfirst.frc.team1218.subsystem.swerve.SwerveDrive;
+import org.usfirst.frc.team1218.subsystem.swerve.trajectory.TrajectoryCache;
 import org.usfirst.frc.team1218.subsystem.toteIntake.ToteIntake;
 
 import edu.wpi.first.wpilibj.IterativeRobot;
@@ -36,17 +42,22 @@ public class Robot extends IterativeRobot {
 	public static ToteIntake toteIntake;
 	public static BinIntake binIntake;
 	public static OI oi;
-	private static String autonName;
+	private static volatile String autonName;
 	public static BinGrabber binGrabber;
+	public static TrajectoryCache trajectoryCache;
 	public Command robotAuton;
 
 	Command autonomousCommand;
+	
+	private static final String TRAJECTORY_CACHE_FILE = "/home/lvuser/trajectories.bin";
 
 	/**
 	 * This function is run when the robot is first started up and should be
 	 * used for any initialization code.
 	 */
 	public void robotInit() {
+		trajectoryCache = TrajectoryCache.load(new File(TRAJECTORY_CACHE_FILE));
+		trajectoryCache.prepare(AutonTrajectories.ALL); //anything missing or stale is generated now instead of in autonomousInit
 		swerveDrive = new SwerveDrive();
 		fourBar = new FourBar();
 		elevator = new Elevator();
@@ -54,12 +65,12 @@ public class Robot extends IterativeRobot {
 		binIntake = new BinIntake();
 		binGrabber = new BinGrabber();
 		oi = new OI();
+		registerTelemetry(Telemetry.getInstance());
 		System.out.println("Robot Initialized");
 	}
 
 	public void disabledPeriodic() {
 		autonName = SmartDashboard.getString("Auton_Select", "Not Set");
-		SmartDashboard.putString("Current_Auton_Selected", autonName);
 		Scheduler.getInstance().run();
 		periodicTasks();
 	}
@@ -70,6 +81,7 @@ public class Robot extends IterativeRobot {
 	public void autonomousInit() {
 		autonName = SmartDashboard.getString("Auton_Select", "Not Set");
 		Robot.swerveDrive.setInitalOffset(SmartDashboard.getNumber("Swerve_Module_Initial_Position", 0));
+		Robot.swerveDrive.resetPose(0, 0);
 		System.out.println("initial swerve module position was: " + SmartDashboard.getNumber("Swerve_Module_Initial_Position", 0));
 		SmartDashboard.putString("Current_Auton", autonName);
 		System.out.println("Auton " + autonName + " selected.");
@@ -138,14 +150,27 @@ public class Robot extends IterativeRobot {
 	}
     
 	/**
-	 * Called periodically to update values displayed on dashboard
+	 * Registers every value displayed on dashboard with the telemetry publisher, called once from robotInit
+	 */
+	private void registerTelemetry(Telemetry telemetry) {
+		Robot.swerveDrive.registerTelemetry(telemetry);
+		Robot.elevator.registerTelemetry(telemetry);
+		Robot.fourBar.registerTelemetry(telemetry);
+		Robot.toteIntake.registerTelemetry(telemetry);
+		Robot.binIntake.registerTelemetry(telemetry);
+		ControlLoop.getInstance().registerTelemetry(telemetry);
+		TalonOutputs.getInstance().registerTelemetry(telemetry);
+		telemetry.addString("Current_Auton_Selected", () -> autonName);
+		telemetry.putConstant("isBeta", Preferences.getInstance().getBoolean("isBeta", false));
+	}
+    
+	/**
+	 * Called periodically to update robot state that is not handled by the control loop
 	 */
     public void periodicTasks() {
-    	Robot.swerveDrive.syncDashboard();
+    	Robot.swerveDrive.periodicTasks();
     	Robot.elevator.periodicTasks();
     	Robot.fourBar.periodicTasks();
-    	Robot.toteIntake.syncDashboard();
-    	Robot.binIntake.periodicTasks();
-    	SmartDashboard.putBoolean("isBeta", Preferences.getInstance().getBoolean("isBeta", false));
+    	Robot.toteIntake.update();
     }
 }
@@ -0,0 +1,210 @@
+package org.usfirst.frc.team1218.robot;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Publishes dashboard values from a low priority background thread instead of the robot loop.
+ * Each value is registered once with its key, how often it may be published and a deadband. Every publisher pass
+ * reads the values that are due and sends only those that changed by more than their deadband since they were last
+ * sent, so a pass sends one batch of changes. Sources are read on the publisher thread and must be safe to read from
+ * any thread.
+ * @author afiolmahon
+ */
+public class Telemetry implements Runnable {
+
+	public static final double FAST = 0.05; //seconds between publishes
+	public static final double NORMAL = 0.1;
+	public static final double SLOW = 0.5;
+
+	private static final long PASS_PERIOD_MS = 20;
+
+	private static Telemetry instance;
+
+	private static abstract class Signal {
+		final String key;
+		final double period;
+		double nextPublish = 0;
+
+		Signal(String key, double period) {
+			this.key = key;
+			this.period = period;
+		}
+
+		/**
+		 * @return true if a value was sent
+		 */
+		abstract boolean publish();
+	}
+
+	private static final class NumberSignal extends Signal {
+		final DoubleSupplier source;
+		final double deadband;
+		double published = Double.NaN;
+
+		NumberSignal(String key, DoubleSupplier source, double period, double deadband) {
+			super(key, period);
+			this.source = source;
+			this.deadband = deadband;
+		}
+
+		boolean publish() {
+			double value = source.getAsDouble();
+			if (!Double.isNaN(published) && Math.abs(value - published) <= deadband) return false;
+			if (Double.isNaN(value) && Double.isNaN(published)) return false;
+			SmartDashboard.putNumber(key, value);
+			published = value;
+			return true;
+		}
+	}
+
+	private static final class BooleanSignal extends Signal {
+		final BooleanSupplier source;
+		int published = -1;
+
+		BooleanSignal(String key, BooleanSupplier source, double period) {
+			super(key, period);
+			this.source = source;
+		}
+
+		boolean publish() {
+			boolean value = source.getAsBoolean();
+			if (published == (value ? 1 : 0)) return false;
+			SmartDashboard.putBoolean(key, value);
+			published = value ? 1 : 0;
+			return true;
+		}
+	}
+
+	private static final class StringSignal extends Signal {
+		final Supplier<String> source;
+		String published;
+
+		StringSignal(String key, Supplier<String> source, double period) {
+			super(key, period);
+			this.source = source;
+		}
+
+		boolean publish() {
+			String value = source.get();
+			if (value == null || value.equals(published)) return false;
+			SmartDashboard.putString(key, value);
+			published = value;
+			return true;
+		}
+	}
+
+	private final Object lock = new Object();
+	private volatile Signal[] signals = new Signal[0];
+
+	private volatile long publishCount = 0;
+	private volatile long errorCount = 0;
+
+	public static synchronized Telemetry getInstance() {
+		if (instance == null) {
+			instance = new Telemetry();
+		}
+		return instance;
+	}
+
+	private Telemetry() {
+		Thread thread = new Thread(this, "Telemetry");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * @param period seconds between publishes
+	 * @param deadband smallest change that is published
+	 */
+	public void addNumber(String key, DoubleSupplier source, double period, double deadband) {
+		add(new NumberSignal(key, source, period, deadband));
+	}
+
+	/**
+	 * Publish every change, at most every NORMAL seconds
+	 */
+	public void addNumber(String key, DoubleSupplier source) {
+		addNumber(key, source, NORMAL, 0);
+	}
+
+	public void addBoolean(String key, BooleanSupplier source, double period) {
+		add(new BooleanSignal(key, source, period));
+	}
+
+	public void addBoolean(String key, BooleanSupplier source) {
+		addBoolean(key, source, NORMAL);
+	}
+
+	public void addString(String key, Supplier<String> source) {
+		add(new StringSignal(key, source, NORMAL));
+	}
+
+	/**
+	 * Publish a value that never changes once, now
+	 */
+	public void putConstant(String key, double value) {
+		SmartDashboard.putNumber(key, value);
+	}
+
+	public void putConstant(String key, boolean value) {
+		SmartDashboard.putBoolean(key, value);
+	}
+
+	/**
+	 * @return values sent to the dashboard since the robot started
+	 */
+	public long getPublishCount() {
+		return publishCount;
+	}
+
+	/**
+	 * @return number of times a source threw an exception
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	public void run() {
+		while (true) {
+			publish(System.nanoTime() * 1e-9);
+			try {
+				Thread.sleep(PASS_PERIOD_MS);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private void add(Signal signal) {
+		synchronized (lock) {
+			Signal[] current = signals;
+			Signal[] updated = new Signal[current.length + 1];
+			System.arraycopy(current, 0, updated, 0, current.length);
+			updated[current.length] = signal;
+			signals = updated;
+		}
+	}
+
+	private void publish(double now) {
+		Signal[] current = signals;
+		for (int i = 0; i < current.length; i++) {
+			Signal signal = current[i];
+			if (now < signal.nextPublish) continue;
+			signal.nextPublish = now + signal.period;
+			try {
+				if (signal.publish()) publishCount++;
+			} catch (RuntimeException e) {
+				if (errorCount == 0) {
+					System.out.println("[Telemetry]: reading " + signal.key + " failed, further failures are only counted");
+					e.printStackTrace();
+				}
+				errorCount++;
+			}
+		}
+	}
+}
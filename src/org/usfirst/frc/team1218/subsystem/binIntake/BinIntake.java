@@ -1,11 +1,11 @@
 package org.usfirst.frc.team1218.subsystem.binIntake;
 
+import org.usfirst.frc.team1218.control.CoalescingTalon;
 import org.usfirst.frc.team1218.robot.RobotMap;
+import org.usfirst.frc.team1218.robot.Telemetry;
 
-import edu.wpi.first.wpilibj.CANTalon;
 import edu.wpi.first.wpilibj.Solenoid;
 import edu.wpi.first.wpilibj.command.Subsystem;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 /**
  * The subsystem for the fourbar intake
@@ -14,8 +14,9 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 public class BinIntake extends Subsystem {
     
 	private final Solenoid clamp;
-	private final CANTalon binIntakeLeft;
-	private final CANTalon binIntakeRight;
+	private volatile boolean clampSolenoidOn = false; //last value written, published instead of reading the solenoid back
+	private final CoalescingTalon binIntakeLeft;
+	private final CoalescingTalon binIntakeRight;
 	
 	public static final boolean OPEN = true;
 	public static final boolean CLOSED = false;
@@ -25,8 +26,8 @@ public class BinIntake extends Subsystem {
 	public static final double OUTPUT_POWER = -0.2;
 	
 	public BinIntake() {
-		binIntakeLeft = new CANTalon(RobotMap.BIN_INTAKE_LEFT);
-		binIntakeRight = new CANTalon(RobotMap.BIN_INTAKE_RIGHT);
+		binIntakeLeft = new CoalescingTalon(RobotMap.BIN_INTAKE_LEFT);
+		binIntakeRight = new CoalescingTalon(RobotMap.BIN_INTAKE_RIGHT);
 		clamp = new Solenoid(RobotMap.BIN_INTAKE_SOLENOID);
 	}
 	
@@ -43,7 +44,8 @@ public class BinIntake extends Subsystem {
     	if (shouldOpen == CLOSED){
     		System.out.println("Fourbar claw closed");
     	}
-    	clamp.set(!shouldOpen);
+    	clampSolenoidOn = !shouldOpen;
+    	clamp.set(clampSolenoidOn);
     }
     
     /**
@@ -55,9 +57,9 @@ public class BinIntake extends Subsystem {
     	binIntakeRight.set(-power);
     }
     
-    public void periodicTasks() {
-    	SmartDashboard.putBoolean("FourBar_Clamps_Open", clamp.get());
-    	SmartDashboard.putNumber("FourBar_Intake_Power", binIntakeLeft.get());
+    public void registerTelemetry(Telemetry telemetry) {
+    	telemetry.addBoolean("FourBar_Clamps_Open", () -> clampSolenoidOn);
+    	telemetry.addNumber("FourBar_Intake_Power", binIntakeLeft::getSetpoint, Telemetry.NORMAL, 0.01);
     }
 }
 
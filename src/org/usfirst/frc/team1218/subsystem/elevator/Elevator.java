@@ -1,9 +1,12 @@
 package org.usfirst.frc.team1218.subsystem.elevator;
 
 import org.usfirst.frc.team1218.commands.elevator.ManualControl;
+import org.usfirst.frc.team1218.control.CoalescingTalon;
+import org.usfirst.frc.team1218.control.SensorSnapshot;
 import org.usfirst.frc.team1218.robot.OI;
 import org.usfirst.frc.team1218.robot.Robot;
 import org.usfirst.frc.team1218.robot.RobotMap;
+import org.usfirst.frc.team1218.robot.Telemetry;
 
 import edu.wpi.first.wpilibj.CANTalon;
 import edu.wpi.first.wpilibj.CANTalon.ControlMode;
@@ -11,12 +14,12 @@ import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.DigitalOutput;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.command.Subsystem;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 /**
+ * Elevator position and the tote detector are read every control loop tick into the SensorSnapshot, Talon status at the status frame rate
  * @author afiol-mahon
  */
-public class Elevator extends Subsystem {
+public class Elevator extends Subsystem implements SensorSnapshot.Sensor {
 	
 	private boolean softLimitsEnabled = false;
 	
@@ -24,6 +27,17 @@ public class Elevator extends Subsystem {
 	private final DigitalInput toteDetector;
 	private final DigitalOutput toteIndicator;
 	
+	private volatile double position;
+	private volatile int encoderPosition;
+	private volatile double speed;
+	private volatile double current;
+	private volatile int closedLoopError;
+	private volatile boolean fwdLimitSwitchClosed;
+	private volatile boolean revLimitSwitchClosed;
+	private volatile boolean fwdSoftLimitFault;
+	private volatile boolean revSoftLimitFault;
+	private volatile boolean toteDetected;
+	
 	public static final double P_UP = 0.7;
 	public static final double I_UP = 0;
 	public static final double D_UP = 0;
@@ -48,7 +62,7 @@ public class Elevator extends Subsystem {
     }
     
     public Elevator() {
-    	elevatorController = new CANTalon(RobotMap.ELEVATOR_CONTROLLER, 300);
+    	elevatorController = new CoalescingTalon(RobotMap.ELEVATOR_CONTROLLER, 300); //gains are swapped on every setPosition, only changes are sent
     	elevatorController.enableBrakeMode(true);
     	elevatorController.setReverseSoftLimit(BOTTOM_SOFT_LIMT);
     	elevatorController.setForwardSoftLimit(TOP_SOFT_LIMIT);
@@ -64,6 +78,24 @@ public class Elevator extends Subsystem {
     	
     	elevatorController.setPID(P_DOWN, I_DOWN, D_DOWN);
     	enablePID(true);
+    	SensorSnapshot.getInstance().add(this);
+    	SensorSnapshot.getInstance().add(this::sampleStatus, SensorSnapshot.STATUS_PERIOD);
+    }
+    
+    public void sample() {
+    	position = elevatorController.getPosition();
+    	encoderPosition = elevatorController.getEncPosition();
+    	toteDetected = toteDetector.get();
+    }
+    
+    private void sampleStatus() {
+    	speed = elevatorController.getSpeed();
+    	current = elevatorController.getOutputCurrent();
+    	closedLoopError = elevatorController.getClosedLoopError();
+    	fwdLimitSwitchClosed = elevatorController.isFwdLimitSwitchClosed();
+    	revLimitSwitchClosed = elevatorController.isRevLimitSwitchClosed();
+    	fwdSoftLimitFault = elevatorController.getFaultForSoftLim() == 1;
+    	revSoftLimitFault = elevatorController.getFaultRevSoftLim() == 1;
     }
     
     /**
@@ -84,7 +116,7 @@ public class Elevator extends Subsystem {
      */
     public void setPosition(double position) {
     	enablePID(true);
-    	if (position > elevatorController.getEncPosition()) {
+    	if (position > encoderPosition) {
     		elevatorController.setPID(P_UP, I_UP, D_UP);
     	} else {
     		elevatorController.setPID(P_DOWN, I_DOWN, D_DOWN);
@@ -97,7 +129,7 @@ public class Elevator extends Subsystem {
      * @return elevator position in encoder clicks
      */
     public double getPosition() {
-	   return elevatorController.getPosition();
+	   return position;
     }
     
     /**
@@ -150,7 +182,7 @@ public class Elevator extends Subsystem {
      * @return true if the elevator has a tote at the bottom
      */
     public boolean hasTote() {
-    	return toteDetector.get();
+    	return toteDetected;
     }
     
     /**
@@ -171,33 +203,36 @@ public class Elevator extends Subsystem {
     * @return The state of top limit switch
     */
    public boolean getTopLimit() {
-    	return !elevatorController.isFwdLimitSwitchClosed() || elevatorController.getFaultForSoftLim() == 1;
+    	return !fwdLimitSwitchClosed || fwdSoftLimitFault;
     }
     
    /**
     * @return The state of bottom limit switch
     */
     public boolean getBottomLimit() {
-    	return !elevatorController.isRevLimitSwitchClosed() || elevatorController.getFaultRevSoftLim() == 1;
+    	return !revLimitSwitchClosed || revSoftLimitFault;
     }
     
     /**
      * @return Current in amps drawn from elevator
      */
     public double getCurrent() {
-    	return elevatorController.getOutputCurrent();
+    	return current;
+    }
+    
+    public void registerTelemetry(Telemetry telemetry) {
+    	telemetry.putConstant("Elevator_Max_Height", TOP_SOFT_LIMIT);
+    	telemetry.addNumber("Elevator_Position", this::getPosition, Telemetry.FAST, 0.001);
+    	telemetry.addBoolean("Elevator_Top_Hard_Limit", () -> fwdLimitSwitchClosed);
+    	telemetry.addBoolean("Elevator_Bottom_Hard_Limit", () -> revLimitSwitchClosed);
+    	telemetry.addBoolean("Elevator_Top_Soft_Limit", () -> fwdSoftLimitFault);
+    	telemetry.addBoolean("Elevator_Bottom_Soft_Limit", () -> revSoftLimitFault);
+    	telemetry.addNumber("Elevator_Position_Error", () -> closedLoopError, Telemetry.NORMAL, 0);
+    	telemetry.addBoolean("Elevator_Has_Tote", this::hasTote);
+    	telemetry.addNumber("Elevator_Current", () -> current, Telemetry.NORMAL, 0.05);
     }
     
     public void periodicTasks() {
-    	SmartDashboard.putNumber("Elevator_Max_Height", TOP_SOFT_LIMIT);
-    	SmartDashboard.putNumber("Elevator_Position", getPosition());
-    	SmartDashboard.putBoolean("Elevator_Top_Hard_Limit", elevatorController.isFwdLimitSwitchClosed());
-    	SmartDashboard.putBoolean("Elevator_Bottom_Hard_Limit", elevatorController.isRevLimitSwitchClosed());
-    	SmartDashboard.putBoolean("Elevator_Top_Soft_Limit", elevatorController.getFaultForSoftLim() == 1);
-    	SmartDashboard.putBoolean("Elevator_Bottom_Soft_Limit", elevatorController.getFaultRevSoftLim() == 1);
-    	SmartDashboard.putNumber("Elevator_Position_Error", elevatorController.getClosedLoopError());
-    	SmartDashboard.putBoolean("Elevator_Has_Tote", hasTote());
-    	SmartDashboard.putNumber("Elevator_Current", elevatorController.getOutputCurrent());
     	toteIndicator.set(hasTote());
     	rumble();
     }
@@ -207,9 +242,9 @@ public class Elevator extends Subsystem {
      */
     public void rumble() {
     	if (DriverStation.getInstance().isEnabled() && !atTop()) {
-    		if (elevatorController.getSpeed() == 0) {
+    		if (speed == 0) {
         		OI.setRumble(OI.RumblePosition.CENTER, true); //enabled, not at top, speed = 0
-        	} else if (elevatorController.getSpeed() > 0) { 
+        	} else if (speed > 0) { 
             	OI.setRumble(OI.RumblePosition.RIGHT, true);//enabled, not at top, speed > 0
             } else {
             	OI.setRumble(OI.RumblePosition.LEFT, true); //enabled not at top speed < 0
@@ -225,13 +260,14 @@ public class Elevator extends Subsystem {
      */
     public void setEncoderPosition(double position) {
     	elevatorController.setPosition(position);
+    	this.position = position;
     }
     
     /**
      * @return true if the elevator is at the top and the encoder can be safely zeroed
      */
     public boolean atEncoderReference() {
-    	return !elevatorController.isFwdLimitSwitchClosed();
+    	return !fwdLimitSwitchClosed;
     }
     
     /**
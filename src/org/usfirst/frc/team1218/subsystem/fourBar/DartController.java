@@ -1,38 +1,59 @@
 package org.usfirst.frc.team1218.subsystem.fourBar;
 
+import org.usfirst.frc.team1218.control.CoalescingTalon;
+import org.usfirst.frc.team1218.control.SensorSnapshot;
 import org.usfirst.frc.team1218.robot.Robot;
 
 import edu.wpi.first.wpilibj.AnalogPotentiometer;
-import edu.wpi.first.wpilibj.CANTalon;
 import edu.wpi.first.wpilibj.CANTalon.ControlMode;
 import edu.wpi.first.wpilibj.PIDOutput;
 import edu.wpi.first.wpilibj.PIDSource;
 
 /**
- * This class controls an individual dart on the fourbar
+ * This class controls an individual dart on the fourbar, position, current and limit switches come from the SensorSnapshot
  * @author afiolmahon
  */
-public class DartController implements PIDSource, PIDOutput{
+public class DartController implements PIDSource, PIDOutput, SensorSnapshot.Sensor {
 	
 	protected static final double TOP_SOFT_LIMIT = 0.91;
 	protected static final double BOTTOM_SOFT_LIMIT = 0.045;
 		
 	private boolean enabled;
 	
-	public final CANTalon talon;
+	public final CoalescingTalon talon;
 	private final AnalogPotentiometer potentiometer;
+	
+	private volatile double position;
+	private volatile double current;
+	private volatile boolean fwdLimitSwitchClosed;
+	private volatile boolean revLimitSwitchClosed;
 		
 	public static double SLOWDOWN_DISTANCE = 0.2;
 	
 	public DartController(int deviceNumber, int potentiometerPort) {
 		enabled = true;
-		talon = new CANTalon(deviceNumber, 300);
+		talon = new CoalescingTalon(deviceNumber, 300); //hard limits are reapplied every loop by FourBar.periodicTasks
 		potentiometer = new AnalogPotentiometer(potentiometerPort);
 		talon.changeControlMode(ControlMode.PercentVbus);
 		talon.enableLimitSwitch(true, true);
 		talon.ConfigFwdLimitSwitchNormallyOpen(false);
 		talon.ConfigRevLimitSwitchNormallyOpen(false);
 		talon.enableBrakeMode(true);
+		SensorSnapshot.getInstance().add(this);
+		SensorSnapshot.getInstance().add(this::sampleStatus, SensorSnapshot.STATUS_PERIOD);
+	}
+	
+	/**
+	 * Input of the fourbar position controller, every tick
+	 */
+	public void sample() {
+		position = potentiometer.get();
+	}
+	
+	private void sampleStatus() {
+		current = talon.getOutputCurrent();
+		fwdLimitSwitchClosed = talon.isFwdLimitSwitchClosed();
+		revLimitSwitchClosed = talon.isRevLimitSwitchClosed();
 	}
 	
 	/**
@@ -73,21 +94,21 @@ public class DartController implements PIDSource, PIDOutput{
 	 * @return Current dart position
 	 */
 	public double getPosition() {
-		return potentiometer.get();
+		return position;
 	}
 	
 	/**
-	 * @return power output to talon
+	 * @return power last given to the talon
 	 */
 	public double getPower () {
-		return talon.get();
+		return talon.getSetpoint();
 	}
 	
 	/**
 	 * @return Current in amps drawn from the dart
 	 */
 	public double getCurrent() {
-		return talon.getOutputCurrent();
+		return current;
 	}
 	
 	/**
@@ -149,11 +170,11 @@ public class DartController implements PIDSource, PIDOutput{
 	}
 	
 	public boolean isFwdLimitSwitchClosed() {
-		return talon.isFwdLimitSwitchClosed();
+		return fwdLimitSwitchClosed;
 	}
 	
 	public boolean isRevLimitSwitchClosed() {
-		return talon.isRevLimitSwitchClosed();
+		return revLimitSwitchClosed;
 	}
 	
 	/*
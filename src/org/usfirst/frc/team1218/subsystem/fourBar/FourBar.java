@@ -1,10 +1,11 @@
 package org.usfirst.frc.team1218.subsystem.fourBar;
 
 import org.usfirst.frc.team1218.commands.fourBar.FourBarDefaultCommand;
+import org.usfirst.frc.team1218.control.LoopPIDController;
 import org.usfirst.frc.team1218.robot.Robot;
 import org.usfirst.frc.team1218.robot.RobotMap;
+import org.usfirst.frc.team1218.robot.Telemetry;
 
-import edu.wpi.first.wpilibj.PIDController;
 import edu.wpi.first.wpilibj.PIDOutput;
 import edu.wpi.first.wpilibj.PIDSource;
 import edu.wpi.first.wpilibj.command.Subsystem;
@@ -18,14 +19,14 @@ public class FourBar extends Subsystem implements PIDOutput, PIDSource {
 	
 	private final DartController dartLeft;
 	private final DartController dartRight;
-	private final PIDController positionController;
-	
-	private static final double FEEDFORWARD_UP = 0.2;
+	private final LoopPIDController positionController;
 	
 	private static final double POSITION_CONTROLLER_P = 10.0;
 	private static final double POSITION_CONTROLLER_I = 0.2;
 	private static final double POSITION_CONTROLLER_D = 0.0;
 	private static final double POSITION_CONTROLLER_MAX_OUTPUT = 0.8;
+	//No feedforward, as before the controller rewrite, until kS and kG are tuned on the robot
+	private static final double POSITION_CONTROLLER_ON_TARGET_TIME = 0.1; //seconds, so overshooting through the setpoint does not finish a move
 
 	private static final double DART_POSITION_SYNC_P = 2.0;
 	
@@ -44,13 +45,13 @@ public class FourBar extends Subsystem implements PIDOutput, PIDSource {
 	public FourBar() {
 		dartLeft = new DartController(RobotMap.FOUR_BAR_LEFT_DART, RobotMap.FOUR_BAR_LEFT_DART_POTENTIOMETER);
 		dartRight = new DartController(RobotMap.FOUR_BAR_RIGHT_DART, RobotMap.FOUR_BAR_RIGHT_DART_POTENTIOMETER);
-		positionController = new PIDController(
+		positionController = new LoopPIDController(
 				POSITION_CONTROLLER_P,
 				POSITION_CONTROLLER_I,
 				POSITION_CONTROLLER_D,
 				this,
 				this);
-		positionController.setAbsoluteTolerance(DART_ON_TARGET_DISTANCE);
+		positionController.setAbsoluteTolerance(DART_ON_TARGET_DISTANCE, POSITION_CONTROLLER_ON_TARGET_TIME);
 		positionController.setOutputRange(-POSITION_CONTROLLER_MAX_OUTPUT, POSITION_CONTROLLER_MAX_OUTPUT);
 		System.out.println("Four Bar Initialized");
 	}
@@ -200,33 +201,35 @@ public class FourBar extends Subsystem implements PIDOutput, PIDSource {
     	positionController.disable();
     }
     
-    public void periodicTasks() {
-    	SmartDashboard.putBoolean("FourBar_isDartSafe", isAlignmentSafe());
+    public void registerTelemetry(Telemetry telemetry) {
+    	telemetry.addBoolean("FourBar_isDartSafe", this::isAlignmentSafe);
     	
-    	SmartDashboard.putNumber("FourBar_Dart_PID_Controller_Setpoint", positionController.getSetpoint());
-    	SmartDashboard.putBoolean("FourBar_Dart_PID_Enabled", positionController.isEnable());
+    	telemetry.addNumber("FourBar_Dart_PID_Controller_Setpoint", positionController::getSetpoint);
+    	telemetry.addBoolean("FourBar_Dart_PID_Enabled", positionController::isEnable);
 
-    	SmartDashboard.putNumber("FourBar_Left_Dart_Power", dartLeft.getPower());
-    	SmartDashboard.putNumber("FourBar_Right_Dart_Power", dartRight.getPower());
+    	telemetry.addNumber("FourBar_Left_Dart_Power", dartLeft::getPower, Telemetry.NORMAL, 0.01);
+    	telemetry.addNumber("FourBar_Right_Dart_Power", dartRight::getPower, Telemetry.NORMAL, 0.01);
     	
-    	SmartDashboard.putNumber("FourBar_Left_Dart_Position", dartLeft.getPosition());
-    	SmartDashboard.putNumber("FourBar_Right_Dart_Position", dartRight.getPosition());
+    	telemetry.addNumber("FourBar_Left_Dart_Position", dartLeft::getPosition, Telemetry.FAST, 0.001);
+    	telemetry.addNumber("FourBar_Right_Dart_Position", dartRight::getPosition, Telemetry.FAST, 0.001);
     	
-    	SmartDashboard.putNumber("FourBar_Left_Current", dartLeft.getCurrent());
-    	SmartDashboard.putNumber("FourBar_Right_Current", dartRight.getCurrent());
+    	telemetry.addNumber("FourBar_Left_Current", dartLeft::getCurrent, Telemetry.NORMAL, 0.05);
+    	telemetry.addNumber("FourBar_Right_Current", dartRight::getCurrent, Telemetry.NORMAL, 0.05);
     	
-    	SmartDashboard.putNumber("FourBar_Dart_Position_Difference", getDartPositionDifference());
+    	telemetry.addNumber("FourBar_Dart_Position_Difference", this::getDartPositionDifference, Telemetry.FAST, 0.001);
     	    	
-    	SmartDashboard.putBoolean("FourBar_Left_Top_Hard_Limit", !dartLeft.isFwdLimitSwitchClosed());
-    	SmartDashboard.putBoolean("FourBar_Right_Top_Hard_Limit", !dartRight.isFwdLimitSwitchClosed());
-    	SmartDashboard.putBoolean("FourBar_Left_Bottom_Hard_Limit", !dartLeft.isRevLimitSwitchClosed());
-    	SmartDashboard.putBoolean("FourBar_Right_Bottom_Hard_Limit", !dartRight.isRevLimitSwitchClosed());
-    	
-    	SmartDashboard.putBoolean("FourBar_Left_Top_Soft_Limit", dartLeft.getTopSoftLimit());
-    	SmartDashboard.putBoolean("FourBar_Left_Bottom_Soft_Limit", dartLeft.getBottomSoftLimit());
-    	SmartDashboard.putBoolean("FourBar_Right_Top_Soft_Limit", dartRight.getTopSoftLimit());
-    	SmartDashboard.putBoolean("FourBar_Right_Bottom_Soft_Limit", dartRight.getBottomSoftLimit());
+    	telemetry.addBoolean("FourBar_Left_Top_Hard_Limit", () -> !dartLeft.isFwdLimitSwitchClosed());
+    	telemetry.addBoolean("FourBar_Right_Top_Hard_Limit", () -> !dartRight.isFwdLimitSwitchClosed());
+    	telemetry.addBoolean("FourBar_Left_Bottom_Hard_Limit", () -> !dartLeft.isRevLimitSwitchClosed());
+    	telemetry.addBoolean("FourBar_Right_Bottom_Hard_Limit", () -> !dartRight.isRevLimitSwitchClosed());
     	
+    	telemetry.addBoolean("FourBar_Left_Top_Soft_Limit", dartLeft::getTopSoftLimit);
+    	telemetry.addBoolean("FourBar_Left_Bottom_Soft_Limit", dartLeft::getBottomSoftLimit);
+    	telemetry.addBoolean("FourBar_Right_Top_Soft_Limit", dartRight::getTopSoftLimit);
+    	telemetry.addBoolean("FourBar_Right_Bottom_Soft_Limit", dartRight::getBottomSoftLimit);
+    }
+    
+    public void periodicTasks() {
     	enableDartHardLimits(SmartDashboard.getBoolean("DartHardLimitsEnabled", false));
     }
 
@@ -234,11 +237,7 @@ public class FourBar extends Subsystem implements PIDOutput, PIDSource {
     
 	@Override
 	public void pidWrite(double output) {
-		if (output > 1) {
-			setDartPower(output + FEEDFORWARD_UP);
-		} else {
-			setDartPower(output);
-		}
+		setDartPower(output);
 	}
 	
 	@Override
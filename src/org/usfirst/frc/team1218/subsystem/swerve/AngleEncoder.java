@@ -60,7 +60,7 @@ public class AngleEncoder implements PIDSource {
 	}
 	
 	/**
-	 * returns the angle of the swerve module from 0-360, 0 and 360 both representing forward on the robot
+	 * returns the angle of the swerve module from 0 up to but not including 360, 0 representing forward on the robot
 	 */
 	public double pidGet() {
 		double angle = encoder.get() * SwerveModule.ANGLE_CONTROLLER_ENCODER_CLICK_TO_DEGREE;
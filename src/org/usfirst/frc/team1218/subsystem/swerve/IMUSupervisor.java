@@ -0,0 +1,134 @@
+package org.usfirst.frc.team1218.subsystem.swerve;
+
+import org.usfirst.frc.team1218.robot.Telemetry;
+
+import com.kauailabs.nav6.IMUProtocol;
+import com.kauailabs.nav6.frc.IMU;
+
+/**
+ * Watches the nav6 link and decides whether its heading can be trusted.
+ * The IMU is stale once no update has arrived for STALE_TIME, while stale the stream command is resent every
+ * RESEND_PERIOD in case the nav6 reset or lost its configuration. It counts as healthy again after updates have
+ * been arriving for RECOVERY_TIME. Packet rates are measured over RATE_PERIOD from the IMU counters.
+ * @author afiolmahon
+ */
+public class IMUSupervisor {
+
+	private static final double STALE_TIME = 0.2; //seconds without an update, 20 missed packets at 100 Hz
+	private static final double RECOVERY_TIME = 0.5;
+	private static final double RESEND_PERIOD = 1.0;
+	private static final double RATE_PERIOD = 1.0;
+
+	private final IMU imu;
+
+	private volatile boolean healthy = false;
+	private double staleSince = 0;
+	private double recoveringSince = -1;
+	private double lastResend = 0;
+	private volatile int staleCount = 0;
+	private volatile double staleTime = 0; //total seconds stale since the IMU first became healthy
+	private volatile boolean everHealthy = false;
+
+	private double rateStart = -1;
+	private double yprStart, quaternionStart, gyroStart;
+	private volatile double yprRate = 0;
+	private volatile double quaternionRate = 0;
+	private volatile double gyroRate = 0;
+
+	public IMUSupervisor(IMU imu) {
+		this.imu = imu;
+	}
+
+	/**
+	 * Check the IMU, call once every control loop
+	 * @param timestamp FPGA time in seconds
+	 * @return true if the IMU heading can be used
+	 */
+	public boolean update(double timestamp) {
+		boolean fresh = imu.getTimeSinceLastUpdate() <= STALE_TIME;
+		if (healthy && !fresh) {
+			healthy = false;
+			staleSince = timestamp;
+			staleCount++;
+			resendStreamCommand(timestamp);
+			System.out.println("[Swerve Drive]: IMU stale, driving robot centric");
+		} else if (!healthy) {
+			if (!fresh) {
+				recoveringSince = -1;
+				if (timestamp - lastResend >= RESEND_PERIOD) resendStreamCommand(timestamp);
+			} else if (recoveringSince < 0) {
+				recoveringSince = timestamp;
+			} else if (timestamp - recoveringSince >= RECOVERY_TIME) {
+				healthy = true;
+				recoveringSince = -1;
+				if (everHealthy) {
+					staleTime += timestamp - staleSince;
+					System.out.println("[Swerve Drive]: IMU recovered after " + (timestamp - staleSince) + " seconds");
+				}
+				everHealthy = true;
+			}
+		}
+		updateRates(timestamp);
+		return healthy;
+	}
+
+	public boolean isHealthy() {
+		return healthy;
+	}
+
+	/**
+	 * @return number of times the IMU went stale after being healthy
+	 */
+	public int getStaleCount() {
+		return staleCount;
+	}
+
+	/**
+	 * @return seconds spent stale after the IMU first became healthy, including the current outage
+	 */
+	public double getStaleTime() {
+		return staleTime + ((!healthy && everHealthy) ? imu.getTimeSinceLastUpdate() : 0);
+	}
+
+	/**
+	 * Register link health with the dashboard publisher, call once
+	 */
+	public void registerTelemetry(Telemetry telemetry) {
+		telemetry.addBoolean("IMU: Healthy", this::isHealthy);
+		telemetry.addNumber("IMU: Stale_Count", this::getStaleCount, Telemetry.SLOW, 0);
+		telemetry.addNumber("IMU: Stale_Time", this::getStaleTime, Telemetry.SLOW, 0.01);
+		telemetry.addNumber("IMU: Time_Since_Update", imu::getTimeSinceLastUpdate, Telemetry.NORMAL, 0.005);
+		telemetry.addNumber("IMU: YPR_Per_Second", () -> yprRate, Telemetry.SLOW, 0);
+		telemetry.addNumber("IMU: Quaternion_Per_Second", () -> quaternionRate, Telemetry.SLOW, 0);
+		telemetry.addNumber("IMU: Gyro_Per_Second", () -> gyroRate, Telemetry.SLOW, 0);
+		telemetry.addNumber("IMU: Checksum_Failures", imu::getChecksumFailureCount, Telemetry.SLOW, 0);
+		telemetry.addNumber("IMU: Dropped_Packets", imu::getDroppedPacketCount, Telemetry.SLOW, 0);
+		telemetry.addNumber("IMU: Resyncs", imu::getResyncCount, Telemetry.SLOW, 0);
+		telemetry.addNumber("IMU: Serial_Resets", imu::getSerialResetCount, Telemetry.SLOW, 0);
+		telemetry.addNumber("IMU: Read_Errors", imu::getReadErrorCount, Telemetry.SLOW, 0);
+		telemetry.addNumber("IMU: Stream_Commands", imu::getStreamCommandCount, Telemetry.SLOW, 0);
+		telemetry.addNumber("IMU: Stream_Response_Latency_ms", () -> imu.getStreamResponseLatency() * 1000.0, Telemetry.SLOW, 0.5);
+	}
+
+	private void resendStreamCommand(double timestamp) {
+		imu.requestStreamCommand();
+		lastResend = timestamp;
+	}
+
+	private void updateRates(double timestamp) {
+		if (rateStart >= 0 && timestamp - rateStart < RATE_PERIOD) return;
+		double ypr = imu.getUpdateCount(IMUProtocol.MSGID_YPR_UPDATE);
+		double quaternion = imu.getUpdateCount(IMUProtocol.MSGID_QUATERNION_UPDATE);
+		double gyro = imu.getUpdateCount(IMUProtocol.MSGID_GYRO_UPDATE);
+		if (rateStart >= 0) {
+			double period = timestamp - rateStart;
+			yprRate = (ypr - yprStart) / period;
+			quaternionRate = (quaternion - quaternionStart) / period;
+			gyroRate = (gyro - gyroStart) / period;
+		}
+		rateStart = timestamp;
+		yprStart = ypr;
+		quaternionStart = quaternion;
+		gyroStart = gyro;
+	}
+}
@@ -1,21 +1,35 @@
 package org.usfirst.frc.team1218.subsystem.swerve;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import org.usfirst.frc.team1218.commands.swerve.Swerve;
+import org.usfirst.frc.team1218.control.ControlLoop;
+import org.usfirst.frc.team1218.control.LoopPIDController;
+import org.usfirst.frc.team1218.control.SensorSnapshot;
 import org.usfirst.frc.team1218.robot.OI;
+import org.usfirst.frc.team1218.robot.Telemetry;
 import org.usfirst.frc.team1218.subsystem.swerve.math.Angle;
-import org.usfirst.frc.team1218.subsystem.swerve.math.Vector;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Pose;
+import org.usfirst.frc.team1218.subsystem.swerve.math.SteeringOptimizer;
+import org.usfirst.frc.team1218.subsystem.swerve.math.SwerveKinematics;
+import org.usfirst.frc.team1218.subsystem.swerve.math.SwerveOdometry;
+import org.usfirst.frc.team1218.subsystem.swerve.math.Vector2;
 
+import com.kauailabs.nav6.CaptureSerialStream;
+import com.kauailabs.nav6.SerialStream;
 import com.kauailabs.nav6.frc.IMUAdvanced;
+import com.kauailabs.nav6.frc.IMUGyro;
+import com.kauailabs.nav6.frc.OrientationSample;
+import com.kauailabs.nav6.frc.WPILibSerialStream;
 
-import edu.wpi.first.wpilibj.PIDController;
 import edu.wpi.first.wpilibj.PIDOutput;
 import edu.wpi.first.wpilibj.PIDSource;
 import edu.wpi.first.wpilibj.Preferences;
 import edu.wpi.first.wpilibj.SerialPort;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.command.Subsystem;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
@@ -27,8 +41,6 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 public class SwerveDrive extends Subsystem implements PIDOutput, PIDSource {
 	
-	public Vector totalDistanceDriven;
-	
 	protected static final double DEFAULT_DRIVE_POWER = 0.4;
 	protected static final double MAX_DRIVE_POWER = 0.8;
 	
@@ -36,44 +48,112 @@ public class SwerveDrive extends Subsystem implements PIDOutput, PIDSource {
     
     private final SerialPort navSerialPort;
     private final IMUAdvanced navModule;
+    private final IMUSupervisor imuSupervisor;
     
-    private double fieldCentricHeading = 0;
+    private volatile double fieldCentricHeading = 0;
     
     //Relates to dimensions of drivetrain, used so that swerve understands what wheel orientation faces towards the center of the robot, ex. different for a square vs rectangular drivetrain
 	private static final double X_PERPENDICULAR_CONSTANT = 0.546;
 	private static final double Y_PERPENDICULAR_CONSTANT = 0.837;
+	//UNMEASURED ESTIMATE of the distance in feet from robot center to each module axle. The perpendicular constants only
+	//fix the ratio of the frame sides, not their length. Replace with half the diagonal between measured module axles,
+	//it scales the odometry yaw rate, the rotation speed of driveRobotCentric and the open loop yaw rate estimate
+	private static final double ESTIMATED_MODULE_RADIUS = 1.6;
+	private static final int ODOMETRY_ORDER = SensorSnapshot.ORDER + 1; //right after the modules are sampled
+	
+	private static final byte NAV6_UPDATE_RATE_HZ = 100;
+	private static final String NAV6_CAPTURE_DIRECTORY = "/home/lvuser";
+	private static final double G_TO_FEET_PER_SECOND_SQUARED = 32.174;
+	private static final double ACCEL_NOISE = 1.5; //ft/s^2
+	private static final double WHEEL_VELOCITY_NOISE = 0.25; //ft/s
 	
 	private static final double[] ALPHA_MODULE_ANGLE_OFFSET = {6.0, 161.0, -66.5, 128.0};
 	private static final double[] BETA_MODULE_ANGLE_OFFSET = {-4.76, -166.0, -13.0, -160.28 - 12.0};
 	
-	private final PIDController headingController;
+	private static final double STEERING_HYSTERESIS = 15.0; //degrees past 90 before a module reverses direction
+	private static final double LOOP_PERIOD = 0.02; //seconds between drive commands
+	
+	private final SwerveKinematics kinematics;
+	private final SteeringOptimizer steeringOptimizer;
+	private final double[] moduleAngle = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] moduleSpeed = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] encoderAngle = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] steeringSetpoint = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] driveScale = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] steeringRate = new double[SwerveKinematics.MODULE_COUNT];
+	private final Vector2 translation = new Vector2();
+	
+	private final SwerveOdometry odometry;
+	private final double[] wheelAngle = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] wheelVelocity = new double[SwerveKinematics.MODULE_COUNT];
+	private final Pose dashboardPose = new Pose(); //only used by the telemetry thread
+	private final ControlLoop.Controller odometryUpdater = new ControlLoop.Controller() {
+		private double timestamp;
+		private double accelX, accelY;
+		private final OrientationSample imu = new OrientationSample();
+		
+		public void sample() {
+			timestamp = SensorSnapshot.getInstance().getTimestamp();
+			for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) {
+				SwerveModule m = module.get(i);
+				wheelAngle[i] = Angle.get360Angle(360.0 - m.getEncoderAngle()); //direction of positive wheel velocity, so steering inversion on the main thread cannot split angle and velocity
+				wheelVelocity[i] = m.getVelocity();
+			}
+			accelX = 0;
+			accelY = 0;
+			if (navModule.isConnected()) { //nav6 is mounted with its x axis towards the right of the robot and its y axis towards the front
+				navModule.getOrientation(imu);
+				accelX = imu.linear_accel_x * G_TO_FEET_PER_SECOND_SQUARED;
+				accelY = imu.linear_accel_y * G_TO_FEET_PER_SECOND_SQUARED;
+			}
+		}
+		
+		public void calculate(double period) {
+			odometry.update(timestamp, getHeadingAt(timestamp), accelX, accelY, wheelAngle, wheelVelocity); //heading predicted to when the wheels were read
+		}
+		
+		public void write() {}
+	};
+	
+	private final LoopPIDController headingController;
 	
 	private boolean fieldCentricDriveMode = true;
 	
-	private boolean headingControllerEnabled;
+	private volatile boolean headingControllerEnabled;
 	private double headingControllerOutput;
 	
 	private static final double HEADING_CONTROLLER_P = 0.03;
 	private static final double HEADING_CONTROLLER_I = 0.0;
-	private static final double HEADING_CONTROLLER_D = 0.0;
+	private static final double HEADING_CONTROLLER_D = 0.0; //per degree per second of measured yaw rate, applied outside the PIDController
 	
     public SwerveDrive() {
-    	totalDistanceDriven = new Vector(0, 0);
+    	kinematics = new SwerveKinematics(X_PERPENDICULAR_CONSTANT, Y_PERPENDICULAR_CONSTANT);
+    	odometry = new SwerveOdometry(X_PERPENDICULAR_CONSTANT, Y_PERPENDICULAR_CONSTANT, ESTIMATED_MODULE_RADIUS, ACCEL_NOISE, WHEEL_VELOCITY_NOISE);
+    	steeringOptimizer = new SteeringOptimizer(STEERING_HYSTERESIS, SwerveModule.MINIMUM_DRIVE_POWER);
     	boolean isBeta = Preferences.getInstance().getBoolean("isBeta", false);
     	module = new ArrayList<SwerveModule>(Arrays.asList(
-    				new SwerveModule(0, (isBeta) ? BETA_MODULE_ANGLE_OFFSET[0] : ALPHA_MODULE_ANGLE_OFFSET[0]),
-    				new SwerveModule(1, (isBeta) ? BETA_MODULE_ANGLE_OFFSET[1] : ALPHA_MODULE_ANGLE_OFFSET[1]),
-    				new SwerveModule(2, (isBeta) ? BETA_MODULE_ANGLE_OFFSET[2] : ALPHA_MODULE_ANGLE_OFFSET[2]),
-    				new SwerveModule(3, (isBeta) ? BETA_MODULE_ANGLE_OFFSET[3] : ALPHA_MODULE_ANGLE_OFFSET[3])
+    				new SwerveModule(0, (isBeta) ? BETA_MODULE_ANGLE_OFFSET[0] : ALPHA_MODULE_ANGLE_OFFSET[0], steeringOptimizer),
+    				new SwerveModule(1, (isBeta) ? BETA_MODULE_ANGLE_OFFSET[1] : ALPHA_MODULE_ANGLE_OFFSET[1], steeringOptimizer),
+    				new SwerveModule(2, (isBeta) ? BETA_MODULE_ANGLE_OFFSET[2] : ALPHA_MODULE_ANGLE_OFFSET[2], steeringOptimizer),
+    				new SwerveModule(3, (isBeta) ? BETA_MODULE_ANGLE_OFFSET[3] : ALPHA_MODULE_ANGLE_OFFSET[3], steeringOptimizer)
     				));	
 		navSerialPort = new SerialPort(57600, SerialPort.Port.kMXP);
-		navModule = new IMUAdvanced(navSerialPort);
+		SerialStream navStream = new WPILibSerialStream(navSerialPort, SerialPort.Port.kMXP); //knowing the port lets reads skip SerialPort's per read allocations
+		if (Preferences.getInstance().getBoolean("captureIMU", false)) { //record nav6 traffic for replay with com.kauailabs.nav6.frc.IMUReplay
+			navStream = new CaptureSerialStream(navStream, new File(NAV6_CAPTURE_DIRECTORY, "nav6_" + System.currentTimeMillis() + ".cap"));
+		}
+		if (Preferences.getInstance().getBoolean("imuGyroMode", false)) { //integrated raw gyro, checked against the fused yaw every few seconds
+			navModule = new IMUGyro(navStream, true);
+		} else {
+			navModule = new IMUAdvanced(navStream, NAV6_UPDATE_RATE_HZ, true); //heading hold and field centric drive need fresh yaw
+		}
 		navModule.zeroYaw();
+		imuSupervisor = new IMUSupervisor(navModule);
 
-		headingController = new PIDController(
+		headingController = new LoopPIDController(
 				HEADING_CONTROLLER_P,
 				HEADING_CONTROLLER_I,
-				HEADING_CONTROLLER_D,
+				0.0, //derivative of the error is the measured yaw rate, see calculateModuleStates
 				this,
 				this);
 		headingController.setOutputRange(-1.0, 1.0);
@@ -81,6 +161,7 @@ public class SwerveDrive extends Subsystem implements PIDOutput, PIDSource {
 		headingController.setContinuous();
 		headingController.setAbsoluteTolerance(10);
 		
+		ControlLoop.getInstance().register(odometryUpdater, ODOMETRY_ORDER, 1);
         System.out.println("Swerve System Initialized");
     }
     
@@ -88,12 +169,30 @@ public class SwerveDrive extends Subsystem implements PIDOutput, PIDSource {
         setDefaultCommand(new Swerve());   
     }
     
-    public void syncDashboard() {
-    	SmartDashboard.putNumber("SwerveDrive: Robot_Heading", Angle.get360Angle(navModule.getYaw()));
-    	SmartDashboard.putNumber("SwerveDrive: Average Distance Driven", getAverageDistanceDriven());
-    	module.stream().forEach(m -> m.syncDashboard());
-    	SmartDashboard.putBoolean("SwerveDrive: HeadingControllerEnabled", headingControllerEnabled);
-    	SmartDashboard.putBoolean("SwerveDrive: FieldCentricDrive", isFieldCentricDriveMode());
+    /**
+     * Register drivetrain values with the dashboard publisher, call once
+     */
+    public void registerTelemetry(Telemetry telemetry) {
+    	telemetry.addNumber("SwerveDrive: Robot_Heading", () -> Angle.get360Angle(navModule.getYaw()), Telemetry.FAST, 0.1);
+    	telemetry.addNumber("SwerveDrive: IMU_Latency_ms", () -> navModule.getLatency() * 1000.0, Telemetry.SLOW, 0.5);
+    	telemetry.addNumber("SwerveDrive: IMU_Yaw_Rate", navModule::getYawRate, Telemetry.NORMAL, 0.5);
+    	telemetry.addNumber("SwerveDrive: Average Distance Driven", this::getAverageDistanceDriven, Telemetry.NORMAL, 0.01);
+    	telemetry.addNumber("SwerveDrive: Pose_X", () -> odometry.getPose(dashboardPose).getX(), Telemetry.FAST, 0.01);
+    	telemetry.addNumber("SwerveDrive: Pose_Y", () -> odometry.getPose(dashboardPose).getY(), Telemetry.FAST, 0.01);
+    	telemetry.addNumber("SwerveDrive: Wheel_Yaw_Rate", odometry::getWheelYawRate, Telemetry.NORMAL, 0.5);
+    	telemetry.addNumber("SwerveDrive: Gyro_Yaw_Rate", odometry::getGyroYawRate, Telemetry.NORMAL, 0.5);
+    	telemetry.addNumber("SwerveDrive: Velocity_X", odometry::getVelocityX, Telemetry.NORMAL, 0.05);
+    	telemetry.addNumber("SwerveDrive: Velocity_Y", odometry::getVelocityY, Telemetry.NORMAL, 0.05);
+    	telemetry.addNumber("SwerveDrive: Velocity_Variance_X", odometry::getVelocityVarianceX, Telemetry.SLOW, 0);
+    	telemetry.addNumber("SwerveDrive: Velocity_Variance_Y", odometry::getVelocityVarianceY, Telemetry.SLOW, 0);
+    	for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) {
+    		int moduleBit = 1 << i;
+    		telemetry.addBoolean("SM_" + i + "_Grounded", () -> (odometry.getAcceptedModules() & moduleBit) != 0);
+    	}
+    	module.forEach(m -> m.registerTelemetry(telemetry));
+    	imuSupervisor.registerTelemetry(telemetry);
+    	telemetry.addBoolean("SwerveDrive: HeadingControllerEnabled", () -> headingControllerEnabled);
+    	telemetry.addBoolean("SwerveDrive: FieldCentricDrive", () -> isFieldCentricDriveMode() && imuSupervisor.isHealthy());
     }
     
     /**
@@ -120,7 +219,7 @@ public class SwerveDrive extends Subsystem implements PIDOutput, PIDSource {
     }
     
     /**
-     * @return true if robot drive is field centric, false if the drive is robot centric
+     * @return true if field centric drive is selected, drive is robot centric while the IMU is stale regardless
      */
     public boolean isFieldCentricDriveMode() {
     	return fieldCentricDriveMode;
@@ -134,51 +233,54 @@ public class SwerveDrive extends Subsystem implements PIDOutput, PIDSource {
     	module.stream().forEach(m -> m.setRawWheelPower(power));
     }
     
-    public void addToDistanceDriven(Vector vectorToAdd){
-    	totalDistanceDriven.add(vectorToAdd);
+    /**
+     * Check the IMU link, call once every robot loop. Odometry runs on the control loop, right after the module sensors are sampled.
+     */
+    public void periodicTasks() {
+    	imuSupervisor.update(Timer.getFPGATimestamp());
+    }
+    
+    /**
+     * Copy the current field pose into a pose owned by the caller, safe to call from any thread
+     * @return out
+     */
+    public Pose getPose(Pose out) {
+    	return odometry.getPose(out);
     }
     
     /**
-     * Creates angle and power for all swerve modules
-     * @param translationVector vector with magnitude <= 1
+     * Set the field position of the robot, heading continues to come from the gyro
+     * @param x feet
+     * @param y feet
+     */
+    public void resetPose(double x, double y) {
+    	odometry.resetPosition(x, y);
+    }
+    
+    /**
+     * Creates angle and power for all swerve modules, results are stored in moduleAngle, moduleSpeed and steeringRate
+     * @param translationX robot or field centric translation to the right, magnitude of translation should be <= 1
+     * @param translationY robot or field centric translation forward
      * @param rotation a value from 1 to -1 representing the amount of rotation to add to the robot angle
-     * @param fieldCentricCompensator a gyroscope output that can let the robot drive field-centric, pass 0 if robot centric drive is desired.
      */
-    public List<Vector> swerveVectorCalculator(Vector translationVector, double rotation) {
-    	double xPerpendicular = X_PERPENDICULAR_CONSTANT;
-    	double yPerpendicular = Y_PERPENDICULAR_CONSTANT;
-    	if (headingControllerEnabled) {
-    		xPerpendicular *= this.headingControllerOutput;
-        	yPerpendicular *= this.headingControllerOutput;	
-    	} else {
-    		xPerpendicular *= rotation;
-        	yPerpendicular *= rotation;	
+    protected void calculateModuleStates(double translationX, double translationY, double rotation) {
+    	boolean imuHealthy = imuSupervisor.isHealthy(); //without a fresh heading drive robot centric and leave rotation to the driver
+    	if (headingControllerEnabled && imuHealthy) {
+    		rotation = this.headingControllerOutput - HEADING_CONTROLLER_D * navModule.getYawRate();
     	}
     	
-    	if (isFieldCentricDriveMode()) {
-        	translationVector.pushAngle(-getHeading());
-    	}    	
-    	
-    	List<Vector> moduleVector = new ArrayList<Vector>(Arrays.asList(
-    			new Vector(translationVector.getX() + xPerpendicular, translationVector.getY() - yPerpendicular),
-    			new Vector(translationVector.getX() - xPerpendicular, translationVector.getY() - yPerpendicular),
-    			new Vector(translationVector.getX() - xPerpendicular, translationVector.getY() + yPerpendicular),
-    			new Vector(translationVector.getX() + xPerpendicular, translationVector.getY() + yPerpendicular)
-    			));
-    	
-    	moduleVector.stream().forEach(v -> v.scaleMagnitude((DEFAULT_DRIVE_POWER + ((MAX_DRIVE_POWER - DEFAULT_DRIVE_POWER) * OI.getTurboPower()))));
-    	
-    	double maxMagnitude = 0;
-    	
-    	for (int i = 0; i < 4; i++) maxMagnitude = (moduleVector.get(i).getMagnitude() > maxMagnitude) ? moduleVector.get(i).getMagnitude() : maxMagnitude;
-    	
-    	double scaleFactor = ((maxMagnitude > 1.0) ? 1.0 / maxMagnitude : 1.0);
-    	
-    	moduleVector.stream().forEach(v -> {
-    		v.scaleMagnitude(scaleFactor);
-    		if (v.getMagnitude() > 1.0) v.setMagnitude(1.0);
-    	});
-    	return moduleVector;
+    	double powerScale = DEFAULT_DRIVE_POWER + ((MAX_DRIVE_POWER - DEFAULT_DRIVE_POWER) * OI.getTurboPower());
+    	if (isFieldCentricDriveMode() && imuHealthy) {
+    		//Open loop estimate of the yaw rate this rotation command will produce
+    		double yawRate = Math.toDegrees(rotation * powerScale * SwerveModule.DRIVE_WHEEL_MAX_VELOCITY / ESTIMATED_MODULE_RADIUS);
+    		translation.set(translationX, translationY).rotate(-getHeading());
+    		SwerveKinematics.discretize(translation, yawRate * LOOP_PERIOD);
+    		kinematics.calculate(translation.getX(), translation.getY(), rotation, powerScale, moduleAngle, moduleSpeed);
+    		kinematics.calculateSteeringRates(translation.getX(), translation.getY(), rotation, yawRate, steeringRate);
+    	} else {
+    		kinematics.calculate(translationX, translationY, rotation, powerScale, moduleAngle, moduleSpeed);
+    		Arrays.fill(steeringRate, 0.0); //robot centric translation turns with the robot
+    	}
     }
     
     public boolean isAnglePIDOnTarget() {
@@ -201,6 +303,14 @@ public class SwerveDrive extends Subsystem implements PIDOutput, PIDSource {
     	return (navModule.getYaw() - fieldCentricHeading); 
     }
     
+    /**
+     * Field centric heading at a recent time, for pairing with sensor data that arrives late
+     * @param timestamp FPGA time in seconds
+     */
+    public double getHeadingAt(double timestamp) {
+    	return (navModule.getYawAt(timestamp) - fieldCentricHeading);
+    }
+    
     public void setFieldHeading(double heading) {
     	this.fieldCentricHeading = heading;
     }
@@ -240,20 +350,51 @@ public class SwerveDrive extends Subsystem implements PIDOutput, PIDSource {
     	return totalDistance / n;
     }
     
-    public void powerDrive(Vector translationVector, double rotation) {
-    	List<Vector> moduleVectors = swerveVectorCalculator(translationVector, rotation);
-    	module.stream().forEach(m -> m.setAngleAndPower(moduleVectors.get(m.moduleNumber)));
+    public void powerDrive(Vector2 translationVector, double rotation) {
+    	powerDrive(translationVector.getX(), translationVector.getY(), rotation);
+    }
+    
+    public void powerDrive(double translationX, double translationY, double rotation) {
+    	calculateModuleStates(translationX, translationY, rotation);
+    	optimizeSteering();
+    	for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) module.get(i).setSetpointAndPower(steeringSetpoint[i], moduleSpeed[i], driveScale[i], steeringRate[i]);
+    }
+    
+    /**
+     * Drive at a robot centric velocity using open loop power, ignores field centric mode, the heading controller and turbo.
+     * Used by path following, which closes its own position and heading loops.
+     * The velocity is treated as fixed on the field while the robot turns, so it is discretized and steering rates are fed forward.
+     * @param velocityX ft/s to the right
+     * @param velocityY ft/s forward
+     * @param yawRate degrees per second, clockwise positive
+     */
+    public void driveRobotCentric(double velocityX, double velocityY, double yawRate) {
+    	double rotation = Math.toRadians(yawRate) * ESTIMATED_MODULE_RADIUS;
+    	translation.set(velocityX, velocityY);
+    	SwerveKinematics.discretize(translation, yawRate * LOOP_PERIOD);
+    	kinematics.calculate(translation.getX(), translation.getY(), rotation, 1.0 / SwerveModule.DRIVE_WHEEL_MAX_VELOCITY, moduleAngle, moduleSpeed);
+    	kinematics.calculateSteeringRates(translation.getX(), translation.getY(), rotation, yawRate, steeringRate);
+    	optimizeSteering();
+    	for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) module.get(i).setSetpointAndPower(steeringSetpoint[i], moduleSpeed[i], driveScale[i], steeringRate[i]);
     }
     
     /**
      * @deprecated
      * @param translationVector
      * @param rotation
-     * @param fieldCentricCompensator
      */
-    public void velocityDrive(Vector translationVector, double rotation) {
-    	List<Vector> moduleVectors = swerveVectorCalculator(translationVector, rotation);
-    	module.stream().forEach(m -> m.setAngleAndVelocity(moduleVectors.get(m.moduleNumber)));
+    public void velocityDrive(Vector2 translationVector, double rotation) {
+    	calculateModuleStates(translationVector.getX(), translationVector.getY(), rotation);
+    	optimizeSteering();
+    	for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) module.get(i).setSetpointAndVelocity(steeringSetpoint[i], moduleSpeed[i], driveScale[i], steeringRate[i]);
+    }
+    
+    /**
+     * Choose setpoints and drive scaling for all modules from moduleAngle, moduleSpeed and the measured encoder angles
+     */
+    private void optimizeSteering() {
+    	for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) encoderAngle[i] = module.get(i).getEncoderAngle();
+    	steeringOptimizer.optimize(moduleAngle, moduleSpeed, encoderAngle, steeringSetpoint, driveScale);
     }
     
     public void zeroHeading(double offsetAngle) {
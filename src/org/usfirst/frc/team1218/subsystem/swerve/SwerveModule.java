@@ -1,34 +1,41 @@
 package org.usfirst.frc.team1218.subsystem.swerve;
 
+import org.usfirst.frc.team1218.control.CoalescingTalon;
+import org.usfirst.frc.team1218.control.LoopPIDController;
+import org.usfirst.frc.team1218.control.SensorSnapshot;
 import org.usfirst.frc.team1218.robot.RobotMap;
+import org.usfirst.frc.team1218.robot.Telemetry;
 import org.usfirst.frc.team1218.subsystem.swerve.math.Angle;
+import org.usfirst.frc.team1218.subsystem.swerve.math.SteeringOptimizer;
 import org.usfirst.frc.team1218.subsystem.swerve.math.Vector;
 
-import edu.wpi.first.wpilibj.CANTalon;
 import edu.wpi.first.wpilibj.CANTalon.ControlMode;
 import edu.wpi.first.wpilibj.CANTalon.FeedbackDevice;
-import edu.wpi.first.wpilibj.PIDController;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 /**
- * Swerve Class that handles all module specific logic
+ * Swerve Class that handles all module specific logic, sensors are read from the SensorSnapshot taken each control loop tick
  * @author afiol-mahon
  */
-public class SwerveModule {
+public class SwerveModule implements SensorSnapshot.Sensor {
 	
 	double MAX_GROUNDED_VELOCITY = 10;
 	
-	boolean shouldDiscount = false;
+	volatile boolean shouldDiscount = false; //latched by sampleStatus when the wheel spins faster than the robot can drive
 	public final int moduleNumber;
 	private final double moduleIndexOffset;
 	
-	private boolean invertModule = false;
-	private double robotCentricSetpointAngle = 0;
+	private final SteeringOptimizer steeringOptimizer;
 	
-	private final CANTalon driveWheelController;
-	private final CANTalon angleController;
+	private final CoalescingTalon driveWheelController;
+	private final CoalescingTalon angleController;
 	private final AngleEncoder angleEncoder;
-	private final PIDController anglePIDController;
+	private final LoopPIDController anglePIDController;
+	
+	private volatile double encoderAngle;
+	private volatile double drivePosition;
+	private volatile int driveEncoderVelocity;
+	private volatile double driveCurrent;
+	private volatile int indexCount;
 	
 	protected static final double DRIVE_WHEEL_RADIUS = 1.5; //inches
 	protected static final double DRIVE_WHEEL_CIRCUMFERENCE = (2.0 * Math.PI * DRIVE_WHEEL_RADIUS) / 12.0; //feet
@@ -51,23 +58,36 @@ public class SwerveModule {
 	protected static final double ANGLE_CONTROLLER_ENCODER_DEGREE_TO_CLICK = ANGLE_CONTROLLER_ENCODER_CLICKS_PER_REVOLUTION / 360.0;
 	
 	protected static final double ANGLE_CONTROLLER_MAX_POWER = 0.7;
+	//Positive power decreases the encoder angle, estimated from a steering free speed of about 900 degrees per second
+	protected static final double ANGLE_CONTROLLER_V = -1.0 / 900.0; //power per degree per second of encoder setpoint velocity
 	protected static final double ANGLE_CONTROLLER_DEGREE_TOLERANCE = 30;
 	
-	public SwerveModule(int moduleNumber, double moduleAngleOffset) {
+	protected static final double MINIMUM_DRIVE_POWER = 0.1; //below this the module stops instead of steering
+	
+	/**
+	 * @param moduleNumber
+	 * @param moduleAngleOffset
+	 * @param steeringOptimizer shared by all modules of the drivetrain
+	 */
+	public SwerveModule(int moduleNumber, double moduleAngleOffset, SteeringOptimizer steeringOptimizer) {
 		this.moduleNumber = moduleNumber;
 		this.moduleIndexOffset = moduleAngleOffset;
-		this.driveWheelController = new CANTalon(RobotMap.SM_DRIVE_MOTOR[moduleNumber]);
+		this.steeringOptimizer = steeringOptimizer;
+		this.driveWheelController = new CoalescingTalon(RobotMap.SM_DRIVE_MOTOR[moduleNumber]); //mode and power are rewritten every loop, only changes are sent
 		this.initializeDriveWheelController();
-		this.angleController = new CANTalon(RobotMap.SM_TURN_MOTOR[moduleNumber]);
+		this.angleController = new CoalescingTalon(RobotMap.SM_TURN_MOTOR[moduleNumber]);
 		this.angleController.enableBrakeMode(true);
 		this.angleController.enableLimitSwitch(false, false);
 		this.angleEncoder = new AngleEncoder(moduleNumber, moduleAngleOffset);
-		this.anglePIDController = new PIDController(
+		SensorSnapshot.getInstance().add(this);
+		SensorSnapshot.getInstance().add(this::sampleStatus, SensorSnapshot.STATUS_PERIOD);
+		this.anglePIDController = new LoopPIDController(
 			ANGLE_CONTROLLER_P,
 			ANGLE_CONTROLLER_I,
 			ANGLE_CONTROLLER_D,
-			angleEncoder,
+			this::getEncoderAngle,
 			angleController);
+		this.anglePIDController.setFeedforward(0.0, ANGLE_CONTROLLER_V, 0.0);
 		this.anglePIDController.setInputRange(0.0, 360.0);
 		this.anglePIDController.setOutputRange(-ANGLE_CONTROLLER_MAX_POWER, ANGLE_CONTROLLER_MAX_POWER);
 		this.anglePIDController.setContinuous();
@@ -87,6 +107,26 @@ public class SwerveModule {
 		this.driveWheelController.setPID(DRIVE_WHEEL_VELOCITY_P, DRIVE_WHEEL_VELOCITY_I, DRIVE_WHEEL_VELOCITY_D);
 	}
 	
+	/**
+	 * Angle encoder, read from the FPGA every tick for the angle controller
+	 */
+	public void sample() {
+		encoderAngle = angleEncoder.pidGet();
+		indexCount = angleEncoder.getIndexCount();
+	}
+	
+	/**
+	 * Drive encoder and current, the Talon only sends them in its 20 ms feedback status frame
+	 */
+	private void sampleStatus() {
+		drivePosition = driveWheelController.getPosition();
+		driveEncoderVelocity = driveWheelController.getEncVelocity();
+		driveCurrent = driveWheelController.getOutputCurrent();
+		if (getVelocity() > MAX_GROUNDED_VELOCITY) {
+			shouldDiscount = true;
+		}
+	}
+	
 	public boolean isAnglePIDEnabled() {
 		return anglePIDController.isEnable();
 	}
@@ -94,6 +134,7 @@ public class SwerveModule {
 	public void resetDistanceDriven() {
 		shouldDiscount = false;
 		driveWheelController.setPosition(0);
+		drivePosition = 0; //otherwise the old distance shows until the next snapshot
 	}
 	
 	public void enableAnglePID(boolean enabled) {
@@ -123,7 +164,7 @@ public class SwerveModule {
 	 * @returns degree position of encoder
 	 */
 	public double getEncoderAngle() {
-		return angleEncoder.pidGet();
+		return encoderAngle;
 	}
 	
 	/**
@@ -132,29 +173,29 @@ public class SwerveModule {
 	 */
 	public double getModuleAngle() {
 		double angle = getEncoderAngle();
-		angle += invertModule ? 180 : 0;
+		angle += steeringOptimizer.isInverted(moduleNumber) ? 180 : 0;
 		angle = 360 - angle;
 		angle = Angle.get360Angle(angle);
 		return angle;
 	}
 
 	public int getEncoderIndexCount() {
-		return angleEncoder.getIndexCount();
+		return indexCount;
 	}
 	
+	/**
+	 * @return distance driven since the last reset in feet, 0 if the wheel has spun faster than MAX_GROUNDED_VELOCITY since
+	 */
 	public double getAbsoluteDistanceDriven() {
-		double distance = Math.abs((driveWheelController.getPosition() / 4.0) * DRIVE_WHEEL_ENCODER_CLICK_TO_FOOT);
-		if (getVelocity() > MAX_GROUNDED_VELOCITY) {
-			shouldDiscount = true;
-		}
-		if (shouldDiscount){
-			distance = 0;
+		if (shouldDiscount) {
+			return 0;
 		}
-		return distance;
+		return Math.abs((drivePosition / 4.0) * DRIVE_WHEEL_ENCODER_CLICK_TO_FOOT);
 	}
 	
 	public void setInitialOffset(double offset) {
 		angleEncoder.setInitialOffset(offset);
+		encoderAngle = angleEncoder.pidGet();
 	}
 	
 	public void enableIndexing(boolean enabled) {
@@ -171,11 +212,19 @@ public class SwerveModule {
 	}
 	
 	public double getVelocity() {
-		return (driveWheelController.getEncVelocity() / 4.0) * DRIVE_WHEEL_ENCODER_CLICK_TO_FOOT / 10.0; //div by 4 to convert from 4X encoding to clicks and divide by 10 to convert deciseconds to seconds
+		return (driveEncoderVelocity / 4.0) * DRIVE_WHEEL_ENCODER_CLICK_TO_FOOT / 10.0; //div by 4 to convert from 4X encoding to clicks and divide by 10 to convert deciseconds to seconds
+	}
+	
+	/**
+	 * Wheel velocity along getModuleAngle, negative when the robot is moving opposite that direction
+	 * @return ft/s
+	 */
+	public double getWheelVelocity() {
+		return (steeringOptimizer.isInverted(moduleNumber)) ? -getVelocity() : getVelocity();
 	}
 	
 	public double getDriveCurrent() {
-		return driveWheelController.getOutputCurrent();
+		return driveCurrent;
 	}
 	
 	/**
@@ -183,12 +232,7 @@ public class SwerveModule {
 	 * @param angle
 	 */
 	public void setAngle(double angle) {
-		if(Angle.diffBetweenAngles(angle, this.robotCentricSetpointAngle) > 90) invertModule = !invertModule;
-		this.robotCentricSetpointAngle = angle;
-		angle += (invertModule) ? 180 : 0;
-		angle = 360 - angle;
-		angle = Angle.get360Angle(angle);
-		this.anglePIDController.setSetpoint(angle);
+		this.anglePIDController.setSetpoint(steeringOptimizer.optimize(moduleNumber, angle, getEncoderAngle()));
 	}
 	
 	/**
@@ -197,9 +241,9 @@ public class SwerveModule {
 	 * @param power Desired power for module drive motor
 	 */
 	public void setAngleAndPower(double angle, double power) {
-		if (Math.abs(power) > 0.1) {
+		if (Math.abs(power) > MINIMUM_DRIVE_POWER) {
 			setAngle(angle); //Prevents Module from setting wheels to zero when joystick is released
-			setWheelPower(power);
+			setWheelPower(power * steeringOptimizer.getDriveScale(moduleNumber));
 		} else {
 			setWheelPower(0.0);
 		}
@@ -210,10 +254,43 @@ public class SwerveModule {
 	 * @param percentSpeed
 	 */
 	public void setAngleAndVelocity(double angle, double percentSpeed) {
-		if (Math.abs(percentSpeed) > 0.1) {
+		if (Math.abs(percentSpeed) > MINIMUM_DRIVE_POWER) {
 			setAngle(angle);
-			setWheelVelocity(percentSpeed * DRIVE_WHEEL_MAX_VELOCITY);
+			setWheelVelocity(percentSpeed * steeringOptimizer.getDriveScale(moduleNumber) * DRIVE_WHEEL_MAX_VELOCITY);
+		} else {
+			setWheelPower(0.0);
+		}
+	}
+	
+	/**
+	 * Apply an encoder setpoint and drive scale already chosen by SteeringOptimizer for every module at once
+	 * @param setpoint encoder setpoint from 0-360
+	 * @param power drive power before inversion
+	 * @param driveScale from 0 to 1, applied after the deadband so a module still turning keeps its setpoint
+	 * @param steeringRate degrees per second the robot centric angle is expected to move, fed forward to the steering motor
+	 */
+	public void setSetpointAndPower(double setpoint, double power, double driveScale, double steeringRate) {
+		if (Math.abs(power) > MINIMUM_DRIVE_POWER) {
+			this.anglePIDController.setSetpoint(setpoint, -steeringRate); //the encoder angle turns opposite the robot centric angle
+			setWheelPower(power * driveScale);
+		} else {
+			this.anglePIDController.setSetpointVelocity(0);
+			setWheelPower(0.0);
+		}
+	}
+	
+	/**
+	 * @param setpoint encoder setpoint from 0-360
+	 * @param percentSpeed drive speed before inversion
+	 * @param driveScale from 0 to 1
+	 * @param steeringRate degrees per second the robot centric angle is expected to move
+	 */
+	public void setSetpointAndVelocity(double setpoint, double percentSpeed, double driveScale, double steeringRate) {
+		if (Math.abs(percentSpeed) > MINIMUM_DRIVE_POWER) {
+			this.anglePIDController.setSetpoint(setpoint, -steeringRate);
+			setWheelVelocity(percentSpeed * driveScale * DRIVE_WHEEL_MAX_VELOCITY);
 		} else {
+			this.anglePIDController.setSetpointVelocity(0);
 			setWheelPower(0.0);
 		}
 	}
@@ -238,7 +315,7 @@ public class SwerveModule {
 		if (Math.abs(power) > 1) {
 			System.out.println("Illegal power " + power + " written to module: " + moduleNumber);
 		} else {
-			power *= (invertModule) ? -1.0 : 1.0;
+			power *= (steeringOptimizer.isInverted(moduleNumber)) ? -1.0 : 1.0;
 			this.driveWheelController.changeControlMode(ControlMode.PercentVbus);
 			this.driveWheelController.set(power);
 		}
@@ -258,24 +335,24 @@ public class SwerveModule {
 			System.out.println("Illegal speed " + speed + "(ft/s) written to module: " + moduleNumber);
 		} else {
 			speed *= DRIVE_WHEEL_ENCODER_FOOT_TO_CLICK;
-			speed *= (invertModule) ? -1.0 : 1.0;
+			speed *= (steeringOptimizer.isInverted(moduleNumber)) ? -1.0 : 1.0;
 			this.driveWheelController.changeControlMode(ControlMode.Speed);
 			this.driveWheelController.set(speed * 10); //Multiply by 10 because PID controller takes Units per decisecond
 		}
 	}
 	
 	/**
-	 * Update the dashboard with current module information.
+	 * Register module information with the dashboard publisher, call once
 	 */
-	public void syncDashboard() {
+	public void registerTelemetry(Telemetry telemetry) {
 		String prefix = "SM_"+ moduleNumber + "_";
-		SmartDashboard.putNumber(prefix + "WheelPower", driveWheelController.get());
-		SmartDashboard.putNumber(prefix + "EncoderAngle", getEncoderAngle());
-		SmartDashboard.putNumber(prefix + "RobotCentricSetpointAngle", Angle.get360Angle(robotCentricSetpointAngle));
-		SmartDashboard.putNumber(prefix + "RobotCentricCurrentAngle", getModuleAngle());
-		SmartDashboard.putNumber(prefix + "IndexCount", getEncoderIndexCount());
-		SmartDashboard.putNumber(prefix + "DistanceDriven", getAbsoluteDistanceDriven());
-		SmartDashboard.putNumber(prefix + "DriveCurrent", getDriveCurrent());
-		SmartDashboard.putNumber(prefix + "Speed", getVelocity());
+		telemetry.addNumber(prefix + "WheelPower", driveWheelController::getSetpoint, Telemetry.NORMAL, 0.01);
+		telemetry.addNumber(prefix + "EncoderAngle", this::getEncoderAngle, Telemetry.NORMAL, 0.5);
+		telemetry.addNumber(prefix + "RobotCentricSetpointAngle", () -> Angle.get360Angle(steeringOptimizer.getRobotCentricAngle(moduleNumber)), Telemetry.NORMAL, 0.5);
+		telemetry.addNumber(prefix + "RobotCentricCurrentAngle", this::getModuleAngle, Telemetry.NORMAL, 0.5);
+		telemetry.addNumber(prefix + "IndexCount", this::getEncoderIndexCount, Telemetry.SLOW, 0);
+		telemetry.addNumber(prefix + "DistanceDriven", this::getAbsoluteDistanceDriven, Telemetry.NORMAL, 0.01);
+		telemetry.addNumber(prefix + "DriveCurrent", this::getDriveCurrent, Telemetry.NORMAL, 0.1);
+		telemetry.addNumber(prefix + "Speed", this::getVelocity, Telemetry.NORMAL, 0.05);
 	}
 }
@@ -4,17 +4,50 @@ package org.usfirst.frc.team1218.subsystem.swerve.math;
  * @author afiolmahon
  */
 public class Angle {
-	
+
+	private static final double TWO_PI = 2.0 * Math.PI;
+
 	/**
-	 * @return angle from 0 to 360
+	 * @return angle from 0 up to but not including 360
 	 */
 	public static double get360Angle(double angle) {
-		if (angle < 0.0) angle = 360.0 - Math.abs(angle % 360); //forces angle to be a positive value.
-		if (angle > 360.0) angle = angle % 360.0; //forces angle to be less than 360
-		return angle;
+		angle -= 360.0 * Math.floor(angle / 360.0);
+		return (angle < 360.0) ? angle : 0.0; //a tiny negative input can round up to exactly 360
+	}
+
+	/**
+	 * @return angle from -180 up to but not including 180
+	 */
+	public static double get180Angle(double angle) {
+		return angle - 360.0 * Math.floor((angle + 180.0) / 360.0);
 	}
-	
+
+	/**
+	 * @return the smallest difference between two angles, from 0 to 180
+	 */
 	public static double diffBetweenAngles(double angle1, double angle2) {
-		return (180 - Math.abs(Math.abs(Angle.get360Angle(angle1) - Angle.get360Angle(angle2)) - 180)); 
+		return Math.abs(get180Angle(angle1 - angle2));
+	}
+
+	/**
+	 * @return angle in radians from 0 up to but not including 2 pi
+	 */
+	public static double getTwoPiRadians(double radians) {
+		radians -= TWO_PI * Math.floor(radians / TWO_PI);
+		return (radians < TWO_PI) ? radians : 0.0;
+	}
+
+	/**
+	 * @return angle in radians from -pi up to but not including pi
+	 */
+	public static double getPiRadians(double radians) {
+		return radians - TWO_PI * Math.floor((radians + Math.PI) / TWO_PI);
+	}
+
+	/**
+	 * @return the smallest difference between two angles in radians, from 0 to pi
+	 */
+	public static double diffBetweenRadians(double radians1, double radians2) {
+		return Math.abs(getPiRadians(radians1 - radians2));
 	}
-}
\ No newline at end of file
+}
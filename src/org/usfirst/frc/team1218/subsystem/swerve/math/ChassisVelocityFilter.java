@@ -0,0 +1,189 @@
+package org.usfirst.frc.team1218.subsystem.swerve.math;
+
+/**
+ * Kalman filter for robot centric chassis velocity.
+ * The estimate is predicted forward with accelerometer data and corrected with each swerve module's wheel velocity.
+ * A module whose measurement is too far from the prediction for the current covariance is ignored for that sample,
+ * which rejects wheels that are slipping while pushing or spinning freely off the ground.
+ * If every module is rejected for REJECTION_TIMEOUT the estimate is assumed to be wrong, for example after a
+ * collision the accelerometer missed, and the filter starts over from the wheels.
+ * Not thread safe, SwerveOdometry owns an instance and guards it.
+ * @author afiolmahon
+ */
+public class ChassisVelocityFilter {
+
+	private static final double GATE = 9.21; //chi squared, 2 degrees of freedom, 99%
+	private static final double REJECTION_TIMEOUT = 0.1; //seconds every module may be rejected before starting over
+
+	private final double accelVariance; //(ft/s^2)^2
+	private final double wheelVariance; //(ft/s)^2
+	private final double moduleRadius;
+	private final double[] rotationX;
+	private final double[] rotationY;
+
+	private double velocityX = 0;
+	private double velocityY = 0;
+	//Covariance of the velocity estimate, symmetric so only three terms are stored
+	private double covarianceXX = 0;
+	private double covarianceXY = 0;
+	private double covarianceYY = 0;
+
+	private int acceptedModules = 0;
+	private double rejectedTime = 0;
+	private int reinitializeCount = 0;
+	private boolean initialized = false;
+
+	/**
+	 * @param rotationX x of the unit direction each module moves when the robot rotates clockwise
+	 * @param rotationY y of the unit direction each module moves when the robot rotates clockwise
+	 * @param moduleRadius distance from robot center to each module in feet
+	 * @param accelNoise standard deviation of the accelerometer in ft/s^2
+	 * @param wheelNoise standard deviation of a single wheel velocity in ft/s
+	 */
+	public ChassisVelocityFilter(double[] rotationX, double[] rotationY, double moduleRadius, double accelNoise, double wheelNoise) {
+		this.rotationX = rotationX;
+		this.rotationY = rotationY;
+		this.moduleRadius = moduleRadius;
+		this.accelVariance = accelNoise * accelNoise;
+		this.wheelVariance = wheelNoise * wheelNoise;
+	}
+
+	/**
+	 * Run one predict and correct step.
+	 * @param dt seconds since the last update
+	 * @param yawRate degrees per second, clockwise positive
+	 * @param accelX robot centric acceleration to the right in ft/s^2
+	 * @param accelY robot centric acceleration forward in ft/s^2
+	 * @param wheelAngle direction each wheel is moving the robot in degrees with respect to the front of the robot
+	 * @param wheelVelocity ft/s of each wheel along wheelAngle
+	 */
+	public void update(double dt, double yawRate, double accelX, double accelY, double[] wheelAngle, double[] wheelVelocity) {
+		double rotationSpeed = Math.toRadians(yawRate) * moduleRadius;
+		if (!initialized) {
+			initialize(rotationSpeed, wheelAngle, wheelVelocity);
+			return;
+		}
+		predict(dt, Math.toRadians(yawRate) * dt, accelX, accelY);
+		acceptedModules = 0;
+		for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) {
+			double measuredX = FastTrig.sinDegrees(wheelAngle[i]) * wheelVelocity[i] - rotationX[i] * rotationSpeed;
+			double measuredY = FastTrig.cosDegrees(wheelAngle[i]) * wheelVelocity[i] - rotationY[i] * rotationSpeed;
+			if (correct(measuredX, measuredY)) acceptedModules |= 1 << i;
+		}
+		rejectedTime = (acceptedModules == 0) ? rejectedTime + dt : 0;
+		if (rejectedTime >= REJECTION_TIMEOUT) {
+			initialize(rotationSpeed, wheelAngle, wheelVelocity);
+			reinitializeCount++;
+		}
+	}
+
+	/**
+	 * Start from the average of the wheels with the covariance of a single wheel
+	 */
+	private void initialize(double rotationSpeed, double[] wheelAngle, double[] wheelVelocity) {
+		double sumX = 0;
+		double sumY = 0;
+		for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) {
+			sumX += FastTrig.sinDegrees(wheelAngle[i]) * wheelVelocity[i] - rotationX[i] * rotationSpeed;
+			sumY += FastTrig.cosDegrees(wheelAngle[i]) * wheelVelocity[i] - rotationY[i] * rotationSpeed;
+		}
+		velocityX = sumX / SwerveKinematics.MODULE_COUNT;
+		velocityY = sumY / SwerveKinematics.MODULE_COUNT;
+		covarianceXX = wheelVariance;
+		covarianceXY = 0;
+		covarianceYY = wheelVariance;
+		acceptedModules = (1 << SwerveKinematics.MODULE_COUNT) - 1;
+		rejectedTime = 0;
+		initialized = true;
+	}
+
+	/**
+	 * Integrate acceleration, the velocity vector also turns against the robot as the robot rotates under it
+	 * @param rotation radians turned during dt
+	 */
+	private void predict(double dt, double rotation, double accelX, double accelY) {
+		double oldX = velocityX;
+		velocityX += accelX * dt - rotation * velocityY;
+		velocityY += accelY * dt + rotation * oldX;
+
+		double xx = covarianceXX;
+		double xy = covarianceXY;
+		double yy = covarianceYY;
+		double processVariance = accelVariance * dt * dt;
+		covarianceXX = xx - 2.0 * rotation * xy + rotation * rotation * yy + processVariance;
+		covarianceXY = xy * (1.0 - rotation * rotation) + rotation * (xx - yy);
+		covarianceYY = yy + 2.0 * rotation * xy + rotation * rotation * xx + processVariance;
+	}
+
+	/**
+	 * Fold in one module measurement of chassis velocity
+	 * @return false if the measurement was rejected as an outlier
+	 */
+	private boolean correct(double measuredX, double measuredY) {
+		double innovationX = measuredX - velocityX;
+		double innovationY = measuredY - velocityY;
+		double xx = covarianceXX;
+		double xy = covarianceXY;
+		double yy = covarianceYY;
+		double sxx = xx + wheelVariance;
+		double syy = yy + wheelVariance;
+		double determinant = sxx * syy - xy * xy;
+		double distanceSquared = (syy * innovationX * innovationX - 2.0 * xy * innovationX * innovationY + sxx * innovationY * innovationY) / determinant;
+		if (distanceSquared > GATE) return false;
+
+		double gainXX = (xx * syy - xy * xy) / determinant;
+		double gainXY = (xy * sxx - xx * xy) / determinant;
+		double gainYX = (xy * syy - yy * xy) / determinant;
+		double gainYY = (yy * sxx - xy * xy) / determinant;
+		velocityX += gainXX * innovationX + gainXY * innovationY;
+		velocityY += gainYX * innovationX + gainYY * innovationY;
+		covarianceXX = xx - (gainXX * xx + gainXY * xy);
+		covarianceXY = xy - (gainXX * xy + gainXY * yy);
+		covarianceYY = yy - (gainYX * xy + gainYY * yy);
+		return true;
+	}
+
+	public void reset() {
+		initialized = false;
+	}
+
+	/**
+	 * @return robot centric velocity to the right in ft/s
+	 */
+	public double getVelocityX() {
+		return velocityX;
+	}
+
+	/**
+	 * @return robot centric velocity forward in ft/s
+	 */
+	public double getVelocityY() {
+		return velocityY;
+	}
+
+	public double getCovarianceXX() {
+		return covarianceXX;
+	}
+
+	public double getCovarianceXY() {
+		return covarianceXY;
+	}
+
+	public double getCovarianceYY() {
+		return covarianceYY;
+	}
+
+	/**
+	 * @return number of times the filter started over because every module was rejected
+	 */
+	public int getReinitializeCount() {
+		return reinitializeCount;
+	}
+
+	/**
+	 * @return bit i is set if module i was used in the last update
+	 */
+	public int getAcceptedModules() {
+		return acceptedModules;
+	}
+}
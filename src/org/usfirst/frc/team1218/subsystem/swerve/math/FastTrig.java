@@ -0,0 +1,85 @@
+package org.usfirst.frc.team1218.subsystem.swerve.math;
+
+/**
+ * Lookup table sine, cosine and arctangent for the control loop.
+ * Values are linearly interpolated between table entries:
+ * sin and cos are within 3e-7 of Math.sin/Math.cos for any input,
+ * atan2 is within 1e-7 radians (6e-6 degrees) of Math.atan2.
+ * Both are far below what an encoder or joystick can resolve.
+ * @author afiolmahon
+ */
+public class FastTrig {
+
+	private static final int SIN_TABLE_SIZE = 4096; //entries per full turn, must be a power of two
+	private static final int SIN_TABLE_MASK = SIN_TABLE_SIZE - 1;
+	private static final int QUARTER_TURN = SIN_TABLE_SIZE / 4;
+	private static final double RADIANS_TO_INDEX = SIN_TABLE_SIZE / (2.0 * Math.PI);
+	private static final double DEGREES_TO_INDEX = SIN_TABLE_SIZE / 360.0;
+
+	private static final int ATAN_TABLE_SIZE = 1024; //entries covering atan(0) to atan(1)
+
+	private static final double[] SIN_TABLE = new double[SIN_TABLE_SIZE + 1];
+	private static final double[] ATAN_TABLE = new double[ATAN_TABLE_SIZE + 1];
+
+	static {
+		for (int i = 0; i <= SIN_TABLE_SIZE; i++) SIN_TABLE[i] = Math.sin(i * 2.0 * Math.PI / SIN_TABLE_SIZE);
+		for (int i = 0; i <= ATAN_TABLE_SIZE; i++) ATAN_TABLE[i] = Math.atan((double) i / ATAN_TABLE_SIZE);
+	}
+
+	/**
+	 * @param index position in the sine table, any value
+	 */
+	private static double lookupSin(double index) {
+		double floor = Math.floor(index);
+		int i = ((int) (long) floor) & SIN_TABLE_MASK;
+		double fraction = index - floor;
+		return SIN_TABLE[i] + (SIN_TABLE[i + 1] - SIN_TABLE[i]) * fraction;
+	}
+
+	public static double sin(double radians) {
+		return lookupSin(radians * RADIANS_TO_INDEX);
+	}
+
+	public static double cos(double radians) {
+		return lookupSin(radians * RADIANS_TO_INDEX + QUARTER_TURN);
+	}
+
+	public static double sinDegrees(double degrees) {
+		return lookupSin(degrees * DEGREES_TO_INDEX);
+	}
+
+	public static double cosDegrees(double degrees) {
+		return lookupSin(degrees * DEGREES_TO_INDEX + QUARTER_TURN);
+	}
+
+	/**
+	 * @param ratio from 0 to 1
+	 * @return atan of ratio in radians
+	 */
+	private static double lookupAtan(double ratio) {
+		double index = ratio * ATAN_TABLE_SIZE;
+		int i = (int) index;
+		if (i >= ATAN_TABLE_SIZE) return ATAN_TABLE[ATAN_TABLE_SIZE];
+		return ATAN_TABLE[i] + (ATAN_TABLE[i + 1] - ATAN_TABLE[i]) * (index - i);
+	}
+
+	/**
+	 * Same argument order and range as Math.atan2
+	 * @return angle in radians from -pi to pi, 0 if both arguments are 0
+	 */
+	public static double atan2(double y, double x) {
+		double absX = Math.abs(x);
+		double absY = Math.abs(y);
+		if (absX == 0 && absY == 0) return 0;
+		double angle = (absX >= absY) ? lookupAtan(absY / absX) : (Math.PI / 2.0) - lookupAtan(absX / absY);
+		if (x < 0) angle = Math.PI - angle;
+		return (y < 0) ? -angle : angle;
+	}
+
+	/**
+	 * @return atan2 in degrees
+	 */
+	public static double atan2Degrees(double y, double x) {
+		return Math.toDegrees(atan2(y, x));
+	}
+}
@@ -0,0 +1,61 @@
+package org.usfirst.frc.team1218.subsystem.swerve.math;
+
+/**
+ * Field position and heading of the robot.
+ * Mutable so a caller can keep one instance and have it filled in every loop.
+ * @author afiolmahon
+ */
+public class Pose {
+	private double x;
+	private double y;
+	private double heading;
+
+	public Pose() {
+		this(0, 0, 0);
+	}
+
+	/**
+	 * @param x feet to the right of the field origin
+	 * @param y feet forward of the field origin
+	 * @param heading degrees, clockwise positive
+	 */
+	public Pose(double x, double y, double heading) {
+		set(x, y, heading);
+	}
+
+	public Pose set(double x, double y, double heading) {
+		this.x = x;
+		this.y = y;
+		this.heading = heading;
+		return this;
+	}
+
+	public Pose set(Pose other) {
+		return set(other.x, other.y, other.heading);
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+
+	public double getHeading() {
+		return heading;
+	}
+
+	/**
+	 * @return straight line distance to another pose in feet
+	 */
+	public double distanceTo(Pose other) {
+		double dx = other.x - x;
+		double dy = other.y - y;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	public String toString() {
+		return "Pose[ X[ " + x + " ] Y[ " + y + " ] Heading[ " + heading + " ] ]";
+	}
+}
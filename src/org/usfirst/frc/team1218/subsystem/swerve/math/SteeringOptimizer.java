@@ -0,0 +1,87 @@
+package org.usfirst.frc.team1218.subsystem.swerve.math;
+
+/**
+ * Chooses, for every swerve module, whether to point the wheel at the requested angle or the opposite way and spin it backwards.
+ * The choice is made from the measured encoder angle, so a module turns the short way from where it actually is rather than from
+ * where it was last asked to be. A module only changes direction once the requested angle is more than 90 degrees plus a hysteresis
+ * band away from the way it is driving, so noise near 90 degrees does not make it flip back and forth.
+ * While a module is still turning its drive output should be scaled by the cosine of the remaining steering error,
+ * so a wheel that is sideways to where it should push does not push in the wrong direction.
+ * @author afiolmahon
+ */
+public class SteeringOptimizer {
+
+	private final double hysteresis;
+	private final double minimumSpeed;
+	private final boolean[] inverted = new boolean[SwerveKinematics.MODULE_COUNT];
+	private final double[] robotCentricAngle = new double[SwerveKinematics.MODULE_COUNT];
+	private final double[] driveScale = new double[SwerveKinematics.MODULE_COUNT];
+
+	/**
+	 * @param hysteresis degrees past 90 the steering error has to reach before a module reverses
+	 * @param minimumSpeed modules asked for less than this are not steered, matching the drive deadband
+	 */
+	public SteeringOptimizer(double hysteresis, double minimumSpeed) {
+		this.hysteresis = hysteresis;
+		this.minimumSpeed = minimumSpeed;
+	}
+
+	/**
+	 * Steer all modules in one pass, modules below minimumSpeed keep their previous setpoint and direction
+	 * @param desiredAngle robot centric angle each module should push the robot
+	 * @param speed requested speed of each module
+	 * @param encoderAngle measured encoder angle of each module from 0-360
+	 * @param setpointOut receives the encoder setpoint of each steered module
+	 * @param driveScaleOut receives the factor to multiply each module's drive output by, from 0 to 1
+	 */
+	public void optimize(double[] desiredAngle, double[] speed, double[] encoderAngle, double[] setpointOut, double[] driveScaleOut) {
+		for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) {
+			if (Math.abs(speed[i]) > minimumSpeed) {
+				setpointOut[i] = optimize(i, desiredAngle[i], encoderAngle[i]);
+			} else {
+				driveScale[i] = 0;
+			}
+			driveScaleOut[i] = driveScale[i];
+		}
+	}
+
+	/**
+	 * Steer a single module
+	 * @param module index of the module
+	 * @param desiredAngle robot centric angle the module should push the robot
+	 * @param encoderAngle measured encoder angle from 0-360
+	 * @return encoder setpoint from 0-360
+	 */
+	public double optimize(int module, double desiredAngle, double encoderAngle) {
+		double wheelAngle = 360.0 - encoderAngle; //robot centric direction the wheel pushes with positive power
+		double error = Angle.get180Angle(desiredAngle + (inverted[module] ? 180.0 : 0.0) - wheelAngle);
+		if (Math.abs(error) > 90.0 + hysteresis) {
+			inverted[module] = !inverted[module];
+			error = Angle.get180Angle(error + 180.0);
+		}
+		robotCentricAngle[module] = desiredAngle;
+		driveScale[module] = Math.max(0.0, FastTrig.cosDegrees(error));
+		return Angle.get360Angle(encoderAngle - error);
+	}
+
+	/**
+	 * @return true if the module's drive wheel should run backwards
+	 */
+	public boolean isInverted(int module) {
+		return inverted[module];
+	}
+
+	/**
+	 * @return last requested angle of the module with respect to the front of the robot
+	 */
+	public double getRobotCentricAngle(int module) {
+		return robotCentricAngle[module];
+	}
+
+	/**
+	 * @return cosine of the steering error at the last update, 0 if the module is not being driven
+	 */
+	public double getDriveScale(int module) {
+		return driveScale[module];
+	}
+}
@@ -0,0 +1,81 @@
+package org.usfirst.frc.team1218.subsystem.swerve.math;
+
+/**
+ * Converts a robot translation and rotation into an angle and speed for every swerve module.
+ * Results are written into arrays owned by the caller so that nothing is allocated each control loop.
+ * @author afiolmahon
+ */
+public class SwerveKinematics {
+
+	public static final int MODULE_COUNT = 4;
+
+	//Direction each module has to push for the robot to rotate, module order matches SwerveDrive
+	private final double[] rotationX;
+	private final double[] rotationY;
+
+	/**
+	 * @param xPerpendicular x component of the direction perpendicular to the line from robot center to a module
+	 * @param yPerpendicular y component of the direction perpendicular to the line from robot center to a module
+	 */
+	public SwerveKinematics(double xPerpendicular, double yPerpendicular) {
+		rotationX = new double[] {xPerpendicular, -xPerpendicular, -xPerpendicular, xPerpendicular};
+		rotationY = new double[] {-yPerpendicular, -yPerpendicular, yPerpendicular, yPerpendicular};
+	}
+
+	/**
+	 * Calculate module angles and speeds, all speeds are scaled down together if any module would exceed 1.
+	 * @param translationX robot centric translation to the right, magnitude of translation should be <= 1
+	 * @param translationY robot centric translation forward
+	 * @param rotation a value from 1 to -1 representing the amount of rotation to add to the robot angle
+	 * @param powerScale scale applied to every module before desaturation
+	 * @param angleOut receives module angles in degrees with respect to the front of the robot
+	 * @param speedOut receives module speeds from 0 to 1
+	 */
+	public void calculate(double translationX, double translationY, double rotation, double powerScale, double[] angleOut, double[] speedOut) {
+		double maxSpeed = 1.0;
+		for (int i = 0; i < MODULE_COUNT; i++) {
+			double x = translationX + rotationX[i] * rotation;
+			double y = translationY + rotationY[i] * rotation;
+			double speed = Math.sqrt(x * x + y * y) * powerScale;
+			angleOut[i] = FastTrig.atan2Degrees(x, y);
+			speedOut[i] = speed;
+			if (speed > maxSpeed) maxSpeed = speed;
+		}
+		if (maxSpeed > 1.0) {
+			for (int i = 0; i < MODULE_COUNT; i++) speedOut[i] /= maxSpeed;
+		}
+	}
+
+	/**
+	 * Adjust a field fixed translation so that holding it robot centric for one loop period while the robot turns
+	 * moves the robot along the commanded direction instead of curving off to the side.
+	 * Over the period the command sweeps through rotation degrees, so it is turned back by half of that
+	 * and lengthened to make up for the chord of the arc being shorter than the arc.
+	 * @param translation robot centric translation, modified in place
+	 * @param rotation degrees the robot will turn during the loop period, clockwise positive
+	 * @return translation
+	 */
+	public static Vector2 discretize(Vector2 translation, double rotation) {
+		double halfAngle = Math.toRadians(rotation) / 2.0;
+		double stretch = (Math.abs(halfAngle) > 1e-6) ? halfAngle / FastTrig.sin(halfAngle) : 1.0;
+		return translation.rotate(-rotation / 2.0).scale(stretch);
+	}
+
+	/**
+	 * Calculate how fast each module angle has to change to keep up with a field fixed translation while the robot turns.
+	 * Robot centric translation turns at -yawRate as the robot rotates, the rotation part of each module vector does not move.
+	 * @param translationX robot centric translation to the right, same units as rotation
+	 * @param translationY robot centric translation forward
+	 * @param rotation amount of rotation passed to calculate
+	 * @param yawRate degrees per second the robot is turning, clockwise positive
+	 * @param rateOut receives module angle rates in degrees per second, clockwise positive, 0 for a module that is not moving
+	 */
+	public void calculateSteeringRates(double translationX, double translationY, double rotation, double yawRate, double[] rateOut) {
+		for (int i = 0; i < MODULE_COUNT; i++) {
+			double x = translationX + rotationX[i] * rotation;
+			double y = translationY + rotationY[i] * rotation;
+			double magnitudeSquared = x * x + y * y;
+			rateOut[i] = (magnitudeSquared > 1e-9) ? -yawRate * (x * translationX + y * translationY) / magnitudeSquared : 0.0;
+		}
+	}
+}
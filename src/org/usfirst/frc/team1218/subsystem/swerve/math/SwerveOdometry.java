@@ -0,0 +1,156 @@
+package org.usfirst.frc.team1218.subsystem.swerve.math;
+
+/**
+ * Tracks the field position of the robot from swerve module velocities, accelerometer data and a gyro heading.
+ * Every update fuses the module velocities and acceleration into a chassis velocity with ChassisVelocityFilter,
+ * rotates it onto the field using the heading halfway through the step and integrates it.
+ * Updates and pose reads are synchronized so the pose can be read from any thread, nothing is allocated per update.
+ * @author afiolmahon
+ */
+public class SwerveOdometry {
+
+	//Unit direction each module moves when the robot rotates clockwise, same layout as SwerveKinematics
+	private final double[] rotationX;
+	private final double[] rotationY;
+	private final double moduleRadius;
+	private final double rotationNormalizer;
+	private final ChassisVelocityFilter velocityFilter;
+
+	private double x = 0;
+	private double y = 0;
+	private double heading = 0;
+
+	private double wheelYawRate = 0; //degrees per second, clockwise positive
+	private double gyroYawRate = 0;
+
+	private double lastTimestamp = 0;
+	private boolean initialized = false;
+
+	/**
+	 * @param xPerpendicular x component of the direction perpendicular to the line from robot center to a module
+	 * @param yPerpendicular y component of the direction perpendicular to the line from robot center to a module
+	 * @param moduleRadius distance from robot center to each module in feet
+	 * @param accelNoise standard deviation of the accelerometer in ft/s^2
+	 * @param wheelNoise standard deviation of a single wheel velocity in ft/s
+	 */
+	public SwerveOdometry(double xPerpendicular, double yPerpendicular, double moduleRadius, double accelNoise, double wheelNoise) {
+		rotationX = new double[] {xPerpendicular, -xPerpendicular, -xPerpendicular, xPerpendicular};
+		rotationY = new double[] {-yPerpendicular, -yPerpendicular, yPerpendicular, yPerpendicular};
+		this.moduleRadius = moduleRadius;
+		double sum = 0;
+		for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) sum += rotationX[i] * rotationX[i] + rotationY[i] * rotationY[i];
+		rotationNormalizer = 1.0 / (sum * moduleRadius);
+		velocityFilter = new ChassisVelocityFilter(rotationX, rotationY, moduleRadius, accelNoise, wheelNoise);
+	}
+
+	/**
+	 * Integrate one step of module motion.
+	 * @param timestamp seconds, only differences between calls are used
+	 * @param heading field centric robot heading in degrees, clockwise positive
+	 * @param accelX robot centric acceleration to the right in ft/s^2
+	 * @param accelY robot centric acceleration forward in ft/s^2
+	 * @param wheelAngle direction each wheel is moving the robot in degrees with respect to the front of the robot
+	 * @param wheelVelocity ft/s of each wheel along wheelAngle, may be negative
+	 */
+	public synchronized void update(double timestamp, double heading, double accelX, double accelY, double[] wheelAngle, double[] wheelVelocity) {
+		double sumRotation = 0;
+		for (int i = 0; i < SwerveKinematics.MODULE_COUNT; i++) {
+			sumRotation += (FastTrig.sinDegrees(wheelAngle[i]) * rotationX[i] + FastTrig.cosDegrees(wheelAngle[i]) * rotationY[i]) * wheelVelocity[i];
+		}
+		wheelYawRate = Math.toDegrees(sumRotation * rotationNormalizer);
+
+		double dt = timestamp - lastTimestamp;
+		if (initialized && dt > 0) {
+			double headingChange = Angle.get180Angle(heading - this.heading);
+			gyroYawRate = headingChange / dt;
+			velocityFilter.update(dt, gyroYawRate, accelX, accelY, wheelAngle, wheelVelocity);
+			double midHeading = this.heading + headingChange / 2.0;
+			double sin = FastTrig.sinDegrees(midHeading);
+			double cos = FastTrig.cosDegrees(midHeading);
+			double velocityX = velocityFilter.getVelocityX();
+			double velocityY = velocityFilter.getVelocityY();
+			x += (velocityX * cos + velocityY * sin) * dt;
+			y += (velocityY * cos - velocityX * sin) * dt;
+		} else if (!initialized) {
+			velocityFilter.update(0, 0, 0, 0, wheelAngle, wheelVelocity);
+		}
+		this.heading = heading;
+		lastTimestamp = timestamp;
+		initialized = true;
+	}
+
+	/**
+	 * Move the tracked position without disturbing the velocity estimate, heading keeps following the gyro
+	 * @param x feet
+	 * @param y feet
+	 */
+	public synchronized void resetPosition(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Copy the current pose into a pose owned by the caller
+	 * @return out
+	 */
+	public synchronized Pose getPose(Pose out) {
+		return out.set(x, y, heading);
+	}
+
+	/**
+	 * @return robot centric velocity to the right in ft/s
+	 */
+	public synchronized double getVelocityX() {
+		return velocityFilter.getVelocityX();
+	}
+
+	/**
+	 * @return robot centric velocity forward in ft/s
+	 */
+	public synchronized double getVelocityY() {
+		return velocityFilter.getVelocityY();
+	}
+
+	/**
+	 * @return variance of the right velocity estimate in (ft/s)^2
+	 */
+	public synchronized double getVelocityVarianceX() {
+		return velocityFilter.getCovarianceXX();
+	}
+
+	/**
+	 * @return variance of the forward velocity estimate in (ft/s)^2
+	 */
+	public synchronized double getVelocityVarianceY() {
+		return velocityFilter.getCovarianceYY();
+	}
+
+	public synchronized double getVelocityCovarianceXY() {
+		return velocityFilter.getCovarianceXY();
+	}
+
+	/**
+	 * @return bit i is set if module i agreed with the velocity estimate in the last update
+	 */
+	public synchronized int getAcceptedModules() {
+		return velocityFilter.getAcceptedModules();
+	}
+
+	/**
+	 * @return heading rate from the gyro in degrees per second
+	 */
+	public synchronized double getGyroYawRate() {
+		return gyroYawRate;
+	}
+
+	/**
+	 * @return rotation rate measured by the wheels in degrees per second, useful as a cross check against the gyro
+	 */
+	public synchronized double getWheelYawRate() {
+		return wheelYawRate;
+	}
+
+	public double getModuleRadius() {
+		return moduleRadius;
+	}
+}
@@ -0,0 +1,58 @@
+package org.usfirst.frc.team1218.subsystem.swerve.math;
+
+import java.util.Arrays;
+
+/**
+ * 
+ * @author afiolmahon
+ *
+ */
+public class Test_ChassisVelocityFilter {
+
+	private static final double DT = 0.005;
+	private static final double X_PERPENDICULAR = 0.546;
+	private static final double Y_PERPENDICULAR = 0.837;
+
+	/**
+	 * Drive straight forward, spin one wheel freely, then stop hard without the accelerometer seeing it
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		double[] rotationX = {X_PERPENDICULAR, -X_PERPENDICULAR, -X_PERPENDICULAR, X_PERPENDICULAR};
+		double[] rotationY = {-Y_PERPENDICULAR, -Y_PERPENDICULAR, Y_PERPENDICULAR, Y_PERPENDICULAR};
+		ChassisVelocityFilter filter = new ChassisVelocityFilter(rotationX, rotationY, 1.6, 1.5, 0.25);
+		double[] wheelAngle = new double[SwerveKinematics.MODULE_COUNT];
+		double[] wheelVelocity = new double[SwerveKinematics.MODULE_COUNT];
+
+		Arrays.fill(wheelVelocity, 5.0);
+		for (int i = 0; i < 200; i++) filter.update(DT, 0, 0, 0, wheelAngle, wheelVelocity);
+		System.out.println("Cruise: Velocity_Y " + filter.getVelocityY() + " Accepted " + Integer.toBinaryString(filter.getAcceptedModules()));
+
+		wheelVelocity[2] = 12.0; //wheel off the ground
+		for (int i = 0; i < 20; i++) filter.update(DT, 0, 0, 0, wheelAngle, wheelVelocity);
+		System.out.println("Free wheel: Velocity_Y " + filter.getVelocityY() + " Accepted " + Integer.toBinaryString(filter.getAcceptedModules()));
+		check(filter.getAcceptedModules() == 0b1011, "free spinning wheel rejected");
+		check(Math.abs(filter.getVelocityY() - 5.0) < 0.1, "estimate follows the grounded wheels");
+
+		Arrays.fill(wheelVelocity, 0.0); //collision, accelerometer reports nothing
+		int rejectedTicks = 0;
+		for (int i = 0; i < 100; i++) {
+			filter.update(DT, 0, 0, 0, wheelAngle, wheelVelocity);
+			if (filter.getAcceptedModules() == 0) rejectedTicks++;
+			if (Math.abs(filter.getVelocityY()) < 0.1) {
+				System.out.println("Stop: recovered after " + (i + 1) + " ticks, " + rejectedTicks + " with every module rejected");
+				break;
+			}
+		}
+		System.out.println("Stop: Velocity_Y " + filter.getVelocityY() + " Reinitialized " + filter.getReinitializeCount());
+		check(Math.abs(filter.getVelocityY()) < 0.1, "estimate recovers after a hard stop");
+		check(filter.getReinitializeCount() == 1, "filter started over once");
+
+		for (int i = 0; i < 20; i++) filter.update(DT, 0, 0, 0, wheelAngle, wheelVelocity);
+		check(filter.getAcceptedModules() == 0b1111, "all wheels accepted after recovery");
+	}
+
+	private static void check(boolean passed, String description) {
+		System.out.println((passed ? "PASS: " : "FAIL: ") + description);
+	}
+}
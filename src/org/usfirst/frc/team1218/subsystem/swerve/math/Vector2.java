@@ -0,0 +1,135 @@
+package org.usfirst.frc.team1218.subsystem.swerve.math;
+
+/**
+ * Mutable two dimensional vector for use in the control loop.
+ * All operations modify the vector in place and return it so they can be chained,
+ * keep an instance as a field and reuse it instead of creating a new vector every loop.
+ * Angles are in degrees, 0 points along +y (robot front) and positive angles rotate towards +x.
+ * Trig goes through FastTrig, see its accuracy notes.
+ * @author afiolmahon
+ */
+public class Vector2 {
+	protected double x;
+	protected double y;
+
+	public Vector2() {
+		this(0, 0);
+	}
+
+	public Vector2(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+
+	public Vector2 set(double x, double y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	public Vector2 set(Vector2 other) {
+		this.x = other.x;
+		this.y = other.y;
+		return this;
+	}
+
+	/**
+	 * Set the vector from an angle and a magnitude
+	 * @param angle degrees
+	 * @param magnitude
+	 */
+	public Vector2 setPolar(double angle, double magnitude) {
+		this.x = FastTrig.sinDegrees(angle) * magnitude;
+		this.y = FastTrig.cosDegrees(angle) * magnitude;
+		return this;
+	}
+
+	public double getMagnitudeSquared() {
+		return x * x + y * y;
+	}
+
+	public double getMagnitude() {
+		return Math.sqrt(x * x + y * y);
+	}
+
+	/**
+	 * @return angle of vector in degrees
+	 */
+	public double getAngle() {
+		return FastTrig.atan2Degrees(x, y);
+	}
+
+	public Vector2 add(Vector2 other) {
+		this.x += other.x;
+		this.y += other.y;
+		return this;
+	}
+
+	public Vector2 add(double x, double y) {
+		this.x += x;
+		this.y += y;
+		return this;
+	}
+
+	/**
+	 * Multiply both components by a scalar, no square root is needed
+	 * @param scalar
+	 */
+	public Vector2 scale(double scalar) {
+		this.x *= scalar;
+		this.y *= scalar;
+		return this;
+	}
+
+	/**
+	 * Rotate using a sine and cosine the caller has already computed, useful when the same rotation is applied to several vectors
+	 * @param sin sine of the rotation angle
+	 * @param cos cosine of the rotation angle
+	 */
+	public Vector2 rotate(double sin, double cos) {
+		double oldX = x;
+		this.x = oldX * cos + y * sin;
+		this.y = y * cos - oldX * sin;
+		return this;
+	}
+
+	/**
+	 * Add an angle to the vector's current angle without changing its magnitude
+	 * @param angle degrees
+	 */
+	public Vector2 rotate(double angle) {
+		return rotate(FastTrig.sinDegrees(angle), FastTrig.cosDegrees(angle));
+	}
+
+	/**
+	 * Change the vector length while keeping its angle, a zero vector is left unchanged
+	 * @param magnitude
+	 */
+	public Vector2 setMagnitude(double magnitude) {
+		double magnitudeSquared = getMagnitudeSquared();
+		if (magnitudeSquared > 0) scale(magnitude / Math.sqrt(magnitudeSquared));
+		return this;
+	}
+
+	/**
+	 * Shorten the vector to maxMagnitude if it is longer, the square root is only taken when the vector is clamped
+	 * @param maxMagnitude
+	 */
+	public Vector2 clampMagnitude(double maxMagnitude) {
+		double magnitudeSquared = getMagnitudeSquared();
+		if (magnitudeSquared > maxMagnitude * maxMagnitude) scale(maxMagnitude / Math.sqrt(magnitudeSquared));
+		return this;
+	}
+
+	public String toString() {
+		return "Vector2[ X[ " + x + " ] Y[ " + y + " ] ]";
+	}
+}
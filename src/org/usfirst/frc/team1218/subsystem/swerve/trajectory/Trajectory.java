@@ -0,0 +1,103 @@
+package org.usfirst.frc.team1218.subsystem.swerve.trajectory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Field centric swerve path sampled at a fixed time step.
+ * Samples are fixed size records of little endian floats in a ByteBuffer, the same layout TrajectoryCache writes to disk,
+ * so a trajectory generated in memory and one memory mapped from the cache are sampled the same way, without parsing or allocating.
+ * @author afiolmahon
+ */
+public class Trajectory {
+
+	//Record layout, each field is a float
+	static final int TIME = 0;
+	static final int X = 4;
+	static final int Y = 8;
+	static final int HEADING = 12;
+	static final int VELOCITY_X = 16;
+	static final int VELOCITY_Y = 20;
+	static final int HEADING_RATE = 24;
+	public static final int RECORD_SIZE = 28;
+
+	private final double timeStep;
+	private final ByteBuffer records;
+	private final int length;
+	private final double[] waypointTime;
+
+	/**
+	 * @param timeStep seconds between records
+	 * @param records record i is at time i * timeStep, read from index 0 to the buffer limit
+	 * @param waypointTime time the path passes each waypoint
+	 */
+	public Trajectory(double timeStep, ByteBuffer records, double[] waypointTime) {
+		this.timeStep = timeStep;
+		this.records = records.slice().order(ByteOrder.LITTLE_ENDIAN);
+		this.length = this.records.capacity() / RECORD_SIZE;
+		this.waypointTime = waypointTime;
+	}
+
+	public double getTimeStep() {
+		return timeStep;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return seconds from start to the last sample
+	 */
+	public double getDuration() {
+		return (length - 1) * timeStep;
+	}
+
+	/**
+	 * @return seconds from start until the path passes waypoint index
+	 */
+	public double getWaypointTime(int index) {
+		return waypointTime[index];
+	}
+
+	public int getWaypointCount() {
+		return waypointTime.length;
+	}
+
+	/**
+	 * @return a read only view of the records for writing to a file
+	 */
+	ByteBuffer getRecords() {
+		return records.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Interpolate the trajectory at a time, times past the end hold the final sample
+	 * @param time seconds since the trajectory started
+	 * @param out filled with the state at time
+	 * @return out
+	 */
+	public TrajectoryPoint sample(double time, TrajectoryPoint out) {
+		double index = Math.max(0, time / timeStep);
+		int i = (int) index;
+		if (i >= length - 1) {
+			i = length - 1;
+			index = i;
+		}
+		int base = i * RECORD_SIZE;
+		int next = (i < length - 1) ? base + RECORD_SIZE : base;
+		double fraction = index - i;
+		out.x = interpolate(base, next, X, fraction);
+		out.y = interpolate(base, next, Y, fraction);
+		out.velocityX = interpolate(base, next, VELOCITY_X, fraction);
+		out.velocityY = interpolate(base, next, VELOCITY_Y, fraction);
+		out.heading = interpolate(base, next, HEADING, fraction);
+		out.headingRate = interpolate(base, next, HEADING_RATE, fraction);
+		return out;
+	}
+
+	private double interpolate(int base, int next, int field, double fraction) {
+		double start = records.getFloat(base + field);
+		return start + (records.getFloat(next + field) - start) * fraction;
+	}
+}
@@ -0,0 +1,171 @@
+package org.usfirst.frc.team1218.subsystem.swerve.trajectory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Trajectories generated off robot and stored in one binary file that the robot memory maps at startup.
+ * 
+ * File layout, little endian:
+ * header: int magic, int version, int trajectory count, int CRC32 of every byte after the header
+ * directory entry per trajectory: name (NAME_LENGTH bytes, zero padded), int definition hash,
+ *   double time step, int sample count, int waypoint count, int data offset
+ * data per trajectory at its offset: double waypoint times, then fixed size Trajectory records
+ * 
+ * A missing or corrupt file, an old version or a definition that changed since the file was built
+ * is reported and the trajectory is generated on the robot instead. prepare does that for every
+ * trajectory during robotInit, so autonomousInit only ever looks trajectories up.
+ * @author afiolmahon
+ */
+public class TrajectoryCache {
+
+	public static final int MAGIC = 0x4A415254; //"TRAJ"
+	public static final int VERSION = 1;
+	public static final int NAME_LENGTH = 32;
+	private static final int HEADER_SIZE = 16;
+	private static final int ENTRY_SIZE = NAME_LENGTH + 4 + 8 + 4 + 4 + 4;
+
+	private final Map<String, Trajectory> trajectories = new HashMap<String, Trajectory>();
+	private final Map<String, Integer> hashes = new HashMap<String, Integer>();
+
+	private TrajectoryCache() {}
+
+	/**
+	 * Memory map a cache file, never throws, an unusable file gives an empty cache
+	 */
+	public static TrajectoryCache load(File file) {
+		TrajectoryCache cache = new TrajectoryCache();
+		try (RandomAccessFile input = new RandomAccessFile(file, "r"); FileChannel channel = input.getChannel()) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			cache.read(buffer);
+			System.out.println("[TrajectoryCache]: Loaded " + cache.trajectories.size() + " trajectories from " + file);
+		} catch (IOException | RuntimeException e) {
+			cache.trajectories.clear();
+			cache.hashes.clear();
+			System.out.println("[TrajectoryCache]: Could not load " + file + ", trajectories will be generated on the robot: " + e.getMessage());
+		}
+		return cache;
+	}
+
+	private void read(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_SIZE) throw new IOException("file is too short");
+		if (buffer.getInt(0) != MAGIC) throw new IOException("not a trajectory cache");
+		if (buffer.getInt(4) != VERSION) throw new IOException("version " + buffer.getInt(4) + " is not " + VERSION + ", rebuild the cache");
+		int count = buffer.getInt(8);
+		int checksum = buffer.getInt(12);
+		ByteBuffer body = buffer.duplicate();
+		body.position(HEADER_SIZE);
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		if ((int) crc.getValue() != checksum) throw new IOException("checksum mismatch");
+
+		byte[] nameBytes = new byte[NAME_LENGTH];
+		for (int i = 0; i < count; i++) {
+			int entry = HEADER_SIZE + i * ENTRY_SIZE;
+			ByteBuffer nameView = buffer.duplicate();
+			nameView.position(entry);
+			nameView.get(nameBytes);
+			int nameLength = 0;
+			while (nameLength < NAME_LENGTH && nameBytes[nameLength] != 0) nameLength++;
+			String name = new String(nameBytes, 0, nameLength, StandardCharsets.US_ASCII);
+			int hash = buffer.getInt(entry + NAME_LENGTH);
+			double timeStep = buffer.getDouble(entry + NAME_LENGTH + 4);
+			int sampleCount = buffer.getInt(entry + NAME_LENGTH + 12);
+			int waypointCount = buffer.getInt(entry + NAME_LENGTH + 16);
+			int offset = buffer.getInt(entry + NAME_LENGTH + 20);
+
+			double[] waypointTime = new double[waypointCount];
+			for (int w = 0; w < waypointCount; w++) waypointTime[w] = buffer.getDouble(offset + w * 8);
+			ByteBuffer records = buffer.duplicate();
+			records.position(offset + waypointCount * 8);
+			records.limit(offset + waypointCount * 8 + sampleCount * Trajectory.RECORD_SIZE);
+			trajectories.put(name, new Trajectory(timeStep, records, waypointTime));
+			hashes.put(name, hash);
+		}
+	}
+
+	/**
+	 * Generate every definition the cache does not have a current copy of and keep the result, call from robotInit
+	 */
+	public void prepare(TrajectoryDefinition... definitions) {
+		for (TrajectoryDefinition definition : definitions) {
+			Trajectory trajectory = trajectories.get(definition.name);
+			int hash = definition.getHash();
+			if (trajectory == null) {
+				System.out.println("[TrajectoryCache]: " + definition.name + " is not cached, generating on the robot");
+			} else if (hashes.get(definition.name) != hash) {
+				System.out.println("[TrajectoryCache]: " + definition.name + " is stale, generating on the robot, rebuild the cache");
+			} else {
+				continue;
+			}
+			trajectories.put(definition.name, definition.generate());
+			hashes.put(definition.name, hash);
+		}
+	}
+
+	/**
+	 * Get the trajectory for a definition, only generates if prepare was not given the definition
+	 */
+	public Trajectory get(TrajectoryDefinition definition) {
+		Trajectory trajectory = trajectories.get(definition.name);
+		if (trajectory == null || hashes.get(definition.name) != definition.getHash()) {
+			System.out.println("[TrajectoryCache]: " + definition.name + " was not prepared in robotInit, generating now");
+			prepare(definition);
+			trajectory = trajectories.get(definition.name);
+		}
+		return trajectory;
+	}
+
+	/**
+	 * Generate every definition and write them to a cache file, run off robot
+	 */
+	public static void write(File file, TrajectoryDefinition... definitions) throws IOException {
+		Trajectory[] generated = new Trajectory[definitions.length];
+		int size = HEADER_SIZE + definitions.length * ENTRY_SIZE;
+		for (int i = 0; i < definitions.length; i++) {
+			if (definitions[i].name.length() > NAME_LENGTH) throw new IllegalArgumentException("Trajectory name is too long: " + definitions[i].name);
+			generated[i] = definitions[i].generate();
+			size += generated[i].getWaypointCount() * 8 + generated[i].getLength() * Trajectory.RECORD_SIZE;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(definitions.length);
+		buffer.putInt(0); //checksum, filled in below
+		int offset = HEADER_SIZE + definitions.length * ENTRY_SIZE;
+		for (int i = 0; i < definitions.length; i++) {
+			Trajectory trajectory = generated[i];
+			int entry = HEADER_SIZE + i * ENTRY_SIZE;
+			buffer.position(entry);
+			buffer.put(definitions[i].name.getBytes(StandardCharsets.US_ASCII));
+			buffer.putInt(entry + NAME_LENGTH, definitions[i].getHash());
+			buffer.putDouble(entry + NAME_LENGTH + 4, trajectory.getTimeStep());
+			buffer.putInt(entry + NAME_LENGTH + 12, trajectory.getLength());
+			buffer.putInt(entry + NAME_LENGTH + 16, trajectory.getWaypointCount());
+			buffer.putInt(entry + NAME_LENGTH + 20, offset);
+			buffer.position(offset);
+			for (int w = 0; w < trajectory.getWaypointCount(); w++) buffer.putDouble(trajectory.getWaypointTime(w));
+			buffer.put(trajectory.getRecords());
+			offset = buffer.position();
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), HEADER_SIZE, size - HEADER_SIZE);
+		buffer.putInt(12, (int) crc.getValue());
+		try (FileOutputStream output = new FileOutputStream(file)) {
+			output.write(buffer.array());
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package org.usfirst.frc.team1218.subsystem.swerve.trajectory;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Everything needed to generate a trajectory, kept separate from the generated samples so the robot
+ * can check a cached trajectory still matches its definition without generating it.
+ * @author afiolmahon
+ */
+public class TrajectoryDefinition {
+
+	public final String name;
+	private final double maxVelocity;
+	private final double maxAcceleration;
+	private final double maxHeadingRate;
+	private final double maxHeadingAcceleration;
+	private final double startHeading;
+	private final double endHeading;
+	private final Waypoint[] waypoints;
+
+	/**
+	 * @param name unique name used to find the trajectory in the cache, at most TrajectoryCache.NAME_LENGTH ascii characters
+	 * @param maxVelocity ft/s
+	 * @param maxAcceleration ft/s^2
+	 * @param maxHeadingRate degrees per second
+	 * @param maxHeadingAcceleration degrees per second^2
+	 * @param startHeading degrees
+	 * @param endHeading degrees
+	 * @param waypoints at least two field positions
+	 */
+	public TrajectoryDefinition(String name, double maxVelocity, double maxAcceleration, double maxHeadingRate, double maxHeadingAcceleration,
+			double startHeading, double endHeading, Waypoint... waypoints) {
+		this.name = name;
+		this.maxVelocity = maxVelocity;
+		this.maxAcceleration = maxAcceleration;
+		this.maxHeadingRate = maxHeadingRate;
+		this.maxHeadingAcceleration = maxHeadingAcceleration;
+		this.startHeading = startHeading;
+		this.endHeading = endHeading;
+		this.waypoints = waypoints;
+	}
+
+	public Trajectory generate() {
+		return new TrajectoryGenerator(maxVelocity, maxAcceleration, maxHeadingRate, maxHeadingAcceleration).generate(startHeading, endHeading, waypoints);
+	}
+
+	/**
+	 * @return checksum of every value that affects the generated trajectory, including the generator's constants
+	 */
+	public int getHash() {
+		ByteBuffer values = ByteBuffer.allocate(8 * (8 + 2 * waypoints.length));
+		values.putDouble(TrajectoryGenerator.DEFAULT_TIME_STEP);
+		values.putDouble(TrajectoryGenerator.SAMPLES_PER_SEGMENT);
+		values.putDouble(maxVelocity);
+		values.putDouble(maxAcceleration);
+		values.putDouble(maxHeadingRate);
+		values.putDouble(maxHeadingAcceleration);
+		values.putDouble(startHeading);
+		values.putDouble(endHeading);
+		for (Waypoint waypoint : waypoints) {
+			values.putDouble(waypoint.x);
+			values.putDouble(waypoint.y);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(values.array());
+		return (int) crc.getValue();
+	}
+}
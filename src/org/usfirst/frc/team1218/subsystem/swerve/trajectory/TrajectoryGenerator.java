@@ -0,0 +1,166 @@
+package org.usfirst.frc.team1218.subsystem.swerve.trajectory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.usfirst.frc.team1218.subsystem.swerve.math.Angle;
+
+/**
+ * Builds time parameterized swerve trajectories through a list of waypoints.
+ * The path is a Catmull-Rom spline so it passes through every waypoint without stopping.
+ * Speed along the path is limited by maxVelocity, maxAcceleration and by curvature so corners are taken at a speed the wheels can hold.
+ * Heading follows its own trapezoidal profile from the start heading to the end heading, independent of where the robot is on the path.
+ * Generation allocates and is meant to run before a match starts, following the result does not.
+ * @author afiolmahon
+ */
+public class TrajectoryGenerator {
+
+	//Constants that change the generated samples are part of TrajectoryDefinition.getHash so cached copies go stale
+	public static final double DEFAULT_TIME_STEP = 0.02; //seconds, matches the robot loop
+	static final int SAMPLES_PER_SEGMENT = 100;
+
+	private final double maxVelocity;
+	private final double maxAcceleration;
+	private final double maxHeadingRate;
+	private final double maxHeadingAcceleration;
+	private final double timeStep;
+
+	/**
+	 * @param maxVelocity ft/s
+	 * @param maxAcceleration ft/s^2, also used as the limit on acceleration towards the center of a turn
+	 * @param maxHeadingRate degrees per second
+	 * @param maxHeadingAcceleration degrees per second^2
+	 */
+	public TrajectoryGenerator(double maxVelocity, double maxAcceleration, double maxHeadingRate, double maxHeadingAcceleration) {
+		this(maxVelocity, maxAcceleration, maxHeadingRate, maxHeadingAcceleration, DEFAULT_TIME_STEP);
+	}
+
+	public TrajectoryGenerator(double maxVelocity, double maxAcceleration, double maxHeadingRate, double maxHeadingAcceleration, double timeStep) {
+		this.maxVelocity = maxVelocity;
+		this.maxAcceleration = maxAcceleration;
+		this.maxHeadingRate = maxHeadingRate;
+		this.maxHeadingAcceleration = maxHeadingAcceleration;
+		this.timeStep = timeStep;
+	}
+
+	/**
+	 * @param startHeading heading at the start of the trajectory in degrees
+	 * @param endHeading heading to finish at, the robot turns the short way
+	 * @param waypoints at least two field positions, starting and ending at rest
+	 */
+	public Trajectory generate(double startHeading, double endHeading, Waypoint... waypoints) {
+		if (waypoints.length < 2) throw new IllegalArgumentException("A trajectory needs at least two waypoints");
+		int segments = waypoints.length - 1;
+		int count = segments * SAMPLES_PER_SEGMENT + 1;
+		double[] pathX = new double[count];
+		double[] pathY = new double[count];
+		sampleSpline(waypoints, pathX, pathY);
+
+		double[] distance = new double[count];
+		for (int i = 1; i < count; i++) distance[i] = distance[i - 1] + Math.hypot(pathX[i] - pathX[i - 1], pathY[i] - pathY[i - 1]);
+
+		double[] speed = limitSpeed(pathX, pathY, distance);
+
+		double[] pathTime = new double[count];
+		for (int i = 1; i < count; i++) {
+			double step = distance[i] - distance[i - 1];
+			double averageSpeed = (speed[i] + speed[i - 1]) / 2.0;
+			pathTime[i] = pathTime[i - 1] + ((averageSpeed > 0) ? step / averageSpeed : 0);
+		}
+		double[] waypointTime = new double[waypoints.length];
+		for (int i = 0; i < waypoints.length; i++) waypointTime[i] = pathTime[i * SAMPLES_PER_SEGMENT];
+
+		TrapezoidalProfile headingProfile = new TrapezoidalProfile(Angle.get180Angle(endHeading - startHeading), maxHeadingRate, maxHeadingAcceleration);
+		double duration = Math.max(pathTime[count - 1], headingProfile.getDuration());
+		int length = (int) Math.ceil(duration / timeStep) + 1;
+
+		ByteBuffer records = ByteBuffer.allocate(length * Trajectory.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		int segment = 0;
+		for (int k = 0; k < length; k++) {
+			double time = k * timeStep;
+			while (segment < count - 2 && pathTime[segment + 1] < time) segment++;
+			double segmentTime = pathTime[segment + 1] - pathTime[segment];
+			double fraction = (segmentTime > 0) ? Math.min(1.0, Math.max(0.0, (time - pathTime[segment]) / segmentTime)) : 1.0;
+			double step = distance[segment + 1] - distance[segment];
+			double currentSpeed = speed[segment] + (speed[segment + 1] - speed[segment]) * fraction;
+			double velocityX = 0;
+			double velocityY = 0;
+			if (step > 0) {
+				velocityX = currentSpeed * (pathX[segment + 1] - pathX[segment]) / step;
+				velocityY = currentSpeed * (pathY[segment + 1] - pathY[segment]) / step;
+			}
+			int base = k * Trajectory.RECORD_SIZE;
+			records.putFloat(base + Trajectory.TIME, (float) time);
+			records.putFloat(base + Trajectory.X, (float) (pathX[segment] + (pathX[segment + 1] - pathX[segment]) * fraction));
+			records.putFloat(base + Trajectory.Y, (float) (pathY[segment] + (pathY[segment + 1] - pathY[segment]) * fraction));
+			records.putFloat(base + Trajectory.HEADING, (float) (startHeading + headingProfile.getPosition(time)));
+			records.putFloat(base + Trajectory.VELOCITY_X, (float) velocityX);
+			records.putFloat(base + Trajectory.VELOCITY_Y, (float) velocityY);
+			records.putFloat(base + Trajectory.HEADING_RATE, (float) headingProfile.getVelocity(time));
+		}
+		return new Trajectory(timeStep, records, waypointTime);
+	}
+
+	/**
+	 * Fill pathX and pathY with points along a Catmull-Rom spline, the end tangents point at the neighbouring waypoint
+	 */
+	private static void sampleSpline(Waypoint[] waypoints, double[] pathX, double[] pathY) {
+		int last = waypoints.length - 1;
+		for (int segment = 0; segment < last; segment++) {
+			Waypoint p0 = waypoints[Math.max(segment - 1, 0)];
+			Waypoint p1 = waypoints[segment];
+			Waypoint p2 = waypoints[segment + 1];
+			Waypoint p3 = waypoints[Math.min(segment + 2, last)];
+			double tangent1X = (p2.x - p0.x) / 2.0;
+			double tangent1Y = (p2.y - p0.y) / 2.0;
+			double tangent2X = (p3.x - p1.x) / 2.0;
+			double tangent2Y = (p3.y - p1.y) / 2.0;
+			int samples = (segment == last - 1) ? SAMPLES_PER_SEGMENT + 1 : SAMPLES_PER_SEGMENT;
+			for (int i = 0; i < samples; i++) {
+				double u = (double) i / SAMPLES_PER_SEGMENT;
+				double u2 = u * u;
+				double u3 = u2 * u;
+				double h00 = 2 * u3 - 3 * u2 + 1;
+				double h10 = u3 - 2 * u2 + u;
+				double h01 = -2 * u3 + 3 * u2;
+				double h11 = u3 - u2;
+				int index = segment * SAMPLES_PER_SEGMENT + i;
+				pathX[index] = h00 * p1.x + h10 * tangent1X + h01 * p2.x + h11 * tangent2X;
+				pathY[index] = h00 * p1.y + h10 * tangent1Y + h01 * p2.y + h11 * tangent2Y;
+			}
+		}
+	}
+
+	/**
+	 * Find the fastest speed at every point that respects the velocity, curvature and acceleration limits
+	 * with the robot at rest at both ends
+	 */
+	private double[] limitSpeed(double[] pathX, double[] pathY, double[] distance) {
+		int count = pathX.length;
+		double[] speed = new double[count];
+		for (int i = 1; i < count - 1; i++) {
+			double curvature = curvature(pathX[i - 1], pathY[i - 1], pathX[i], pathY[i], pathX[i + 1], pathY[i + 1]);
+			speed[i] = (curvature > 0) ? Math.min(maxVelocity, Math.sqrt(maxAcceleration / curvature)) : maxVelocity;
+		}
+		speed[0] = 0;
+		speed[count - 1] = 0;
+		for (int i = 1; i < count; i++) {
+			double step = distance[i] - distance[i - 1];
+			speed[i] = Math.min(speed[i], Math.sqrt(speed[i - 1] * speed[i - 1] + 2.0 * maxAcceleration * step));
+		}
+		for (int i = count - 2; i >= 0; i--) {
+			double step = distance[i + 1] - distance[i];
+			speed[i] = Math.min(speed[i], Math.sqrt(speed[i + 1] * speed[i + 1] + 2.0 * maxAcceleration * step));
+		}
+		return speed;
+	}
+
+	/**
+	 * @return curvature of the circle through three points, 0 if they are in a line
+	 */
+	private static double curvature(double ax, double ay, double bx, double by, double cx, double cy) {
+		double cross = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+		double product = Math.hypot(bx - ax, by - ay) * Math.hypot(cx - bx, cy - by) * Math.hypot(cx - ax, cy - ay);
+		return (product > 0) ? 2.0 * Math.abs(cross) / product : 0;
+	}
+}
@@ -0,0 +1,19 @@
+package org.usfirst.frc.team1218.subsystem.swerve.trajectory;
+
+/**
+ * State the robot should be in at one moment of a trajectory, all values are field centric.
+ * Mutable so a follower can keep one instance and have it filled in every loop.
+ * @author afiolmahon
+ */
+public class TrajectoryPoint {
+	public double x; //feet
+	public double y;
+	public double velocityX; //ft/s
+	public double velocityY;
+	public double heading; //degrees, clockwise positive
+	public double headingRate; //degrees per second
+
+	public String toString() {
+		return "TrajectoryPoint[ X[ " + x + " ] Y[ " + y + " ] VX[ " + velocityX + " ] VY[ " + velocityY + " ] Heading[ " + heading + " ] HeadingRate[ " + headingRate + " ] ]";
+	}
+}
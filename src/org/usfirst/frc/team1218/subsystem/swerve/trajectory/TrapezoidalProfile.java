@@ -0,0 +1,58 @@
+package org.usfirst.frc.team1218.subsystem.swerve.trajectory;
+
+/**
+ * Move a distance from rest to rest as fast as possible without exceeding a velocity or acceleration.
+ * Falls back to a triangular profile when the distance is too short to reach maxVelocity.
+ * @author afiolmahon
+ */
+public class TrapezoidalProfile {
+
+	private final double direction;
+	private final double maxAcceleration;
+	private final double cruiseVelocity;
+	private final double accelerationTime;
+	private final double cruiseTime;
+	private final double accelerationDistance;
+
+	/**
+	 * @param distance signed distance to travel
+	 * @param maxVelocity positive
+	 * @param maxAcceleration positive
+	 */
+	public TrapezoidalProfile(double distance, double maxVelocity, double maxAcceleration) {
+		this.direction = Math.signum(distance);
+		this.maxAcceleration = maxAcceleration;
+		double length = Math.abs(distance);
+		cruiseVelocity = Math.min(maxVelocity, Math.sqrt(length * maxAcceleration));
+		accelerationTime = (cruiseVelocity > 0) ? cruiseVelocity / maxAcceleration : 0;
+		accelerationDistance = 0.5 * maxAcceleration * accelerationTime * accelerationTime;
+		cruiseTime = (cruiseVelocity > 0) ? (length - 2.0 * accelerationDistance) / cruiseVelocity : 0;
+	}
+
+	public double getDuration() {
+		return 2.0 * accelerationTime + cruiseTime;
+	}
+
+	/**
+	 * @return distance traveled at time, clamped to the start and end of the profile
+	 */
+	public double getPosition(double time) {
+		if (time <= 0) return 0;
+		if (time < accelerationTime) return direction * 0.5 * maxAcceleration * time * time;
+		time -= accelerationTime;
+		if (time < cruiseTime) return direction * (accelerationDistance + cruiseVelocity * time);
+		time -= cruiseTime;
+		if (time < accelerationTime) return direction * (accelerationDistance + cruiseVelocity * cruiseTime + cruiseVelocity * time - 0.5 * maxAcceleration * time * time);
+		return direction * (2.0 * accelerationDistance + cruiseVelocity * cruiseTime);
+	}
+
+	public double getVelocity(double time) {
+		if (time <= 0) return 0;
+		if (time < accelerationTime) return direction * maxAcceleration * time;
+		time -= accelerationTime;
+		if (time < cruiseTime) return direction * cruiseVelocity;
+		time -= cruiseTime;
+		if (time < accelerationTime) return direction * (cruiseVelocity - maxAcceleration * time);
+		return 0;
+	}
+}
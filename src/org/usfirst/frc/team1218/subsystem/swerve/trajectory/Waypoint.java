@@ -0,0 +1,19 @@
+package org.usfirst.frc.team1218.subsystem.swerve.trajectory;
+
+/**
+ * Field position a trajectory passes through
+ * @author afiolmahon
+ */
+public class Waypoint {
+	public final double x;
+	public final double y;
+
+	/**
+	 * @param x feet to the right
+	 * @param y feet forward
+	 */
+	public Waypoint(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+}
@@ -1,23 +1,27 @@
 package org.usfirst.frc.team1218.subsystem.toteIntake;
 
+import org.usfirst.frc.team1218.control.CoalescingTalon;
+import org.usfirst.frc.team1218.control.SensorSnapshot;
 import org.usfirst.frc.team1218.robot.OI;
 import org.usfirst.frc.team1218.robot.RobotMap;
+import org.usfirst.frc.team1218.robot.Telemetry;
 
-import edu.wpi.first.wpilibj.CANTalon;
 import edu.wpi.first.wpilibj.command.Subsystem;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 /**
  *	@author Bob Marley
  */
-public class ToteIntake extends Subsystem {
+public class ToteIntake extends Subsystem implements SensorSnapshot.Sensor {
 
-	private final CANTalon intakeL;
-	private final CANTalon intakeR;
+	private final CoalescingTalon intakeL;
+	private final CoalescingTalon intakeR;
 	
 	private double powerL;
 	private double powerR;
 	
+	private volatile double currentL;
+	private volatile double currentR;
+	
 	public final static double TOTE_INTAKE_POWER = 0.8;
 	public final static double TOTE_INTAKE_POWER_GENTLE = 0.4;
 	public final static double TOTE_INTAKE_POWER_HOLD = 0.2;
@@ -27,8 +31,14 @@ public class ToteIntake extends Subsystem {
     }
     
     public ToteIntake() {
-    	intakeL = new CANTalon(RobotMap.TOTE_INTAKE_LEFT);
-    	intakeR = new CANTalon(RobotMap.TOTE_INTAKE_RIGHT);
+    	intakeL = new CoalescingTalon(RobotMap.TOTE_INTAKE_LEFT); //update runs every loop from Robot.periodicTasks, only changes are sent
+    	intakeR = new CoalescingTalon(RobotMap.TOTE_INTAKE_RIGHT);
+    	SensorSnapshot.getInstance().add(this, SensorSnapshot.STATUS_PERIOD); //only currents, sent in the feedback status frame
+    }
+    
+    public void sample() {
+    	currentL = intakeL.getOutputCurrent();
+    	currentR = intakeR.getOutputCurrent();
     }
     
     public void setPower(double power) {
@@ -38,7 +48,7 @@ public class ToteIntake extends Subsystem {
     }
 
     public double getAverageCurrent() {
-    	return (intakeL.getOutputCurrent() + intakeR.getOutputCurrent())/2;
+    	return (currentL + currentR)/2;
     }
     
     public void intakeFromLeft(double power){
@@ -78,12 +88,11 @@ public class ToteIntake extends Subsystem {
     
   
     
-	public void syncDashboard() {
-		update();
-		SmartDashboard.putNumber("Tote_Intake_Current", getAverageCurrent());
-		SmartDashboard.putNumber("Tote_Intake_Power", intakeL.get());
-		SmartDashboard.putNumber("Tote_Intake_Right_Power", intakeR.getOutputCurrent());
-		SmartDashboard.putNumber("Tote_Intake_Left_Power", intakeL.getOutputCurrent());
+	public void registerTelemetry(Telemetry telemetry) {
+		telemetry.addNumber("Tote_Intake_Current", this::getAverageCurrent, Telemetry.NORMAL, 0.05);
+		telemetry.addNumber("Tote_Intake_Power", intakeL::getSetpoint, Telemetry.NORMAL, 0.01);
+		telemetry.addNumber("Tote_Intake_Right_Power", () -> currentR, Telemetry.NORMAL, 0.05);
+		telemetry.addNumber("Tote_Intake_Left_Power", () -> currentL, Telemetry.NORMAL, 0.05);
 	}
 }
 